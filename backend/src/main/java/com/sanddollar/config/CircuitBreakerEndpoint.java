@@ -0,0 +1,28 @@
+package com.sanddollar.config;
+
+import com.sanddollar.service.OpenAiCircuitBreaker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint ({@code /actuator/circuitbreakers}) showing the OpenAI circuit
+ * state, its current failure rate and the most recent state transitions.
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+
+    private final OpenAiCircuitBreaker openAiCircuitBreaker;
+
+    public CircuitBreakerEndpoint(OpenAiCircuitBreaker openAiCircuitBreaker) {
+        this.openAiCircuitBreaker = openAiCircuitBreaker;
+    }
+
+    @ReadOperation
+    public Map<String, OpenAiCircuitBreaker.Snapshot> circuitBreakers() {
+        return Map.of("openai", openAiCircuitBreaker.snapshot());
+    }
+}
@@ -5,20 +5,25 @@ import com.sanddollar.dto.BudgetPlanResponse;
 import com.sanddollar.dto.ChatRequest;
 import com.sanddollar.dto.BudgetAdjustmentRequest;
 import com.sanddollar.dto.BudgetAdjustmentResponse;
+import com.sanddollar.security.UserPrincipal;
+import com.sanddollar.service.AiBudgetRateLimiter;
 import com.sanddollar.service.OpenAIService;
 import com.sanddollar.service.BudgetAdjustmentService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CancellationException;
 
 @RestController
 @RequestMapping("/ai")
@@ -31,8 +36,14 @@ public class AIController {
     @Autowired
     private BudgetAdjustmentService budgetAdjustmentService;
     
+    @Autowired
+    private AiBudgetRateLimiter rateLimiter;
+    
     @PostMapping("/chat")
-    public ResponseEntity<String> chat(@RequestBody Map<String, String> request) {
+    public ResponseEntity<String> chat(@RequestBody Map<String, String> request,
+                                       @AuthenticationPrincipal UserPrincipal userPrincipal,
+                                       HttpServletRequest httpRequest) {
+        rateLimiter.consumeOrThrow(AiBudgetRateLimiter.Endpoint.CHAT, rateLimitKey(userPrincipal, httpRequest));
         try {
             String prompt = request.get("prompt");
             logger.info("Received chat request with prompt: {}", prompt);
@@ -47,26 +58,18 @@ public class AIController {
     }
     
     @GetMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter chatStream(@RequestParam String prompt) {
+    public SseEmitter chatStream(@RequestParam String prompt,
+                                 @AuthenticationPrincipal UserPrincipal userPrincipal,
+                                 HttpServletRequest httpRequest) {
+        rateLimiter.consumeOrThrow(AiBudgetRateLimiter.Endpoint.CHAT, rateLimitKey(userPrincipal, httpRequest));
         logger.info("Received streaming chat request with prompt: {}", prompt);
         
         SseEmitter emitter = new SseEmitter(30000L); // 30 second timeout
         
         try {
-            openAIService.chatStream(prompt, token -> {
-                try {
-                    emitter.send(SseEmitter.event()
-                        .name("data")
-                        .data(token));
-                } catch (IOException e) {
-                    logger.error("Error sending SSE data", e);
-                    emitter.completeWithError(e);
-                }
-            }, () -> {
-                // Complete the emitter when streaming is done
-                emitter.complete();
-            });
-            
+            OpenAIService.StreamHandle stream = openAIService.chatStream(prompt,
+                token -> sendToken(emitter, token), emitter::complete);
+            cancelWhenClosed(emitter, stream);
         } catch (Exception e) {
             logger.error("Error processing streaming chat request", e);
             emitter.completeWithError(e);
@@ -76,7 +79,10 @@ public class AIController {
     }
     
     @PostMapping("/budget/plan")
-    public ResponseEntity<BudgetPlanResponse> generateBudgetPlan(@Valid @RequestBody BudgetRequest request) {
+    public ResponseEntity<BudgetPlanResponse> generateBudgetPlan(@Valid @RequestBody BudgetRequest request,
+                                                                 @AuthenticationPrincipal UserPrincipal userPrincipal,
+                                                                 HttpServletRequest httpRequest) {
+        rateLimiter.consumeOrThrow(AiBudgetRateLimiter.Endpoint.BUDGET_PLAN, rateLimitKey(userPrincipal, httpRequest));
         try {
             logger.info("Received budget plan request: {}", request);
             BudgetPlanResponse response = openAIService.generateBudget(request);
@@ -91,7 +97,10 @@ public class AIController {
     
     @PostMapping("/chat/answer")
     public ResponseEntity<?> chatAnswer(@Valid @RequestBody ChatRequest request,
-                                       @RequestHeader(value = "Accept", defaultValue = "application/json") String acceptHeader) {
+                                       @RequestHeader(value = "Accept", defaultValue = "application/json") String acceptHeader,
+                                       @AuthenticationPrincipal UserPrincipal userPrincipal,
+                                       HttpServletRequest httpRequest) {
+        rateLimiter.consumeOrThrow(AiBudgetRateLimiter.Endpoint.CHAT, rateLimitKey(userPrincipal, httpRequest));
         try {
             logger.info("Received chat answer request with {} messages", request.getMessages().size());
             
@@ -131,20 +140,9 @@ public class AIController {
         SseEmitter emitter = new SseEmitter(30000L); // 30 second timeout
         
         try {
-            openAIService.chatStream(messages, temperature, token -> {
-                try {
-                    emitter.send(SseEmitter.event()
-                        .name("data")
-                        .data(token));
-                } catch (IOException e) {
-                    logger.error("Error sending SSE data", e);
-                    emitter.completeWithError(e);
-                }
-            }, () -> {
-                // Complete the emitter when streaming is done
-                emitter.complete();
-            });
-            
+            OpenAIService.StreamHandle stream = openAIService.chatStream(messages, temperature,
+                token -> sendToken(emitter, token), emitter::complete);
+            cancelWhenClosed(emitter, stream);
         } catch (Exception e) {
             logger.error("Error processing streaming chat answer request", e);
             emitter.completeWithError(e);
@@ -158,7 +156,10 @@ public class AIController {
     }
     
     @PostMapping("/budget/adjust")
-    public ResponseEntity<Map<String, Object>> adjustBudgetWithAI(@RequestBody BudgetAdjustmentRequest request) {
+    public ResponseEntity<Map<String, Object>> adjustBudgetWithAI(@RequestBody BudgetAdjustmentRequest request,
+                                                                  @AuthenticationPrincipal UserPrincipal userPrincipal,
+                                                                  HttpServletRequest httpRequest) {
+        rateLimiter.consumeOrThrow(AiBudgetRateLimiter.Endpoint.BUDGET_ADJUST, rateLimitKey(userPrincipal, httpRequest));
         try {
             logger.info("Received AI budget adjustment request: {}", request.getInstruction());
             
@@ -186,6 +187,39 @@ public class AIController {
         }
     }
     
+    private void sendToken(SseEmitter emitter, String token) {
+        try {
+            emitter.send(SseEmitter.event()
+                .name("data")
+                .data(token));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already timed out; stop generating
+            logger.debug("Error sending SSE data: {}", e.getMessage());
+            emitter.completeWithError(e);
+            throw new CancellationException("SSE client disconnected");
+        }
+    }
+
+    /**
+     * Stops the upstream OpenAI stream when the emitter times out, fails or completes,
+     * so an abandoned request does not keep generating tokens.
+     */
+    private void cancelWhenClosed(SseEmitter emitter, OpenAIService.StreamHandle stream) {
+        emitter.onTimeout(() -> {
+            logger.info("Streaming chat timed out; cancelling upstream request");
+            stream.cancel();
+            emitter.complete();
+        });
+        emitter.onError(e -> stream.cancel());
+        emitter.onCompletion(stream::cancel);
+    }
+
+    private long rateLimitKey(UserPrincipal userPrincipal, HttpServletRequest httpRequest) {
+        return userPrincipal != null
+            ? userPrincipal.getUserId()
+            : AiBudgetRateLimiter.anonymousKey(httpRequest.getRemoteAddr());
+    }
+    
     private String generateConfirmationMessage(BudgetAdjustmentResponse response, String instruction) {
         if ("success".equals(response.getStatus())) {
             return "✅ I've successfully updated your budget based on your request: \"" + instruction + "\". " +
@@ -0,0 +1,101 @@
+package com.sanddollar.controller;
+
+import com.sanddollar.dto.aibudget.AiBudgetJobResponse;
+import com.sanddollar.dto.aibudget.GenerateBudgetRequest;
+import com.sanddollar.security.UserPrincipal;
+import com.sanddollar.service.AiBudgetJobService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * Asynchronous AI budget generation: POST starts a job and returns its id, GET polls
+ * it and /events streams its stages as server-sent events.
+ */
+@RestController
+@RequestMapping("/ai/budget/jobs")
+public class AiBudgetJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiBudgetJobController.class);
+
+    @Autowired
+    private AiBudgetJobService jobService;
+
+    @PostMapping
+    public ResponseEntity<AiBudgetJobResponse> submit(@Valid @RequestBody GenerateBudgetRequest request,
+                                                      @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        Long userId = requireUser(userPrincipal);
+        AiBudgetJobResponse job = jobService.submit(userId, request);
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/ai/budget/jobs/" + job.getJobId()))
+            .body(job);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<AiBudgetJobResponse> get(@PathVariable String jobId,
+                                                   @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        Long userId = requireUser(userPrincipal);
+        return jobService.get(jobId, userId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String jobId,
+                             @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        Long userId = requireUser(userPrincipal);
+        SseEmitter emitter = new SseEmitter(60000L); // 60 second timeout
+
+        Optional<Runnable> subscription = jobService.subscribe(jobId, userId, snapshot -> {
+            try {
+                emitter.send(SseEmitter.event()
+                    .name("job")
+                    .data(snapshot, MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                logger.debug("Error sending job event: {}", e.getMessage());
+                emitter.completeWithError(e);
+                throw new IllegalStateException("SSE client disconnected", e);
+            }
+            if (AiBudgetJobService.isFinished(snapshot)) {
+                emitter.complete();
+            }
+        });
+        if (subscription.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found");
+        }
+
+        if (!jobService.isLive(jobId)) {
+            // Running elsewhere or restored from storage: no updates will follow here
+            emitter.complete();
+            return emitter;
+        }
+
+        Runnable unsubscribe = subscription.get();
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(() -> {
+            unsubscribe.run();
+            emitter.complete();
+        });
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
+    }
+
+    private Long requireUser(UserPrincipal userPrincipal) {
+        if (userPrincipal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Sign in to generate a budget");
+        }
+        return userPrincipal.getUserId();
+    }
+}
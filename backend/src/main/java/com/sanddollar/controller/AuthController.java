@@ -8,6 +8,7 @@ import com.sanddollar.entity.User;
 import com.sanddollar.repository.RefreshTokenRepository;
 import com.sanddollar.security.JwtUtils;
 import com.sanddollar.security.UserPrincipal;
+import com.sanddollar.security.UserPrincipalCache;
 import com.sanddollar.service.UserService;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -43,6 +44,9 @@ public class AuthController {
     @Autowired
     private RefreshTokenRepository refreshTokenRepository;
 
+    @Autowired
+    private UserPrincipalCache principalCache;
+
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterRequest request) {
         if (userService.existsByEmail(request.email())) {
@@ -159,12 +163,20 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser(HttpServletRequest request, HttpServletResponse response) {
+    public ResponseEntity<?> logoutUser(HttpServletRequest request, HttpServletResponse response,
+                                        Authentication authentication) {
         String refreshTokenStr = getRefreshTokenFromRequest(request);
         
         if (refreshTokenStr != null) {
             refreshTokenRepository.findByToken(refreshTokenStr)
-                .ifPresent(refreshTokenRepository::delete);
+                .ifPresent(token -> {
+                    principalCache.evict(token.getUser().getId());
+                    refreshTokenRepository.delete(token);
+                });
+        }
+
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal userPrincipal) {
+            principalCache.evict(userPrincipal.getUserId());
         }
 
         clearCookie(response, "accessToken");
@@ -2,11 +2,15 @@ package com.sanddollar.controller;
 
 import com.sanddollar.dto.BudgetAdjustmentRequest;
 import com.sanddollar.dto.BudgetAdjustmentResponse;
+import com.sanddollar.security.UserPrincipal;
+import com.sanddollar.service.AiBudgetRateLimiter;
 import com.sanddollar.service.BudgetAdjustmentService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -21,8 +25,17 @@ public class BudgetAdjustmentController {
     @Autowired
     private BudgetAdjustmentService budgetAdjustmentService;
     
+    @Autowired
+    private AiBudgetRateLimiter rateLimiter;
+    
     @PostMapping("/adjust")
-    public ResponseEntity<BudgetAdjustmentResponse> adjustBudget(@RequestBody BudgetAdjustmentRequest request) {
+    public ResponseEntity<BudgetAdjustmentResponse> adjustBudget(@RequestBody BudgetAdjustmentRequest request,
+                                                                 @AuthenticationPrincipal UserPrincipal userPrincipal,
+                                                                 HttpServletRequest httpRequest) {
+        long rateLimitKey = userPrincipal != null
+            ? userPrincipal.getUserId()
+            : AiBudgetRateLimiter.anonymousKey(httpRequest.getRemoteAddr());
+        rateLimiter.consumeOrThrow(AiBudgetRateLimiter.Endpoint.BUDGET_ADJUST, rateLimitKey);
         try {
             logger.info("Received budget adjustment request: {}", request.getInstruction());
             
@@ -3,9 +3,9 @@ package com.sanddollar.controller;
 import com.sanddollar.entity.User;
 import com.sanddollar.entity.Account;
 import com.sanddollar.entity.Transaction;
-import com.sanddollar.entity.BalanceSnapshot;
 import com.sanddollar.repository.*;
 import com.sanddollar.security.UserPrincipal;
+import com.sanddollar.service.DailyCategorySpendRollup;
 import com.sanddollar.service.MockBankService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,9 +42,18 @@ public class MockDevController {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private DailyCategorySpendRollup spendRollup;
+
     @Autowired
     private BalanceSnapshotRepository balanceSnapshotRepository;
 
+    @Autowired
+    private AccountLatestBalanceRepository latestBalanceRepository;
+
+    @Autowired
+    private BalanceSnapshotDailyRepository balanceSnapshotDailyRepository;
+
     /**
      * Seed mock data for the authenticated user
      * Creates mock accounts, balances, and 90 days of transactions
@@ -83,11 +92,10 @@ public class MockDevController {
             // Get summary data
             List<Account> accounts = accountRepository.findByUser(user);
             List<Transaction> transactions = transactionRepository.findByAccountUserOrderByDateDesc(user);
-            List<BalanceSnapshot> balances = balanceSnapshotRepository.findRecentByUser(user);
-            
-            Long totalAvailableCents = balances.stream()
-                .mapToLong(b -> b.getAvailableCents() != null ? b.getAvailableCents() : 0L)
-                .sum();
+            Long totalAvailableCents = latestBalanceRepository.sumAvailableCentsByUserId(user.getId());
+            if (totalAvailableCents == null) {
+                totalAvailableCents = 0L;
+            }
 
             // Calculate date range
             LocalDate fromDate = transactions.isEmpty() ? LocalDate.now() : 
@@ -158,11 +166,10 @@ public class MockDevController {
             
             List<Account> accounts = accountRepository.findByUser(user);
             List<Transaction> transactions = transactionRepository.findByAccountUserOrderByDateDesc(user);
-            List<BalanceSnapshot> balances = balanceSnapshotRepository.findRecentByUser(user);
-            
-            Long totalAvailableCents = balances.stream()
-                .mapToLong(b -> b.getAvailableCents() != null ? b.getAvailableCents() : 0L)
-                .sum();
+            Long totalAvailableCents = latestBalanceRepository.sumAvailableCentsByUserId(user.getId());
+            if (totalAvailableCents == null) {
+                totalAvailableCents = 0L;
+            }
 
             Map<String, Object> response = new HashMap<>();
             response.put("accounts", accounts.size());
@@ -201,6 +208,9 @@ public class MockDevController {
             balanceSnapshotRepository.deleteByAccount(account);
         }
         
+        spendRollup.deleteForUser(user.getId());
+        latestBalanceRepository.deleteByUserId(user.getId());
+        balanceSnapshotDailyRepository.deleteByUserId(user.getId());
         accountRepository.deleteByUser(user);
         plaidItemRepository.deleteByUser(user);
         
@@ -204,7 +204,8 @@ public class PlaidController {
             PlaidSyncService.SyncResult result = plaidSyncService.initialBackfill(user.getId());
             return ResponseEntity.ok(Map.of(
                 "accountsUpserted", result.accountsUpserted(),
-                "transactionsUpserted", result.transactionsUpserted()
+                "transactionsUpserted", result.transactionsUpserted(),
+                "items", result.items()
             ));
         } catch (UnauthorizedException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -227,7 +228,8 @@ public class PlaidController {
             PlaidSyncService.SyncResult result = plaidSyncService.incrementalSync(user.getId());
             return ResponseEntity.ok(Map.of(
                 "accountsUpserted", result.accountsUpserted(),
-                "transactionsUpserted", result.transactionsUpserted()
+                "transactionsUpserted", result.transactionsUpserted(),
+                "items", result.items()
             ));
         } catch (UnauthorizedException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
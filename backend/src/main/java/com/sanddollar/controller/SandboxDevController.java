@@ -39,7 +39,10 @@ public class SandboxDevController {
     private TransactionRepository transactionRepository;
 
     @Autowired
-    private BalanceSnapshotRepository balanceSnapshotRepository;
+    private DailyCategorySpendRollup spendRollup;
+
+    @Autowired
+    private AccountBalanceRecorder balanceRecorder;
 
     @Autowired
     private CryptoService cryptoService;
@@ -280,7 +283,7 @@ public class SandboxDevController {
                 transaction.setIsTransfer(merchant.toLowerCase().contains("transfer") || 
                                         random.nextDouble() < 0.05);
                 
-                transactionRepository.save(transaction);
+                spendRollup.addAll(List.of(transactionRepository.save(transaction)));
                 totalTransactions++;
             }
         }
@@ -313,7 +316,7 @@ public class SandboxDevController {
             snapshot.setAvailableCents(availableCents);
             snapshot.setCurrentCents(currentCents);
             
-            balanceSnapshotRepository.save(snapshot);
+            balanceRecorder.record(snapshot);
             
             if ("credit".equals(account.getType())) {
                 totalAvailable += availableCents; // Credit limit available
@@ -356,7 +359,7 @@ public class SandboxDevController {
             );
             
             transaction.setIsTransfer(false); // Minted transactions are not transfers
-            transactionRepository.save(transaction);
+            spendRollup.addAll(List.of(transactionRepository.save(transaction)));
         }
 
         logger.info("Minted {} transactions for account {}", request.getCount(), account.getAccountId());
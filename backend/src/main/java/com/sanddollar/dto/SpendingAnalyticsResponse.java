@@ -0,0 +1,34 @@
+package com.sanddollar.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// Amounts are in dollars; field names are pinned because the spending page reads camelCase keys
+public record SpendingAnalyticsResponse(
+    @JsonProperty("totalSpent") double totalSpent,
+    @JsonProperty("averageDaily") double averageDaily,
+    @JsonProperty("categories") List<CategoryBreakdown> categories,
+    @JsonProperty("trends") List<DailyTrend> trends,
+    @JsonProperty("topMerchants") List<MerchantSpend> topMerchants,
+    @JsonProperty("period") int period,
+    @JsonProperty("transactionCount") long transactionCount
+) {
+    public record CategoryBreakdown(
+        @JsonProperty("category") String category,
+        @JsonProperty("amount") double amount,
+        @JsonProperty("count") long count,
+        @JsonProperty("percentage") double percentage
+    ) {}
+
+    public record DailyTrend(
+        @JsonProperty("date") String date,
+        @JsonProperty("amount") double amount
+    ) {}
+
+    public record MerchantSpend(
+        @JsonProperty("merchant") String merchant,
+        @JsonProperty("amount") double amount,
+        @JsonProperty("count") long count
+    ) {}
+}
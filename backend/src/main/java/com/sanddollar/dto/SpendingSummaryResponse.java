@@ -0,0 +1,21 @@
+package com.sanddollar.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// Field names are pinned because the dashboard reads these keys in camelCase
+public record SpendingSummaryResponse(
+    @JsonProperty("totalIncome") long totalIncome,
+    @JsonProperty("totalExpenses") long totalExpenses,
+    @JsonProperty("netCashFlow") long netCashFlow,
+    @JsonProperty("categories") List<CategoryShare> categories,
+    @JsonProperty("period") int period,
+    @JsonProperty("transactionCount") long transactionCount
+) {
+    public record CategoryShare(
+        @JsonProperty("category") String category,
+        @JsonProperty("amount") long amount,
+        @JsonProperty("percentage") long percentage
+    ) {}
+}
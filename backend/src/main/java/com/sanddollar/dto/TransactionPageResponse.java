@@ -0,0 +1,22 @@
+package com.sanddollar.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// nextCursor is null on the last page; pass it back as ?cursor= to fetch the next one
+public record TransactionPageResponse(
+    @JsonProperty("transactions") List<TransactionItem> transactions,
+    @JsonProperty("nextCursor") String nextCursor
+) {
+    public record TransactionItem(
+        @JsonProperty("id") Long id,
+        @JsonProperty("description") String description,
+        @JsonProperty("merchant") String merchant,
+        @JsonProperty("category") String category,
+        @JsonProperty("amount") double amount,
+        @JsonProperty("date") String date,
+        @JsonProperty("pending") boolean pending,
+        @JsonProperty("accountId") Long accountId
+    ) {}
+}
@@ -0,0 +1,48 @@
+package com.sanddollar.dto.aibudget;
+
+import java.time.Instant;
+
+public class AiBudgetJobResponse {
+
+    private String jobId;
+    private String status;
+    private String stage;
+    private GenerateBudgetResponse result;
+    private String error;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    public AiBudgetJobResponse() {}
+
+    public AiBudgetJobResponse(String jobId, String status, String stage, GenerateBudgetResponse result,
+                               String error, Instant createdAt, Instant updatedAt) {
+        this.jobId = jobId;
+        this.status = status;
+        this.stage = stage;
+        this.result = result;
+        this.error = error;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getStage() { return stage; }
+    public void setStage(String stage) { this.stage = stage; }
+
+    public GenerateBudgetResponse getResult() { return result; }
+    public void setResult(GenerateBudgetResponse result) { this.result = result; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,63 @@
+package com.sanddollar.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Copy of the newest (highest id) {@link BalanceSnapshot} for an account, kept by
+ * {@link com.sanddollar.service.AccountBalanceRecorder}.
+ *
+ * Accounts and users are referenced by ID only so that deleting mock accounts does
+ * not have to clean this table up first.
+ */
+@Entity
+@Table(name = "account_latest_balance", indexes = @Index(name = "idx_account_latest_balance_user_id", columnList = "user_id"))
+public class AccountLatestBalance {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "snapshot_id", nullable = false)
+    private Long snapshotId;
+
+    @Column(name = "available_cents")
+    private Long availableCents;
+
+    @Column(name = "current_cents", nullable = false)
+    private Long currentCents;
+
+    @Column(length = 3)
+    private String currency;
+
+    @Column(name = "as_of", nullable = false)
+    private Instant asOf;
+
+    // Constructors
+    public AccountLatestBalance() {}
+
+    // Getters and Setters
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getSnapshotId() { return snapshotId; }
+    public void setSnapshotId(Long snapshotId) { this.snapshotId = snapshotId; }
+
+    public Long getAvailableCents() { return availableCents; }
+    public void setAvailableCents(Long availableCents) { this.availableCents = availableCents; }
+
+    public Long getCurrentCents() { return currentCents; }
+    public void setCurrentCents(Long currentCents) { this.currentCents = currentCents; }
+
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+
+    public Instant getAsOf() { return asOf; }
+    public void setAsOf(Instant asOf) { this.asOf = asOf; }
+}
@@ -0,0 +1,61 @@
+package com.sanddollar.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A successful AI budget generation, stored so identical requests can skip OpenAI.
+ * See {@link com.sanddollar.service.AiBudgetResponseCache}.
+ */
+@Entity
+@Table(name = "ai_budget_cache",
+       uniqueConstraints = @UniqueConstraint(name = "uq_ai_budget_cache_user_fingerprint", columnNames = {"user_id", "fingerprint"}),
+       indexes = @Index(name = "idx_ai_budget_cache_expires_at", columnList = "expires_at"))
+public class AiBudgetCacheEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(name = "response_json", nullable = false, columnDefinition = "TEXT")
+    private String responseJson;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // Constructors
+    public AiBudgetCacheEntry() {}
+
+    public AiBudgetCacheEntry(Long userId, String fingerprint) {
+        this.userId = userId;
+        this.fingerprint = fingerprint;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getFingerprint() { return fingerprint; }
+    public void setFingerprint(String fingerprint) { this.fingerprint = fingerprint; }
+
+    public String getResponseJson() { return responseJson; }
+    public void setResponseJson(String responseJson) { this.responseJson = responseJson; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
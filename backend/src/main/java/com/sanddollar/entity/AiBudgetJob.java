@@ -0,0 +1,77 @@
+package com.sanddollar.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Stored state of an asynchronous AI budget generation, so its result can still be
+ * fetched after a restart. Live progress is tracked in memory by
+ * {@link com.sanddollar.service.AiBudgetJobService}.
+ */
+@Entity
+@Table(name = "ai_budget_jobs",
+       indexes = {
+           @Index(name = "idx_ai_budget_jobs_user_id", columnList = "user_id"),
+           @Index(name = "idx_ai_budget_jobs_updated_at", columnList = "updated_at")
+       })
+public class AiBudgetJob {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(length = 30)
+    private String stage;
+
+    @Column(name = "request_json", nullable = false, columnDefinition = "TEXT")
+    private String requestJson;
+
+    @Column(name = "result_json", columnDefinition = "TEXT")
+    private String resultJson;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    // Constructors
+    public AiBudgetJob() {}
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getStage() { return stage; }
+    public void setStage(String stage) { this.stage = stage; }
+
+    public String getRequestJson() { return requestJson; }
+    public void setRequestJson(String requestJson) { this.requestJson = requestJson; }
+
+    public String getResultJson() { return resultJson; }
+    public void setResultJson(String resultJson) { this.resultJson = resultJson; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,59 @@
+package com.sanddollar.entity;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Cluster-wide token bucket for one user and AI endpoint.
+ *
+ * Rows are read and written with atomic SQL by
+ * {@link com.sanddollar.service.PostgresRateLimitStore}; the entity exists so the
+ * table is part of the schema.
+ */
+@Entity
+@Table(name = "ai_rate_limit_buckets",
+       uniqueConstraints = @UniqueConstraint(name = "uq_ai_rate_limit_buckets", columnNames = {"endpoint", "user_key"}),
+       indexes = @Index(name = "idx_ai_rate_limit_buckets_refilled_at", columnList = "refilled_at"))
+public class AiRateLimitBucket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String endpoint;
+
+    @Column(name = "user_key", nullable = false)
+    private Long userKey;
+
+    @Column(nullable = false)
+    private Double tokens;
+
+    @Column(name = "last_granted", nullable = false)
+    private Integer lastGranted = 0;
+
+    @Column(name = "refilled_at", nullable = false)
+    private OffsetDateTime refilledAt;
+
+    // Constructors
+    public AiRateLimitBucket() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getEndpoint() { return endpoint; }
+    public void setEndpoint(String endpoint) { this.endpoint = endpoint; }
+
+    public Long getUserKey() { return userKey; }
+    public void setUserKey(Long userKey) { this.userKey = userKey; }
+
+    public Double getTokens() { return tokens; }
+    public void setTokens(Double tokens) { this.tokens = tokens; }
+
+    public Integer getLastGranted() { return lastGranted; }
+    public void setLastGranted(Integer lastGranted) { this.lastGranted = lastGranted; }
+
+    public OffsetDateTime getRefilledAt() { return refilledAt; }
+    public void setRefilledAt(OffsetDateTime refilledAt) { this.refilledAt = refilledAt; }
+}
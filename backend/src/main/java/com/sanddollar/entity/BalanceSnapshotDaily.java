@@ -0,0 +1,85 @@
+package com.sanddollar.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Last, min and max balance of one account for one UTC day.
+ *
+ * Rows are upserted by {@link com.sanddollar.service.AccountBalanceRecorder} whenever a
+ * snapshot is written, which lets raw snapshots be pruned once they age out; the
+ * entity is only read through JPA.
+ */
+@Entity
+@Table(name = "balance_snapshot_daily",
+       uniqueConstraints = @UniqueConstraint(name = "uq_balance_snapshot_daily",
+                                             columnNames = {"account_id", "`day`"}),
+       indexes = @Index(name = "idx_balance_snapshot_daily_user_day", columnList = "user_id, `day`"))
+public class BalanceSnapshotDaily {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Quoted because DAY is a reserved word in H2
+    @Column(name = "`day`", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "last_snapshot_id", nullable = false)
+    private Long lastSnapshotId;
+
+    @Column(name = "last_current_cents", nullable = false)
+    private Long lastCurrentCents;
+
+    @Column(name = "last_available_cents")
+    private Long lastAvailableCents;
+
+    @Column(name = "min_current_cents", nullable = false)
+    private Long minCurrentCents;
+
+    @Column(name = "max_current_cents", nullable = false)
+    private Long maxCurrentCents;
+
+    @Column(length = 3)
+    private String currency;
+
+    // Constructors
+    public BalanceSnapshotDaily() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public Long getLastSnapshotId() { return lastSnapshotId; }
+    public void setLastSnapshotId(Long lastSnapshotId) { this.lastSnapshotId = lastSnapshotId; }
+
+    public Long getLastCurrentCents() { return lastCurrentCents; }
+    public void setLastCurrentCents(Long lastCurrentCents) { this.lastCurrentCents = lastCurrentCents; }
+
+    public Long getLastAvailableCents() { return lastAvailableCents; }
+    public void setLastAvailableCents(Long lastAvailableCents) { this.lastAvailableCents = lastAvailableCents; }
+
+    public Long getMinCurrentCents() { return minCurrentCents; }
+    public void setMinCurrentCents(Long minCurrentCents) { this.minCurrentCents = minCurrentCents; }
+
+    public Long getMaxCurrentCents() { return maxCurrentCents; }
+    public void setMaxCurrentCents(Long maxCurrentCents) { this.maxCurrentCents = maxCurrentCents; }
+
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+}
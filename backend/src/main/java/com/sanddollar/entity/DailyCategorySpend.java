@@ -0,0 +1,71 @@
+package com.sanddollar.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Rollup of a user's non-transfer transactions for one day and top-level category.
+ *
+ * Rows are written with deltas by {@link com.sanddollar.service.DailyCategorySpendRollup};
+ * the entity is only read through JPA.
+ */
+@Entity
+@Table(name = "daily_category_spend",
+       uniqueConstraints = @UniqueConstraint(name = "uq_daily_category_spend",
+                                             columnNames = {"user_id", "`day`", "category_top"}))
+public class DailyCategorySpend {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Quoted because DAY is a reserved word in H2
+    @Column(name = "`day`", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "category_top", nullable = false, length = 100)
+    private String categoryTop;
+
+    @Column(name = "spend_cents", nullable = false)
+    private Long spendCents = 0L;
+
+    @Column(name = "income_cents", nullable = false)
+    private Long incomeCents = 0L;
+
+    @Column(name = "txn_count", nullable = false)
+    private Integer txnCount = 0;
+
+    @Column(name = "spend_count", nullable = false)
+    private Integer spendCount = 0;
+
+    // Constructors
+    public DailyCategorySpend() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public String getCategoryTop() { return categoryTop; }
+    public void setCategoryTop(String categoryTop) { this.categoryTop = categoryTop; }
+
+    public Long getSpendCents() { return spendCents; }
+    public void setSpendCents(Long spendCents) { this.spendCents = spendCents; }
+
+    public Long getIncomeCents() { return incomeCents; }
+    public void setIncomeCents(Long incomeCents) { this.incomeCents = incomeCents; }
+
+    public Integer getTxnCount() { return txnCount; }
+    public void setTxnCount(Integer txnCount) { this.txnCount = txnCount; }
+
+    public Integer getSpendCount() { return spendCount; }
+    public void setSpendCount(Integer spendCount) { this.spendCount = spendCount; }
+}
@@ -38,9 +38,12 @@ public class PlaidItem {
     @Column(name = "access_token_encrypted", nullable = false)
     private String accessTokenEncrypted;
 
-    @Column(name = "cursor")
+    @Column(name = "cursor", columnDefinition = "TEXT")
     private String cursor;
 
+    @Column(name = "last_synced_at")
+    private Instant lastSyncedAt;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
@@ -89,6 +92,9 @@ public class PlaidItem {
     public String getCursor() { return cursor; }
     public void setCursor(String cursor) { this.cursor = cursor; }
 
+    public Instant getLastSyncedAt() { return lastSyncedAt; }
+    public void setLastSyncedAt(Instant lastSyncedAt) { this.lastSyncedAt = lastSyncedAt; }
+
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
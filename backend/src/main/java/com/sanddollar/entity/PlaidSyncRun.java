@@ -0,0 +1,129 @@
+package com.sanddollar.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Instant;
+
+/**
+ * Progress record for one pass of /transactions/sync over a Plaid item.
+ *
+ * A page's upserts, the item cursor and this record are committed together, so an
+ * interrupted initial backfill can resume from the last committed page.
+ */
+@Entity
+@Table(name = "plaid_sync_runs")
+public class PlaidSyncRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "plaid_item_id", nullable = false)
+    private Long plaidItemId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private SyncMode mode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private SyncStatus status = SyncStatus.RUNNING;
+
+    @Column(name = "start_cursor", columnDefinition = "TEXT")
+    private String startCursor;
+
+    @Column(name = "pages_committed", nullable = false)
+    private Integer pagesCommitted = 0;
+
+    @Column(name = "transactions_upserted", nullable = false)
+    private Integer transactionsUpserted = 0;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "last_page_at")
+    private Instant lastPageAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    // Constructors
+    public PlaidSyncRun() {}
+
+    public PlaidSyncRun(Long plaidItemId, SyncMode mode, String startCursor) {
+        this.plaidItemId = plaidItemId;
+        this.mode = mode;
+        this.startCursor = startCursor;
+        this.startedAt = Instant.now();
+    }
+
+    public void recordPage(int upserted, Instant at) {
+        this.pagesCommitted = pagesCommitted + 1;
+        this.transactionsUpserted = transactionsUpserted + upserted;
+        this.lastPageAt = at;
+    }
+
+    public void complete(Instant at) {
+        this.status = SyncStatus.COMPLETED;
+        this.finishedAt = at;
+        this.error = null;
+    }
+
+    public void fail(String error, Instant at) {
+        this.status = SyncStatus.FAILED;
+        this.finishedAt = at;
+        this.error = error;
+    }
+
+    public void resume() {
+        this.status = SyncStatus.RUNNING;
+        this.finishedAt = null;
+        this.error = null;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getPlaidItemId() { return plaidItemId; }
+    public void setPlaidItemId(Long plaidItemId) { this.plaidItemId = plaidItemId; }
+
+    public SyncMode getMode() { return mode; }
+    public void setMode(SyncMode mode) { this.mode = mode; }
+
+    public SyncStatus getStatus() { return status; }
+    public void setStatus(SyncStatus status) { this.status = status; }
+
+    public String getStartCursor() { return startCursor; }
+    public void setStartCursor(String startCursor) { this.startCursor = startCursor; }
+
+    public Integer getPagesCommitted() { return pagesCommitted; }
+    public void setPagesCommitted(Integer pagesCommitted) { this.pagesCommitted = pagesCommitted; }
+
+    public Integer getTransactionsUpserted() { return transactionsUpserted; }
+    public void setTransactionsUpserted(Integer transactionsUpserted) { this.transactionsUpserted = transactionsUpserted; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getLastPageAt() { return lastPageAt; }
+    public void setLastPageAt(Instant lastPageAt) { this.lastPageAt = lastPageAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public enum SyncMode {
+        INITIAL, INCREMENTAL
+    }
+
+    public enum SyncStatus {
+        RUNNING, COMPLETED, FAILED
+    }
+}
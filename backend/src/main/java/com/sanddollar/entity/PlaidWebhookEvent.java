@@ -0,0 +1,110 @@
+package com.sanddollar.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+
+import java.time.Instant;
+
+/**
+ * Inbox row for a Plaid webhook. Rows are keyed by item and webhook code, so repeated
+ * webhooks bump {@code receivedCount} instead of queueing more work.
+ *
+ * Writes go through {@link com.sanddollar.service.PlaidWebhookInbox}; the entity exists
+ * for schema generation and read-only queries.
+ */
+@Entity
+@Table(name = "plaid_webhook_inbox",
+       uniqueConstraints = @UniqueConstraint(name = "uq_plaid_webhook_inbox_item_code",
+                                             columnNames = {"item_id", "webhook_code"}))
+public class PlaidWebhookEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotBlank
+    @Column(name = "item_id", nullable = false)
+    private String itemId;
+
+    @Column(name = "webhook_type", length = 100)
+    private String webhookType;
+
+    @NotBlank
+    @Column(name = "webhook_code", nullable = false, length = 100)
+    private String webhookCode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    // Set when a webhook arrives while the row is being processed
+    @Column(nullable = false)
+    private Boolean redeliver = false;
+
+    @Column(name = "received_count", nullable = false)
+    private Integer receivedCount = 1;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "first_received_at", nullable = false)
+    private Instant firstReceivedAt;
+
+    @Column(name = "last_received_at", nullable = false)
+    private Instant lastReceivedAt;
+
+    @Column(name = "available_at", nullable = false)
+    private Instant availableAt;
+
+    @Column(name = "claimed_at")
+    private Instant claimedAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    // Constructors
+    public PlaidWebhookEvent() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+
+    public String getWebhookType() { return webhookType; }
+    public void setWebhookType(String webhookType) { this.webhookType = webhookType; }
+
+    public String getWebhookCode() { return webhookCode; }
+    public void setWebhookCode(String webhookCode) { this.webhookCode = webhookCode; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public Boolean getRedeliver() { return redeliver; }
+    public void setRedeliver(Boolean redeliver) { this.redeliver = redeliver; }
+
+    public Integer getReceivedCount() { return receivedCount; }
+    public void setReceivedCount(Integer receivedCount) { this.receivedCount = receivedCount; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public Instant getFirstReceivedAt() { return firstReceivedAt; }
+    public void setFirstReceivedAt(Instant firstReceivedAt) { this.firstReceivedAt = firstReceivedAt; }
+
+    public Instant getLastReceivedAt() { return lastReceivedAt; }
+    public void setLastReceivedAt(Instant lastReceivedAt) { this.lastReceivedAt = lastReceivedAt; }
+
+    public Instant getAvailableAt() { return availableAt; }
+    public void setAvailableAt(Instant availableAt) { this.availableAt = availableAt; }
+
+    public Instant getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(Instant claimedAt) { this.claimedAt = claimedAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public enum Status {
+        PENDING, PROCESSING, DONE, FAILED
+    }
+}
@@ -21,6 +21,11 @@ public class Transaction {
     @JsonIgnore
     private Account account;
 
+    // Owner of the account, copied so per-user queries can use the (user_id, date, id) index
+    @Column(name = "user_id", nullable = false)
+    @JsonIgnore
+    private Long userId;
+
     @NotBlank
     @Column(name = "external_id", unique = true, nullable = false)
     private String externalId;
@@ -73,7 +78,7 @@ public class Transaction {
 
     public Transaction(Account account, String externalId, LocalDate date, String name, 
                       String merchantName, Long amountCents, String categoryTop, String categorySub) {
-        this.account = account;
+        setAccount(account);
         this.externalId = externalId;
         this.plaidTransactionId = externalId;
         this.date = date;
@@ -89,7 +94,12 @@ public class Transaction {
     public void setId(Long id) { this.id = id; }
 
     public Account getAccount() { return account; }
-    public void setAccount(Account account) { this.account = account; }
+    public void setAccount(Account account) {
+        this.account = account;
+        this.userId = account != null && account.getUser() != null ? account.getUser().getId() : null;
+    }
+
+    public Long getUserId() { return userId; }
 
     public String getExternalId() { return externalId; }
     public void setExternalId(String externalId) { this.externalId = externalId; }
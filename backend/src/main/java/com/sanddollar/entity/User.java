@@ -7,12 +7,14 @@ import jakarta.validation.constraints.Size;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.sanddollar.security.UserCacheInvalidationListener;
 
 import java.time.Instant;
 import java.util.List;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserCacheInvalidationListener.class)
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
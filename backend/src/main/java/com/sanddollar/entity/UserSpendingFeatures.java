@@ -0,0 +1,71 @@
+package com.sanddollar.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Precomputed spending features for one user, read when building AI budget prompts.
+ * See {@link com.sanddollar.service.SpendingFeatureStore}.
+ */
+@Entity
+@Table(name = "user_spending_features")
+public class UserSpendingFeatures {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "as_of", nullable = false)
+    private LocalDate asOf;
+
+    @Column(name = "history_days", nullable = false)
+    private Integer historyDays;
+
+    @Column(name = "monthly_income_cents", nullable = false)
+    private Long monthlyIncomeCents;
+
+    @Column(name = "spend_volatility", nullable = false)
+    private Double spendVolatility;
+
+    @Column(name = "category_averages_json", nullable = false, columnDefinition = "TEXT")
+    private String categoryAveragesJson;
+
+    @Column(name = "recurring_bills_json", nullable = false, columnDefinition = "TEXT")
+    private String recurringBillsJson;
+
+    @Column(name = "computed_at", nullable = false)
+    private Instant computedAt;
+
+    // Constructors
+    public UserSpendingFeatures() {}
+
+    public UserSpendingFeatures(Long userId) {
+        this.userId = userId;
+    }
+
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public LocalDate getAsOf() { return asOf; }
+    public void setAsOf(LocalDate asOf) { this.asOf = asOf; }
+
+    public Integer getHistoryDays() { return historyDays; }
+    public void setHistoryDays(Integer historyDays) { this.historyDays = historyDays; }
+
+    public Long getMonthlyIncomeCents() { return monthlyIncomeCents; }
+    public void setMonthlyIncomeCents(Long monthlyIncomeCents) { this.monthlyIncomeCents = monthlyIncomeCents; }
+
+    public Double getSpendVolatility() { return spendVolatility; }
+    public void setSpendVolatility(Double spendVolatility) { this.spendVolatility = spendVolatility; }
+
+    public String getCategoryAveragesJson() { return categoryAveragesJson; }
+    public void setCategoryAveragesJson(String categoryAveragesJson) { this.categoryAveragesJson = categoryAveragesJson; }
+
+    public String getRecurringBillsJson() { return recurringBillsJson; }
+    public void setRecurringBillsJson(String recurringBillsJson) { this.recurringBillsJson = recurringBillsJson; }
+
+    public Instant getComputedAt() { return computedAt; }
+    public void setComputedAt(Instant computedAt) { this.computedAt = computedAt; }
+}
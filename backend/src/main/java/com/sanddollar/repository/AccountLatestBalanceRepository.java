@@ -0,0 +1,29 @@
+package com.sanddollar.repository;
+
+import com.sanddollar.entity.AccountLatestBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AccountLatestBalanceRepository extends JpaRepository<AccountLatestBalance, Long> {
+    List<AccountLatestBalance> findByUserId(Long userId);
+
+    @Query("SELECT SUM(l.availableCents) FROM AccountLatestBalance l WHERE l.userId = :userId")
+    Long sumAvailableCentsByUserId(@Param("userId") Long userId);
+
+    /**
+     * A user's accounts paired with their latest balance (null if none yet), in one query
+     */
+    @Query("SELECT a, l FROM Account a LEFT JOIN AccountLatestBalance l ON l.accountId = a.id " +
+           "WHERE a.user.id = :userId ORDER BY a.id")
+    List<Object[]> findAccountsWithLatestBalance(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM AccountLatestBalance l WHERE l.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,25 @@
+package com.sanddollar.repository;
+
+import com.sanddollar.entity.AiBudgetCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface AiBudgetCacheRepository extends JpaRepository<AiBudgetCacheEntry, Long> {
+
+    Optional<AiBudgetCacheEntry> findByUserIdAndFingerprint(Long userId, String fingerprint);
+
+    @Modifying
+    @Query("DELETE FROM AiBudgetCacheEntry e WHERE e.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM AiBudgetCacheEntry e WHERE e.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,18 @@
+package com.sanddollar.repository;
+
+import com.sanddollar.entity.AiBudgetJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface AiBudgetJobRepository extends JpaRepository<AiBudgetJob, String> {
+
+    @Modifying
+    @Query("DELETE FROM AiBudgetJob j WHERE j.updatedAt < :cutoff")
+    int deleteUpdatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,31 @@
+package com.sanddollar.repository;
+
+import com.sanddollar.entity.BalanceSnapshotDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface BalanceSnapshotDailyRepository extends JpaRepository<BalanceSnapshotDaily, Long> {
+
+    /**
+     * Total end-of-day current balance across a user's accounts, one row per day: [day, sumCents]
+     */
+    @Query("SELECT d.day, SUM(d.lastCurrentCents) FROM BalanceSnapshotDaily d " +
+           "WHERE d.userId = :userId AND d.day >= :startDate " +
+           "GROUP BY d.day ORDER BY d.day ASC")
+    List<Object[]> getDailyTotals(@Param("userId") Long userId, @Param("startDate") LocalDate startDate);
+
+    @Modifying
+    @Query("DELETE FROM BalanceSnapshotDaily d WHERE d.accountId = :accountId")
+    int deleteByAccountId(@Param("accountId") Long accountId);
+
+    @Modifying
+    @Query("DELETE FROM BalanceSnapshotDaily d WHERE d.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,41 @@
+package com.sanddollar.repository;
+
+import com.sanddollar.entity.DailyCategorySpend;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyCategorySpendRepository extends JpaRepository<DailyCategorySpend, Long> {
+
+    @Query("SELECT d.day, SUM(d.spendCents) FROM DailyCategorySpend d " +
+           "WHERE d.userId = :userId AND d.day >= :startDate AND d.day <= :endDate " +
+           "GROUP BY d.day ORDER BY d.day DESC")
+    List<Object[]> getDailySpending(@Param("userId") Long userId,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate);
+
+    // Counts outflows only, matching the category amounts
+    @Query("SELECT d.categoryTop, SUM(d.spendCents), SUM(d.spendCount) FROM DailyCategorySpend d " +
+           "WHERE d.userId = :userId AND d.day >= :startDate AND d.day <= :endDate " +
+           "GROUP BY d.categoryTop HAVING SUM(d.spendCents) > 0 ORDER BY SUM(d.spendCents) DESC")
+    List<Object[]> getSpendingByCategory(@Param("userId") Long userId,
+                                         @Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT d.categoryTop, SUM(d.spendCents), SUM(d.incomeCents), SUM(d.txnCount) FROM DailyCategorySpend d " +
+           "WHERE d.userId = :userId AND d.day >= :startDate AND d.day <= :endDate " +
+           "GROUP BY d.categoryTop ORDER BY SUM(d.spendCents) DESC")
+    List<Object[]> getCategoryTotals(@Param("userId") Long userId,
+                                     @Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate);
+
+    @Modifying
+    @Query("DELETE FROM DailyCategorySpend d WHERE d.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
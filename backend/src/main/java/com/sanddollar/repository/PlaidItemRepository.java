@@ -2,9 +2,14 @@ package com.sanddollar.repository;
 
 import com.sanddollar.entity.PlaidItem;
 import com.sanddollar.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +18,47 @@ public interface PlaidItemRepository extends JpaRepository<PlaidItem, Long> {
     List<PlaidItem> findByUser(User user);
     Optional<PlaidItem> findByItemId(String itemId);
     List<PlaidItem> findByUserAndStatus(User user, PlaidItem.PlaidItemStatus status);
+
+    @Modifying
+    @Query("UPDATE PlaidItem p SET p.cursor = :cursor WHERE p.id = :id")
+    int updateCursor(@Param("id") Long id, @Param("cursor") String cursor);
+
+    @Modifying
+    @Query("UPDATE PlaidItem p SET p.lastSyncedAt = :syncedAt WHERE p.id = :id")
+    int markSynced(@Param("id") Long id, @Param("syncedAt") Instant syncedAt);
+
+    @Query("SELECT p.lastSyncedAt FROM PlaidItem p WHERE p.id = :id")
+    Instant findLastSyncedAt(@Param("id") Long id);
+
+    /**
+     * Items not synced since {@code syncedBefore}, never-synced and stalest first
+     */
+    @Query("SELECT p.id FROM PlaidItem p WHERE p.status = :status " +
+           "AND (p.lastSyncedAt IS NULL OR p.lastSyncedAt < :syncedBefore) " +
+           "ORDER BY p.lastSyncedAt ASC NULLS FIRST, p.id ASC")
+    List<Long> findIdsDueForSync(@Param("status") PlaidItem.PlaidItemStatus status,
+                                 @Param("syncedBefore") Instant syncedBefore);
+
+    /**
+     * Items whose stored token does not start with {@code keyPrefix}, in ID order after {@code afterId}
+     */
+    @Query("SELECT p.id FROM PlaidItem p WHERE p.id > :afterId " +
+           "AND p.accessTokenEncrypted NOT LIKE CONCAT(:keyPrefix, '%') ORDER BY p.id ASC")
+    List<Long> findIdsWithTokenNotUnderKey(@Param("keyPrefix") String keyPrefix, @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
+    @Query("SELECT COUNT(p) FROM PlaidItem p WHERE p.accessTokenEncrypted NOT LIKE CONCAT(:keyPrefix, '%')")
+    long countWithTokenNotUnderKey(@Param("keyPrefix") String keyPrefix);
+
+    /**
+     * Replaces the stored token only if it is still {@code expected}, so a relink that
+     * raced the re-encryption is never overwritten
+     */
+    @Modifying
+    @Query("UPDATE PlaidItem p SET p.accessTokenEncrypted = :replacement " +
+           "WHERE p.id = :id AND p.accessTokenEncrypted = :expected")
+    int replaceAccessToken(@Param("id") Long id, @Param("expected") String expected,
+                           @Param("replacement") String replacement);
     
     // Additional methods for mock data management
     void deleteByUser(User user);
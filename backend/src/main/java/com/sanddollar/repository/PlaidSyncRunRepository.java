@@ -0,0 +1,39 @@
+package com.sanddollar.repository;
+
+import com.sanddollar.entity.PlaidSyncRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface PlaidSyncRunRepository extends JpaRepository<PlaidSyncRun, Long> {
+    Optional<PlaidSyncRun> findFirstByPlaidItemIdAndModeAndStatusInOrderByStartedAtDesc(
+        Long plaidItemId, PlaidSyncRun.SyncMode mode, Collection<PlaidSyncRun.SyncStatus> statuses);
+
+    /**
+     * Close any other unfinished runs for an item once it has been synced to the end
+     */
+    @Modifying
+    @Query("UPDATE PlaidSyncRun r SET r.status = com.sanddollar.entity.PlaidSyncRun.SyncStatus.COMPLETED, " +
+           "r.finishedAt = :finishedAt WHERE r.plaidItemId = :plaidItemId AND r.id <> :runId " +
+           "AND r.status <> com.sanddollar.entity.PlaidSyncRun.SyncStatus.COMPLETED")
+    int completeOtherRuns(@Param("plaidItemId") Long plaidItemId,
+                          @Param("runId") Long runId,
+                          @Param("finishedAt") Instant finishedAt);
+
+    /**
+     * Delete runs that finished before the cutoff and are no longer needed to resume:
+     * completed runs, and incremental runs however they ended
+     */
+    @Modifying
+    @Query("DELETE FROM PlaidSyncRun r WHERE r.finishedAt < :cutoff " +
+           "AND (r.status = com.sanddollar.entity.PlaidSyncRun.SyncStatus.COMPLETED " +
+           "OR r.mode = com.sanddollar.entity.PlaidSyncRun.SyncMode.INCREMENTAL)")
+    int deleteFinishedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,10 @@
+package com.sanddollar.repository;
+
+import com.sanddollar.entity.PlaidWebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PlaidWebhookEventRepository extends JpaRepository<PlaidWebhookEvent, Long> {
+    long countByStatus(PlaidWebhookEvent.Status status);
+}
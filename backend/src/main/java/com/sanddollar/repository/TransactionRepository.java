@@ -2,6 +2,7 @@ package com.sanddollar.repository;
 
 import com.sanddollar.entity.Transaction;
 import com.sanddollar.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -50,6 +51,29 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
                                   @Param("startDate") LocalDate startDate, 
                                   @Param("endDate") LocalDate endDate);
     
+    @Query("SELECT t.name, SUM(-t.amountCents), COUNT(t) FROM Transaction t " +
+           "WHERE t.account.user.id = :userId AND t.date >= :startDate AND t.date <= :endDate " +
+           "AND t.amountCents < 0 AND t.isTransfer = false " +
+           "GROUP BY t.name ORDER BY SUM(-t.amountCents) DESC")
+    List<Object[]> getTopMerchants(@Param("userId") Long userId,
+                                   @Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate,
+                                   Pageable pageable);
+
+    @Query("SELECT COALESCE(t.merchantName, t.name), t.categoryTop, t.date, -t.amountCents FROM Transaction t " +
+           "WHERE t.userId = :userId AND t.date >= :startDate AND t.date <= :endDate " +
+           "AND t.amountCents < 0 AND t.isTransfer = false AND t.pending = false ORDER BY t.date")
+    List<Object[]> getOutflows(@Param("userId") Long userId,
+                               @Param("startDate") LocalDate startDate,
+                               @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT COALESCE(t.merchantName, t.name), t.categoryTop, t.date, t.amountCents FROM Transaction t " +
+           "WHERE t.userId = :userId AND t.date >= :startDate AND t.date <= :endDate " +
+           "AND t.amountCents > 0 AND t.isTransfer = false AND t.pending = false ORDER BY t.date")
+    List<Object[]> getInflows(@Param("userId") Long userId,
+                              @Param("startDate") LocalDate startDate,
+                              @Param("endDate") LocalDate endDate);
+
     @Query("SELECT t FROM Transaction t WHERE t.account.user = :user AND t.categoryTop = :category " +
            "AND t.date >= :startDate AND t.date <= :endDate ORDER BY t.date DESC")
     List<Transaction> findByCategoryAndDateRange(@Param("user") User user, 
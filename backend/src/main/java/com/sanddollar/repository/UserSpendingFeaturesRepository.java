@@ -0,0 +1,18 @@
+package com.sanddollar.repository;
+
+import com.sanddollar.entity.UserSpendingFeatures;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface UserSpendingFeaturesRepository extends JpaRepository<UserSpendingFeatures, Long> {
+
+    @Modifying
+    @Query("DELETE FROM UserSpendingFeatures f WHERE f.userId IN :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
@@ -2,6 +2,7 @@ package com.sanddollar.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,8 +26,16 @@ public class JwtUtils {
     @Value("${jwt.refresh-expiration}")
     private long jwtRefreshExpirationMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    // Built once: the key is immutable and the parser is thread-safe
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
 
     public String generateJwtToken(String email, Long userId) {
@@ -35,7 +44,7 @@ public class JwtUtils {
                 .claim("userId", userId)
                 .issuedAt(Date.from(Instant.now()))
                 .expiration(Date.from(Instant.now().plusMillis(jwtExpirationMs)))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
@@ -46,68 +55,48 @@ public class JwtUtils {
                 .claim("type", "refresh")
                 .issuedAt(Date.from(Instant.now()))
                 .expiration(Date.from(Instant.now().plusMillis(jwtRefreshExpirationMs)))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String getEmailFromJwtToken(String token) {
-        try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            return claims.getSubject();
-        } catch (JwtException | IllegalArgumentException e) {
-            logger.error("Cannot get email from token: {}", e.getMessage());
-            return null;
-        }
-    }
-
-    public Long getUserIdFromJwtToken(String token) {
-        try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            return claims.get("userId", Long.class);
-        } catch (JwtException | IllegalArgumentException e) {
-            logger.error("Cannot get user ID from token: {}", e.getMessage());
-            return null;
-        }
-    }
-
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Verifies the token and returns its claims, or null if it is not valid. Callers
+     * that need more than one claim should use this instead of the single-claim getters.
+     */
+    public JwtClaims parseAndVerify(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(authToken);
-            return true;
+            return JwtClaims.of(parser.parseSignedClaims(token).getPayload());
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
             logger.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             logger.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (JwtException e) {
+            logger.error("JWT token failed verification: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    public String getEmailFromJwtToken(String token) {
+        JwtClaims claims = parseAndVerify(token);
+        return claims != null ? claims.subject() : null;
+    }
+
+    public Long getUserIdFromJwtToken(String token) {
+        JwtClaims claims = parseAndVerify(token);
+        return claims != null ? claims.userId() : null;
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return parseAndVerify(authToken) != null;
     }
 
     public boolean isRefreshToken(String token) {
-        try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            return "refresh".equals(claims.get("type"));
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        JwtClaims claims = parseAndVerify(token);
+        return claims != null && claims.isRefresh();
     }
 
     public long getJwtExpirationMs() {
@@ -117,4 +106,23 @@ public class JwtUtils {
     public long getJwtRefreshExpirationMs() {
         return jwtRefreshExpirationMs;
     }
-}
\ No newline at end of file
+
+    /**
+     * The claims this application puts in its tokens.
+     */
+    public record JwtClaims(String subject, Long userId, String type, Instant issuedAt, Instant expiresAt) {
+        static JwtClaims of(Claims claims) {
+            return new JwtClaims(
+                    claims.getSubject(),
+                    claims.get("userId", Long.class),
+                    claims.get("type", String.class),
+                    claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                    claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+            );
+        }
+
+        public boolean isRefresh() {
+            return "refresh".equals(type);
+        }
+    }
+}
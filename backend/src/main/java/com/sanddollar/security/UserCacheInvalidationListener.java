@@ -0,0 +1,28 @@
+package com.sanddollar.security;
+
+import com.sanddollar.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts cached principals whenever a user row is updated or deleted, whatever code
+ * path made the change.
+ */
+@Component
+public class UserCacheInvalidationListener {
+
+    private final UserPrincipalCache principalCache;
+
+    // Lazy: entity listeners are created while the EntityManagerFactory is still starting
+    public UserCacheInvalidationListener(@Lazy UserPrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void evict(User user) {
+        principalCache.evict(user.getId());
+    }
+}
@@ -0,0 +1,67 @@
+package com.sanddollar.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sanddollar.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived cache of authenticated principals keyed by user ID, so requests with a
+ * valid JWT do not each look the user up again.
+ *
+ * Entries are evicted when the user row changes ({@link UserCacheInvalidationListener})
+ * or the user logs out; the TTL bounds staleness across instances.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, UserPrincipal> cache;
+
+    public UserPrincipalCache(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.principal-cache.max-size:10000}") long maxSize,
+            @Value("${jwt.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(Math.max(1, maxSize))
+            .expireAfterWrite(Duration.ofSeconds(Math.max(1, ttlSeconds)))
+            .recordStats()
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userPrincipal");
+        Gauge.builder("auth.principal.cache.hit.ratio", cache, c -> c.stats().hitRate())
+            .description("Share of authenticated requests served without a user lookup")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Principal for the token's user, or null if the user no longer exists or the
+     * token was issued for a different email than the user now has.
+     */
+    public UserPrincipal get(Long userId, String email) {
+        UserPrincipal principal = cache.get(userId,
+            id -> userRepository.findById(id).map(UserPrincipal::new).orElse(null));
+        if (principal == null) {
+            return null;
+        }
+        if (email != null && !email.equals(principal.getUsername())) {
+            cache.invalidate(userId);
+            return null;
+        }
+        return principal;
+    }
+
+    public void evict(Long userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+}
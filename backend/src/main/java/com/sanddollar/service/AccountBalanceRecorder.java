@@ -0,0 +1,146 @@
+package com.sanddollar.service;
+
+import com.sanddollar.entity.BalanceSnapshot;
+import com.sanddollar.repository.BalanceSnapshotRepository;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Single write path for balance snapshots: saves the snapshot and, in the same
+ * transaction, points the account's account_latest_balance row at it and folds it
+ * into the account's balance_snapshot_daily row.
+ */
+@Component
+@Transactional
+public class AccountBalanceRecorder {
+
+    // Copies the snapshot row in one statement; the highest snapshot id wins, so two
+    // first writes for an account cannot collide and an older snapshot committing last
+    // does not replace a newer one
+    private static final String POSTGRES_LATEST_UPSERT_SQL =
+        "INSERT INTO account_latest_balance (account_id, user_id, snapshot_id, available_cents, current_cents, " +
+        "currency, as_of) " +
+        "SELECT bs.account_id, :userId, bs.id, bs.available_cents, bs.current_cents, bs.currency, bs.as_of " +
+        "FROM balance_snapshots bs WHERE bs.id = :snapshotId " +
+        "ON CONFLICT (account_id) DO UPDATE SET " +
+        "snapshot_id = EXCLUDED.snapshot_id, available_cents = EXCLUDED.available_cents, " +
+        "current_cents = EXCLUDED.current_cents, currency = EXCLUDED.currency, as_of = EXCLUDED.as_of " +
+        "WHERE account_latest_balance.snapshot_id < EXCLUDED.snapshot_id";
+
+    // H2 (mock profile) has no ON CONFLICT
+    private static final String LATEST_MERGE_SQL =
+        "MERGE INTO account_latest_balance l " +
+        "USING (SELECT bs.account_id, CAST(:userId AS BIGINT) AS user_id, bs.id AS snapshot_id, bs.available_cents, " +
+        "bs.current_cents, bs.currency, bs.as_of FROM balance_snapshots bs WHERE bs.id = :snapshotId) v " +
+        "ON l.account_id = v.account_id " +
+        "WHEN MATCHED AND l.snapshot_id < v.snapshot_id THEN UPDATE SET " +
+        "snapshot_id = v.snapshot_id, available_cents = v.available_cents, current_cents = v.current_cents, " +
+        "currency = v.currency, as_of = v.as_of " +
+        "WHEN NOT MATCHED THEN INSERT (account_id, user_id, snapshot_id, available_cents, current_cents, currency, as_of) " +
+        "VALUES (v.account_id, v.user_id, v.snapshot_id, v.available_cents, v.current_cents, v.currency, v.as_of)";
+
+    // The newest snapshot (highest id) of the day supplies the "last" columns, so
+    // folding the same snapshot in twice is harmless
+    private static final String POSTGRES_DAILY_UPSERT_SQL =
+        "INSERT INTO balance_snapshot_daily (account_id, user_id, \"day\", last_snapshot_id, last_current_cents, " +
+        "last_available_cents, min_current_cents, max_current_cents, currency) " +
+        "VALUES (:accountId, :userId, :day, :snapshotId, :currentCents, :availableCents, :currentCents, " +
+        ":currentCents, :currency) " +
+        "ON CONFLICT (account_id, \"day\") DO UPDATE SET " +
+        "last_current_cents = CASE WHEN EXCLUDED.last_snapshot_id >= balance_snapshot_daily.last_snapshot_id " +
+        "THEN EXCLUDED.last_current_cents ELSE balance_snapshot_daily.last_current_cents END, " +
+        "last_available_cents = CASE WHEN EXCLUDED.last_snapshot_id >= balance_snapshot_daily.last_snapshot_id " +
+        "THEN EXCLUDED.last_available_cents ELSE balance_snapshot_daily.last_available_cents END, " +
+        "currency = CASE WHEN EXCLUDED.last_snapshot_id >= balance_snapshot_daily.last_snapshot_id " +
+        "THEN EXCLUDED.currency ELSE balance_snapshot_daily.currency END, " +
+        "last_snapshot_id = GREATEST(balance_snapshot_daily.last_snapshot_id, EXCLUDED.last_snapshot_id), " +
+        "min_current_cents = LEAST(balance_snapshot_daily.min_current_cents, EXCLUDED.min_current_cents), " +
+        "max_current_cents = GREATEST(balance_snapshot_daily.max_current_cents, EXCLUDED.max_current_cents)";
+
+    // H2 (mock profile) has no ON CONFLICT
+    private static final String DAILY_MERGE_SQL =
+        "MERGE INTO balance_snapshot_daily d " +
+        "USING (VALUES (CAST(:accountId AS BIGINT), CAST(:userId AS BIGINT), CAST(:day AS DATE), " +
+        "CAST(:snapshotId AS BIGINT), CAST(:currentCents AS BIGINT), CAST(:availableCents AS BIGINT), " +
+        "CAST(:currency AS VARCHAR(3)))) " +
+        "AS v(account_id, user_id, \"day\", snapshot_id, current_cents, available_cents, currency) " +
+        "ON d.account_id = v.account_id AND d.\"day\" = v.\"day\" " +
+        "WHEN MATCHED THEN UPDATE SET " +
+        "last_current_cents = CASE WHEN v.snapshot_id >= d.last_snapshot_id THEN v.current_cents ELSE d.last_current_cents END, " +
+        "last_available_cents = CASE WHEN v.snapshot_id >= d.last_snapshot_id THEN v.available_cents ELSE d.last_available_cents END, " +
+        "currency = CASE WHEN v.snapshot_id >= d.last_snapshot_id THEN v.currency ELSE d.currency END, " +
+        "last_snapshot_id = GREATEST(d.last_snapshot_id, v.snapshot_id), " +
+        "min_current_cents = LEAST(d.min_current_cents, v.current_cents), " +
+        "max_current_cents = GREATEST(d.max_current_cents, v.current_cents) " +
+        "WHEN NOT MATCHED THEN INSERT (account_id, user_id, \"day\", last_snapshot_id, last_current_cents, " +
+        "last_available_cents, min_current_cents, max_current_cents, currency) " +
+        "VALUES (v.account_id, v.user_id, v.\"day\", v.snapshot_id, v.current_cents, v.available_cents, " +
+        "v.current_cents, v.current_cents, v.currency)";
+
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public AccountBalanceRecorder(BalanceSnapshotRepository balanceSnapshotRepository,
+                                  NamedParameterJdbcTemplate jdbcTemplate) {
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public BalanceSnapshot record(BalanceSnapshot snapshot) {
+        // Identity ids are assigned on insert, so the row is there for the upsert to copy
+        BalanceSnapshot saved = balanceSnapshotRepository.save(snapshot);
+
+        // Newest snapshot wins, matching the MAX(id) semantics this table replaces
+        jdbcTemplate.update(isPostgres() ? POSTGRES_LATEST_UPSERT_SQL : LATEST_MERGE_SQL, new MapSqlParameterSource()
+            .addValue("userId", saved.getAccount().getUser().getId())
+            .addValue("snapshotId", saved.getId()));
+
+        rollUpDaily(List.of(saved));
+        return saved;
+    }
+
+    /**
+     * Folds saved snapshots into their accounts' daily rows. Idempotent per snapshot.
+     */
+    public void rollUpDaily(Collection<BalanceSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] params = snapshots.stream()
+            .map(snapshot -> new MapSqlParameterSource()
+                .addValue("accountId", snapshot.getAccount().getId())
+                .addValue("userId", snapshot.getAccount().getUser().getId())
+                .addValue("day", dayOf(snapshot))
+                .addValue("snapshotId", snapshot.getId())
+                .addValue("currentCents", snapshot.getCurrentCents())
+                .addValue("availableCents", snapshot.getAvailableCents())
+                .addValue("currency", snapshot.getCurrency()))
+            .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(isPostgres() ? POSTGRES_DAILY_UPSERT_SQL : DAILY_MERGE_SQL, params);
+    }
+
+    static LocalDate dayOf(BalanceSnapshot snapshot) {
+        return LocalDate.ofInstant(snapshot.getAsOf(), ZoneOffset.UTC);
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String product = jdbcTemplate.getJdbcTemplate().execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            result = product != null && product.toLowerCase().contains("postgres");
+            postgres = result;
+        }
+        return result;
+    }
+}
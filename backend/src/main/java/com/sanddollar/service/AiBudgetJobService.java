@@ -0,0 +1,335 @@
+package com.sanddollar.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sanddollar.dto.aibudget.AiBudgetJobResponse;
+import com.sanddollar.dto.aibudget.GenerateBudgetRequest;
+import com.sanddollar.dto.aibudget.GenerateBudgetResponse;
+import com.sanddollar.entity.AiBudgetJob;
+import com.sanddollar.repository.AiBudgetJobRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Runs AI budget generations in the background so the request thread is released
+ * immediately.
+ *
+ * Jobs live in a bounded in-memory store while they run and for a while after, and
+ * report each {@link AiBudgetService.GenerationStage} to subscribers as it starts.
+ * With {@code feature.ai-budget.jobs.persistent} every transition is also written to
+ * ai_budget_jobs, so results can be fetched from any instance and after a restart;
+ * a stored job that stopped making progress (its instance went away) is reported as
+ * failed. A queued job may legitimately wait up to the queue timeout before it starts,
+ * so that wait is allowed on top of the staleness threshold.
+ */
+@Component
+public class AiBudgetJobService {
+    private static final Logger logger = LoggerFactory.getLogger(AiBudgetJobService.class);
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    private final AiBudgetService aiBudgetService;
+    private final AiBudgetJobRepository repository;
+    private final ObjectMapper objectMapper;
+    private final OpenAiBulkhead executor;
+    private final Cache<String, Job> jobs;
+    private final boolean persistent;
+    private final Duration queueTimeout;
+    private final Duration staleAfter;
+    private final Duration retention;
+
+    public AiBudgetJobService(
+            AiBudgetService aiBudgetService,
+            AiBudgetJobRepository repository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${feature.ai-budget.jobs.max-concurrent:16}") int maxConcurrent,
+            @Value("${feature.ai-budget.jobs.max-queued:64}") int maxQueued,
+            @Value("${feature.ai-budget.jobs.queue-timeout-ms:300000}") long queueTimeoutMs,
+            @Value("${feature.ai-budget.jobs.max-tracked:1000}") long maxTracked,
+            @Value("${feature.ai-budget.jobs.ttl-minutes:30}") long ttlMinutes,
+            @Value("${feature.ai-budget.jobs.persistent:false}") boolean persistent,
+            @Value("${feature.ai-budget.jobs.stale-after-seconds:120}") long staleAfterSeconds,
+            @Value("${feature.ai-budget.jobs.retention-hours:24}") long retentionHours) {
+        this.aiBudgetService = aiBudgetService;
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        // Jobs may wait for a slot as long as the queue allows; the caller is not blocked
+        this.queueTimeout = Duration.ofMillis(Math.max(1, queueTimeoutMs));
+        this.executor = new OpenAiBulkhead("ai-budget-job", maxConcurrent, maxQueued, queueTimeout, meterRegistry);
+        this.jobs = Caffeine.newBuilder()
+            .maximumSize(Math.max(1, maxTracked))
+            .expireAfterWrite(Duration.ofMinutes(Math.max(1, ttlMinutes)))
+            .build();
+        this.persistent = persistent;
+        this.staleAfter = Duration.ofSeconds(Math.max(1, staleAfterSeconds));
+        this.retention = Duration.ofHours(Math.max(1, retentionHours));
+
+        Gauge.builder("ai_budget.jobs.tracked", jobs, Cache::estimatedSize)
+            .description("AI budget jobs held in memory")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queues a generation for the current user.
+     *
+     * @throws ResponseStatusException 503 if too many jobs are already waiting
+     */
+    public AiBudgetJobResponse submit(Long userId, GenerateBudgetRequest request) {
+        Job job = new Job(UUID.randomUUID().toString(), userId, request);
+        jobs.put(job.id, job);
+        persist(job);
+
+        // The worker acts as the submitting user
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        try {
+            executor.submit(() -> {
+                run(job, securityContext);
+                return null;
+            }, rejected -> expireQueued(job));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.id);
+            job.finish(null, "Too many budget requests in progress");
+            persist(job);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Too many budget requests in progress. Please try again shortly.");
+        }
+        logger.info("ai_budget.job.submitted job={} user={}", job.id, userId);
+        return job.snapshot();
+    }
+
+    private void run(Job job, SecurityContext securityContext) {
+        SecurityContextHolder.setContext(securityContext);
+        try {
+            job.start();
+            persist(job);
+            GenerateBudgetResponse result = aiBudgetService.generateBudget(job.request, stage -> {
+                job.stage(stage);
+                persist(job);
+            });
+            job.finish(result, null);
+            logger.info("ai_budget.job.succeeded job={} user={}", job.id, job.userId);
+        } catch (RuntimeException e) {
+            String message = e instanceof ResponseStatusException status && status.getReason() != null
+                ? status.getReason()
+                : "Budget generation failed";
+            job.finish(null, message);
+            logger.warn("ai_budget.job.failed job={} user={} message={}", job.id, job.userId, e.getMessage());
+        } finally {
+            persist(job);
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void expireQueued(Job job) {
+        // Never started, so run() will not finish it
+        job.finish(null, "Too many budget requests in progress. Please try again shortly.");
+        persist(job);
+        logger.warn("ai_budget.job.failed job={} user={} reason=queue_timeout", job.id, job.userId);
+    }
+
+    /**
+     * Current state of a job, if it exists and belongs to the user.
+     */
+    public Optional<AiBudgetJobResponse> get(String jobId, Long userId) {
+        Job job = jobs.getIfPresent(jobId);
+        if (job != null) {
+            return job.userId.equals(userId) ? Optional.of(job.snapshot()) : Optional.empty();
+        }
+        if (!persistent) {
+            return Optional.empty();
+        }
+        try {
+            return repository.findById(jobId)
+                .filter(stored -> stored.getUserId().equals(userId))
+                .map(this::fromStored);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to load AI budget job {}: {}", jobId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Sends the job's current state to {@code listener} and, while it runs on this
+     * instance, every later change.
+     *
+     * @return a handle to stop listening, or empty if the job is unknown here; jobs
+     *     only known from storage get the current state and no further updates
+     */
+    public Optional<Runnable> subscribe(String jobId, Long userId, Consumer<AiBudgetJobResponse> listener) {
+        Job job = jobs.getIfPresent(jobId);
+        if (job == null || !job.userId.equals(userId)) {
+            Optional<AiBudgetJobResponse> stored = get(jobId, userId);
+            stored.ifPresent(listener);
+            return stored.map(snapshot -> () -> { });
+        }
+        return Optional.of(job.subscribe(listener));
+    }
+
+    /**
+     * Whether the job is tracked by this instance, so subscribers will see its updates.
+     */
+    public boolean isLive(String jobId) {
+        return jobs.getIfPresent(jobId) != null;
+    }
+
+    public static boolean isFinished(AiBudgetJobResponse snapshot) {
+        return SUCCEEDED.equals(snapshot.getStatus()) || FAILED.equals(snapshot.getStatus());
+    }
+
+    @Scheduled(fixedDelayString = "${feature.ai-budget.jobs.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        if (!persistent) {
+            return;
+        }
+        int deleted = repository.deleteUpdatedBefore(Instant.now().minus(retention));
+        if (deleted > 0) {
+            logger.debug("Purged {} old AI budget jobs", deleted);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private void persist(Job job) {
+        if (!persistent) {
+            return;
+        }
+        try {
+            repository.save(job.toEntity(objectMapper));
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.warn("Failed to store AI budget job {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    private AiBudgetJobResponse fromStored(AiBudgetJob stored) {
+        String status = stored.getStatus();
+        String error = stored.getError();
+        boolean finished = SUCCEEDED.equals(status) || FAILED.equals(status);
+        Duration allowed = QUEUED.equals(status) ? queueTimeout.plus(staleAfter) : staleAfter;
+        if (!finished && stored.getUpdatedAt().isBefore(Instant.now().minus(allowed))) {
+            // Not running here and no progress for a while: its instance went away
+            status = FAILED;
+            error = "Budget generation was interrupted. Please try again.";
+        }
+        GenerateBudgetResponse result = null;
+        if (stored.getResultJson() != null) {
+            try {
+                result = objectMapper.readValue(stored.getResultJson(), GenerateBudgetResponse.class);
+            } catch (JsonProcessingException e) {
+                logger.warn("Unreadable result for AI budget job {}: {}", stored.getId(), e.getMessage());
+            }
+        }
+        return new AiBudgetJobResponse(stored.getId(), status, stored.getStage(), result, error,
+            stored.getCreatedAt(), stored.getUpdatedAt());
+    }
+
+    private static final class Job {
+        private final String id;
+        private final Long userId;
+        private final GenerateBudgetRequest request;
+        private final Instant createdAt = Instant.now();
+        private final List<Consumer<AiBudgetJobResponse>> listeners = new CopyOnWriteArrayList<>();
+        private String status = QUEUED;
+        private String stage;
+        private GenerateBudgetResponse result;
+        private String error;
+        private Instant updatedAt = createdAt;
+
+        Job(String id, Long userId, GenerateBudgetRequest request) {
+            this.id = id;
+            this.userId = userId;
+            this.request = request;
+        }
+
+        void start() {
+            update(() -> status = RUNNING);
+        }
+
+        void stage(AiBudgetService.GenerationStage next) {
+            update(() -> stage = next.name());
+        }
+
+        void finish(GenerateBudgetResponse result, String error) {
+            update(() -> {
+                this.status = error == null ? SUCCEEDED : FAILED;
+                this.result = result;
+                this.error = error;
+            });
+        }
+
+        private void update(Runnable change) {
+            AiBudgetJobResponse snapshot;
+            synchronized (this) {
+                change.run();
+                updatedAt = Instant.now();
+                snapshot = snapshot();
+            }
+            for (Consumer<AiBudgetJobResponse> listener : listeners) {
+                notify(listener, snapshot);
+            }
+        }
+
+        Runnable subscribe(Consumer<AiBudgetJobResponse> listener) {
+            listeners.add(listener);
+            // Sent after registering so a transition in between is not missed; a listener
+            // may see the same state twice
+            notify(listener, snapshot());
+            return () -> listeners.remove(listener);
+        }
+
+        private void notify(Consumer<AiBudgetJobResponse> listener, AiBudgetJobResponse snapshot) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException e) {
+                listeners.remove(listener);
+            }
+        }
+
+        synchronized AiBudgetJobResponse snapshot() {
+            return new AiBudgetJobResponse(id, status, stage, result, error, createdAt, updatedAt);
+        }
+
+        synchronized AiBudgetJob toEntity(ObjectMapper objectMapper) throws JsonProcessingException {
+            AiBudgetJob entity = new AiBudgetJob();
+            entity.setId(id);
+            entity.setUserId(userId);
+            entity.setStatus(status);
+            entity.setStage(stage);
+            entity.setRequestJson(objectMapper.writeValueAsString(request));
+            entity.setResultJson(result != null ? objectMapper.writeValueAsString(result) : null);
+            entity.setError(error);
+            entity.setCreatedAt(createdAt);
+            entity.setUpdatedAt(updatedAt);
+            return entity;
+        }
+    }
+}
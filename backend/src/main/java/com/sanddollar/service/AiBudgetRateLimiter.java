@@ -1,54 +1,236 @@
 package com.sanddollar.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
+/**
+ * Per-user token buckets for the endpoints that call OpenAI.
+ *
+ * Each bucket holds up to the endpoint's per-window limit N and refills continuously
+ * at N per window. Sustained use is held to N per window, but a user who starts with
+ * a full bucket can make N calls at once and then about N more as it refills, so up
+ * to 2N in the first window; after that the bucket has to refill first.
+ *
+ * A bucket is one {@link AtomicLong} packing the token balance (in thousandths of a
+ * token) and the time it was last refilled, so consuming is a single CAS with no
+ * locks. Buckets idle long enough to be full again carry no information and are
+ * swept away, which keeps memory proportional to recently active users.
+ *
+ * With {@code feature.ai-rate-limits.distributed.enabled} the limits are shared by
+ * all replicas through {@link PostgresRateLimitStore}; the local buckets then only
+ * decide while the database is unavailable.
+ */
 @Component
 public class AiBudgetRateLimiter {
 
-    private final int maxRequests;
-    private final Duration window;
-    private final Map<Long, Deque<Instant>> requests = new ConcurrentHashMap<>();
+    public enum Endpoint {
+        BUDGET_GENERATE,
+        CHAT,
+        BUDGET_PLAN,
+        BUDGET_ADJUST
+    }
+
+    // Layout: [ 24 bits token balance in milli-tokens | 40 bits millis since epochMillis ]
+    // The time field wraps after about 34 years; elapsed time is computed modulo 2^40
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MILLI_TOKENS_PER_TOKEN = 1000;
+    private static final int MAX_CAPACITY = (int) (((1L << (Long.SIZE - 1 - TIME_BITS)) - 1) / MILLI_TOKENS_PER_TOKEN);
+    // Marks a bucket that has been swept; callers holding it look the key up again
+    private static final long EVICTED = -1L;
+
+    private final Map<Endpoint, Limit> limits = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, ConcurrentHashMap<Long, AtomicLong>> buckets = new EnumMap<>(Endpoint.class);
+    private final LongSupplier clock;
+    private final long epochMillis;
+    private PostgresRateLimitStore sharedStore;
 
     public AiBudgetRateLimiter() {
         this(5, Duration.ofMinutes(1));
     }
 
-    public AiBudgetRateLimiter(@Value("${feature.ai-budget.rate-limit-per-minute:5}") int maxRequestsPerMinute) {
+    public AiBudgetRateLimiter(int maxRequestsPerMinute) {
         this(maxRequestsPerMinute, Duration.ofMinutes(1));
     }
 
     public AiBudgetRateLimiter(int maxRequestsPerMinute, Duration window) {
-        this.maxRequests = Math.max(1, maxRequestsPerMinute);
-        this.window = window;
+        this(maxRequestsPerMinute, window, System::currentTimeMillis);
+    }
+
+    AiBudgetRateLimiter(int maxRequestsPerMinute, Duration window, LongSupplier clock) {
+        this.clock = clock;
+        this.epochMillis = clock.getAsLong();
+        for (Endpoint endpoint : Endpoint.values()) {
+            configure(endpoint, maxRequestsPerMinute, window);
+        }
+    }
+
+    @Autowired
+    public AiBudgetRateLimiter(
+            @Value("${feature.ai-budget.rate-limit-per-minute:5}") int budgetGeneratePerMinute,
+            @Value("${feature.ai-rate-limits.chat-per-minute:20}") int chatPerMinute,
+            @Value("${feature.ai-rate-limits.budget-plan-per-minute:5}") int budgetPlanPerMinute,
+            @Value("${feature.ai-rate-limits.budget-adjust-per-minute:10}") int budgetAdjustPerMinute) {
+        this.clock = System::currentTimeMillis;
+        this.epochMillis = clock.getAsLong();
+        Duration minute = Duration.ofMinutes(1);
+        configure(Endpoint.BUDGET_GENERATE, budgetGeneratePerMinute, minute);
+        configure(Endpoint.CHAT, chatPerMinute, minute);
+        configure(Endpoint.BUDGET_PLAN, budgetPlanPerMinute, minute);
+        configure(Endpoint.BUDGET_ADJUST, budgetAdjustPerMinute, minute);
+    }
+
+    @Autowired(required = false)
+    void setSharedStore(PostgresRateLimitStore sharedStore) {
+        this.sharedStore = sharedStore != null && sharedStore.isEnabled() ? sharedStore : null;
+    }
+
+    private void configure(Endpoint endpoint, int maxRequests, Duration window) {
+        int capacity = Math.max(1, Math.min(maxRequests, MAX_CAPACITY));
+        limits.put(endpoint, new Limit(capacity, Math.max(1, window.toMillis())));
+        buckets.put(endpoint, new ConcurrentHashMap<>());
     }
 
     public boolean tryConsume(long userId) {
-        Instant now = Instant.now();
-        Deque<Instant> deque = requests.computeIfAbsent(userId, key -> new ArrayDeque<>());
+        return tryConsume(Endpoint.BUDGET_GENERATE, userId);
+    }
 
-        // drop expired entries
-        Instant expiration = now.minus(window);
-        while (!deque.isEmpty() && deque.peekFirst().isBefore(expiration)) {
-            deque.pollFirst();
+    public boolean tryConsume(Endpoint endpoint, long userId) {
+        Limit limit = limits.get(endpoint);
+        if (sharedStore != null) {
+            Boolean shared = sharedStore.tryConsume(endpoint.name(), userId, limit.capacity(), limit.windowMillis());
+            if (shared != null) {
+                return shared;
+            }
         }
+        return tryConsumeLocal(endpoint, limit, userId);
+    }
 
-        if (deque.size() >= maxRequests) {
-            return false;
+    private boolean tryConsumeLocal(Endpoint endpoint, Limit limit, long userId) {
+        ConcurrentHashMap<Long, AtomicLong> endpointBuckets = buckets.get(endpoint);
+        while (true) {
+            AtomicLong bucket = endpointBuckets.computeIfAbsent(userId, key -> new AtomicLong(limit.full(now())));
+            long state = bucket.get();
+            if (state == EVICTED) {
+                endpointBuckets.remove(userId, bucket);
+                continue;
+            }
+            long now = now();
+            long refilled = limit.refill(state, now);
+            long tokens = refilled >>> TIME_BITS;
+            if (tokens < MILLI_TOKENS_PER_TOKEN) {
+                // Denials do not write, so a rejected user adds no contention
+                return false;
+            }
+            if (bucket.compareAndSet(state, pack(tokens - MILLI_TOKENS_PER_TOKEN, refilled & TIME_MASK))) {
+                return true;
+            }
         }
+    }
 
-        deque.addLast(now);
-        return true;
+    /**
+     * Consumes one request for the caller or fails with 429 Too Many Requests.
+     */
+    public void consumeOrThrow(Endpoint endpoint, long userId) {
+        if (!tryConsume(endpoint, userId)) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                "Too many requests. Please try again in about a minute.");
+        }
     }
 
     public void clear(long userId) {
-        requests.remove(userId);
+        for (ConcurrentHashMap<Long, AtomicLong> endpointBuckets : buckets.values()) {
+            AtomicLong bucket = endpointBuckets.remove(userId);
+            if (bucket != null) {
+                bucket.set(EVICTED);
+            }
+        }
+        if (sharedStore != null) {
+            sharedStore.clear(userId);
+        }
+    }
+
+    /**
+     * Rate-limit key for callers without an authenticated user (the AI endpoints are
+     * open while in testing). Negative, so it never collides with a user id.
+     */
+    public static long anonymousKey(String remoteAddress) {
+        return -1L - ((remoteAddress != null ? remoteAddress.hashCode() : 0) & 0x7fffffffL);
+    }
+
+    /**
+     * Drops buckets that have refilled completely since they were last used.
+     */
+    @Scheduled(fixedDelayString = "${feature.ai-rate-limits.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long now = now();
+        for (Map.Entry<Endpoint, ConcurrentHashMap<Long, AtomicLong>> entry : buckets.entrySet()) {
+            Limit limit = limits.get(entry.getKey());
+            entry.getValue().forEach((userId, bucket) -> {
+                long state = bucket.get();
+                if (state != EVICTED && limit.isFull(limit.refill(state, now))
+                        && bucket.compareAndSet(state, EVICTED)) {
+                    entry.getValue().remove(userId, bucket);
+                }
+            });
+        }
+    }
+
+    int trackedKeys() {
+        return buckets.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private long now() {
+        return (clock.getAsLong() - epochMillis) & TIME_MASK;
+    }
+
+    private static long pack(long milliTokens, long timeMillis) {
+        return (milliTokens << TIME_BITS) | (timeMillis & TIME_MASK);
+    }
+
+    private record Limit(int capacity, long windowMillis) {
+        long full(long now) {
+            return pack(capacity * MILLI_TOKENS_PER_TOKEN, now);
+        }
+
+        boolean isFull(long state) {
+            return (state >>> TIME_BITS) >= capacity * MILLI_TOKENS_PER_TOKEN;
+        }
+
+        /**
+         * State with tokens credited for the time elapsed since the last refill. The
+         * refill time only advances by the time actually converted into tokens, so
+         * frequent calls do not lose fractional refills.
+         */
+        long refill(long state, long now) {
+            long maxTokens = capacity * MILLI_TOKENS_PER_TOKEN;
+            long tokens = state >>> TIME_BITS;
+            long last = state & TIME_MASK;
+            // Sign-extend the 40-bit difference so it survives the time field wrapping
+            // and a wall clock stepping back reads as negative rather than as decades
+            long elapsed = ((now - last) << (Long.SIZE - TIME_BITS)) >> (Long.SIZE - TIME_BITS);
+            if (tokens >= maxTokens || elapsed >= windowMillis) {
+                return pack(maxTokens, now);
+            }
+            if (elapsed <= 0) {
+                return state;
+            }
+            long credit = elapsed * maxTokens / windowMillis;
+            if (tokens + credit >= maxTokens) {
+                return pack(maxTokens, now);
+            }
+            return pack(tokens + credit, last + credit * windowMillis / maxTokens);
+        }
     }
 }
@@ -0,0 +1,220 @@
+package com.sanddollar.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sanddollar.dto.aibudget.GenerateBudgetResponse;
+import com.sanddollar.entity.AiBudgetCacheEntry;
+import com.sanddollar.repository.AiBudgetCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Cache of successful AI budget generations, keyed by user and a hash of the exact
+ * prompts and model that produced them.
+ *
+ * The user prompt embeds the user's recent spending, so a changed history naturally
+ * produces a different key; entries are still dropped when a sync changes a user's
+ * spending ({@link SpendingChangedEvent}) so stale plans do not linger. The
+ * in-memory tier is per instance; with {@code feature.ai-budget.cache.persistent}
+ * entries are also kept in ai_budget_cache and survive restarts.
+ */
+@Component
+public class AiBudgetResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(AiBudgetResponseCache.class);
+
+    private final AiBudgetCacheRepository repository;
+    private final ObjectMapper objectMapper;
+    private final String model;
+    private final boolean enabled;
+    private final boolean persistent;
+    private final Duration ttl;
+    private final Cache<Key, GenerateBudgetResponse> cache;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public AiBudgetResponseCache(
+            AiBudgetCacheRepository repository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${openai.model:gpt-4o-mini}") String model,
+            @Value("${feature.ai-budget.cache.enabled:true}") boolean enabled,
+            @Value("${feature.ai-budget.cache.persistent:false}") boolean persistent,
+            @Value("${feature.ai-budget.cache.max-size:10000}") long maxSize,
+            @Value("${feature.ai-budget.cache.ttl-minutes:360}") long ttlMinutes) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.model = model;
+        this.enabled = enabled;
+        this.persistent = persistent;
+        this.ttl = Duration.ofMinutes(Math.max(1, ttlMinutes));
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(Math.max(1, maxSize))
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "aiBudgetResponses");
+        this.memoryHits = lookups(meterRegistry, "memory");
+        this.databaseHits = lookups(meterRegistry, "database");
+        this.misses = lookups(meterRegistry, "miss");
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai_budget.cache.lookups")
+            .description("AI budget cache lookups by the tier that answered")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Canonical hash of everything that determines the model's answer.
+     */
+    public String fingerprint(String systemPrompt, String userPrompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, model);
+            update(digest, canonical(systemPrompt));
+            update(digest, canonical(userPrompt));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String part) {
+        byte[] bytes = (part != null ? part : "").getBytes(StandardCharsets.UTF_8);
+        // Length prefix so ("ab", "c") and ("a", "bc") hash differently
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    private static String canonical(String prompt) {
+        return prompt == null ? "" : prompt.replace("\r\n", "\n").strip();
+    }
+
+    public Optional<GenerateBudgetResponse> get(Long userId, String fingerprint) {
+        if (!enabled || userId == null || fingerprint == null) {
+            return Optional.empty();
+        }
+        Key key = new Key(userId, fingerprint);
+        GenerateBudgetResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            memoryHits.increment();
+            return Optional.of(cached);
+        }
+        if (persistent) {
+            Optional<GenerateBudgetResponse> stored = load(key);
+            if (stored.isPresent()) {
+                cache.put(key, stored.get());
+                databaseHits.increment();
+                return stored;
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(Long userId, String fingerprint, GenerateBudgetResponse response) {
+        if (!enabled || userId == null || fingerprint == null || response == null) {
+            return;
+        }
+        Key key = new Key(userId, fingerprint);
+        cache.put(key, response);
+        if (persistent) {
+            store(key, response);
+        }
+    }
+
+    /**
+     * Drops a user's cached plans once the transaction that changed their spending
+     * has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onSpendingChanged(SpendingChangedEvent event) {
+        for (Long userId : event.userIds()) {
+            evictUser(userId);
+        }
+    }
+
+    public void evictUser(Long userId) {
+        cache.asMap().keySet().removeIf(key -> key.userId().equals(userId));
+        if (persistent) {
+            try {
+                repository.deleteByUserId(userId);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to evict stored AI budgets for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${feature.ai-budget.cache.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        if (!persistent) {
+            return;
+        }
+        int deleted = repository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.debug("Purged {} expired AI budget cache rows", deleted);
+        }
+    }
+
+    private Optional<GenerateBudgetResponse> load(Key key) {
+        try {
+            return repository.findByUserIdAndFingerprint(key.userId(), key.fingerprint())
+                .filter(entry -> entry.getExpiresAt().isAfter(Instant.now()))
+                .map(entry -> read(entry.getResponseJson()));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to read stored AI budget for user {}: {}", key.userId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void store(Key key, GenerateBudgetResponse response) {
+        try {
+            AiBudgetCacheEntry entry = repository.findByUserIdAndFingerprint(key.userId(), key.fingerprint())
+                .orElseGet(() -> new AiBudgetCacheEntry(key.userId(), key.fingerprint()));
+            Instant now = Instant.now();
+            entry.setResponseJson(objectMapper.writeValueAsString(response));
+            entry.setCreatedAt(now);
+            entry.setExpiresAt(now.plus(ttl));
+            repository.save(entry);
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Another instance may have stored the same plan concurrently; the memory tier still has it
+            logger.warn("Failed to store AI budget for user {}: {}", key.userId(), e.getMessage());
+        }
+    }
+
+    private GenerateBudgetResponse read(String json) {
+        try {
+            return objectMapper.readValue(json, GenerateBudgetResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable cached AI budget", e);
+        }
+    }
+
+    private record Key(Long userId, String fingerprint) { }
+}
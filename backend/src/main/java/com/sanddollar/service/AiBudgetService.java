@@ -6,7 +6,20 @@ import com.sanddollar.dto.aibudget.GenerateBudgetResponse;
 import com.sanddollar.dto.aibudget.AcceptBudgetRequest;
 import com.sanddollar.dto.aibudget.AcceptBudgetResponse;
 
+import java.util.function.Consumer;
+
 public interface AiBudgetService {
+
+    /**
+     * Steps of a budget generation, reported to asynchronous jobs as they start
+     */
+    enum GenerationStage {
+        GATHERING_HISTORY,
+        /** Joined an identical generation already in flight, and waiting for its plan */
+        WAITING,
+        PROMPTING,
+        VALIDATING
+    }
     
     /**
      * Get financial snapshot for the current month for authenticated user
@@ -17,6 +30,13 @@ public interface AiBudgetService {
      * Generate AI-powered budget recommendations based on user goals and preferences
      */
     GenerateBudgetResponse generateBudget(GenerateBudgetRequest request);
+
+    /**
+     * Same as {@link #generateBudget(GenerateBudgetRequest)}, reporting each stage as it starts
+     */
+    default GenerateBudgetResponse generateBudget(GenerateBudgetRequest request, Consumer<GenerationStage> progress) {
+        return generateBudget(request);
+    }
     
     /**
      * Accept and persist the AI-generated budget targets
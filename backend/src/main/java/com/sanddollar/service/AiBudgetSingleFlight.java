@@ -0,0 +1,96 @@
+package com.sanddollar.service;
+
+import com.sanddollar.dto.aibudget.GenerateBudgetResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical AI budget generations.
+ *
+ * The first caller for a user and prompt fingerprint runs the generation; callers
+ * arriving while it is in flight (a double submit, a second tab) wait for and share
+ * its result instead of issuing their own OpenAI call or spending another rate-limit
+ * token. Nothing is kept once the call finishes; repeats after that are served by
+ * {@link AiBudgetResponseCache}.
+ */
+@Component
+public class AiBudgetSingleFlight {
+
+    private final ConcurrentHashMap<Key, CompletableFuture<GenerateBudgetResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public AiBudgetSingleFlight(MeterRegistry meterRegistry) {
+        this.executed = calls(meterRegistry, "executed");
+        this.coalesced = calls(meterRegistry, "coalesced");
+        Gauge.builder("ai_budget.generate.in_flight", inFlight, ConcurrentHashMap::size)
+            .description("AI budget generations currently running")
+            .register(meterRegistry);
+    }
+
+    private static Counter calls(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai_budget.generate.single_flight")
+            .description("AI budget generation requests, by whether they ran or joined one in flight")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code generation} unless an identical one is already running, in which
+     * case waits for that one. Failures are shared the same way as results.
+     */
+    public GenerateBudgetResponse execute(Long userId, String fingerprint, Supplier<GenerateBudgetResponse> generation) {
+        return execute(userId, fingerprint, generation, () -> { });
+    }
+
+    /**
+     * Same as {@link #execute(Long, String, Supplier)}, calling {@code onJoin} before
+     * waiting when an identical generation is already running.
+     */
+    public GenerateBudgetResponse execute(Long userId, String fingerprint, Supplier<GenerateBudgetResponse> generation,
+                                          Runnable onJoin) {
+        Key key = new Key(userId, fingerprint);
+        CompletableFuture<GenerateBudgetResponse> mine = new CompletableFuture<>();
+        CompletableFuture<GenerateBudgetResponse> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            onJoin.run();
+            return await(running);
+        }
+
+        executed.increment();
+        try {
+            GenerateBudgetResponse response = generation.get();
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static GenerateBudgetResponse await(CompletableFuture<GenerateBudgetResponse> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record Key(Long userId, String fingerprint) { }
+}
@@ -0,0 +1,116 @@
+package com.sanddollar.service;
+
+import com.sanddollar.entity.BalanceSnapshot;
+import com.sanddollar.repository.BalanceSnapshotRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Prunes raw balance snapshots once they are older than the retention window.
+ *
+ * Snapshots are folded into balance_snapshot_daily when written, but each batch is
+ * folded in again before it is deleted so rows written outside
+ * {@link AccountBalanceRecorder} are never lost. Folding is idempotent, so
+ * overlapping runs on several instances are safe.
+ */
+@Component
+public class BalanceSnapshotCompactor {
+    private static final Logger logger = LoggerFactory.getLogger(BalanceSnapshotCompactor.class);
+
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountBalanceRecorder balanceRecorder;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int rawRetentionDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Counter compactedCounter;
+    private final Timer runTimer;
+
+    public BalanceSnapshotCompactor(
+            BalanceSnapshotRepository balanceSnapshotRepository,
+            AccountBalanceRecorder balanceRecorder,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${balances.compaction.enabled:true}") boolean enabled,
+            @Value("${balances.compaction.raw-retention-days:7}") int rawRetentionDays,
+            @Value("${balances.compaction.batch-size:1000}") int batchSize,
+            @Value("${balances.compaction.max-batches-per-run:100}") int maxBatchesPerRun) {
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.balanceRecorder = balanceRecorder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.rawRetentionDays = Math.max(1, rawRetentionDays);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.compactedCounter = Counter.builder("balance.snapshots.compacted")
+            .description("Raw balance snapshots folded into daily rows and deleted")
+            .register(meterRegistry);
+        this.runTimer = Timer.builder("balance.snapshots.compaction.duration").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${balances.compaction.interval-ms:3600000}",
+               initialDelayString = "${balances.compaction.initial-delay-ms:120000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int compacted = runTimer.recordCallable(() -> compactBefore(rawCutoff(Instant.now())));
+            if (compacted > 0) {
+                logger.info("Compacted {} balance snapshots older than {} days", compacted, rawRetentionDays);
+            }
+        } catch (Exception e) {
+            logger.error("Balance snapshot compaction failed", e);
+        }
+    }
+
+    /**
+     * Raw snapshots are kept for whole UTC days, so a day is never split between
+     * raw rows and the compacted past.
+     */
+    Instant rawCutoff(Instant now) {
+        return LocalDate.ofInstant(now, ZoneOffset.UTC)
+            .minusDays(rawRetentionDays)
+            .atStartOfDay(ZoneOffset.UTC)
+            .toInstant();
+    }
+
+    int compactBefore(Instant cutoff) {
+        int total = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            Integer compacted = transactionTemplate.execute(status -> compactBatch(cutoff));
+            int count = compacted != null ? compacted : 0;
+            total += count;
+            compactedCounter.increment(count);
+            if (count < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private int compactBatch(Instant cutoff) {
+        List<BalanceSnapshot> batch = balanceSnapshotRepository.findOlderThan(cutoff, PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        balanceRecorder.rollUpDaily(batch);
+        balanceSnapshotRepository.deleteAllByIdInBatch(batch.stream().map(BalanceSnapshot::getId).toList());
+        return batch.size();
+    }
+}
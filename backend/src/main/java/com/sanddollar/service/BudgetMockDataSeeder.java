@@ -13,6 +13,7 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Optional;
 
 @Component
@@ -25,6 +26,9 @@ public class BudgetMockDataSeeder implements CommandLineRunner {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private DailyCategorySpendRollup spendRollup;
+
     @Autowired
     private AccountRepository accountRepository;
 
@@ -92,7 +96,7 @@ public class BudgetMockDataSeeder implements CommandLineRunner {
                 transaction.setCategorySub(categories[i]);
                 transaction.setIsTransfer(false);
 
-                transactionRepository.save(transaction);
+                spendRollup.addAll(List.of(transactionRepository.save(transaction)));
                 logger.debug("Seeded transaction: {} for {}", transaction.getName(), transaction.getDate());
             }
         }
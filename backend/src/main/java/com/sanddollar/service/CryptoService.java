@@ -1,5 +1,10 @@
 package com.sanddollar.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,9 +14,30 @@ import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
 
+/**
+ * AES-GCM envelope encryption with a ring of key-encryption keys (KEKs).
+ *
+ * Every value gets its own random data key (DEK). The value is encrypted with the
+ * DEK, and the DEK is wrapped with the active KEK ({@code encryption.key} /
+ * {@code encryption.key-id}):
+ * {@code <keyId>:<base64 wrapped DEK>.<base64 ciphertext>}. Rotating the KEK only
+ * means rewrapping each DEK ({@link #rewrap}); the data itself is never decrypted.
+ * KEKs listed in {@code encryption.previous-keys} are only used to unwrap.
+ *
+ * Older formats are still read: {@code <keyId>:<base64>} encrypted directly with a
+ * ring key, and values with no prefix, which belong to {@value #UNVERSIONED_KEY_ID}.
+ * {@link #rewrap} moves both onto the envelope format.
+ */
 @Service
 public class CryptoService {
     private static final Logger logger = LoggerFactory.getLogger(CryptoService.class);
@@ -19,57 +45,283 @@ public class CryptoService {
     private static final String TRANSFORMATION = "AES/GCM/NoPadding";
     private static final int GCM_IV_LENGTH = 12;
     private static final int GCM_TAG_LENGTH = 16;
+    private static final int DEK_LENGTH = 32;
+    private static final char KEY_ID_SEPARATOR = ':';
+    // Not in the Base64 alphabet, so it tells envelope values from direct ones
+    private static final char ENVELOPE_SEPARATOR = '.';
+    // No underscore, so a key id can be used in a LIKE prefix without escaping
+    private static final Pattern KEY_ID_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,32}");
+    static final String UNVERSIONED_KEY_ID = "k0";
 
     @Value("${encryption.key}")
     private String encryptionKey;
 
-    public String encrypt(String plaintext) {
-        try {
-            byte[] key = Base64.getDecoder().decode(encryptionKey);
-            SecretKeySpec secretKey = new SecretKeySpec(key, ALGORITHM);
+    @Value("${encryption.key-id:" + UNVERSIONED_KEY_ID + "}")
+    private String activeKeyId;
+
+    // Comma-separated keyId:base64Key pairs accepted for decryption only
+    @Value("${encryption.previous-keys:}")
+    private String previousKeys;
+
+    @Value("${encryption.token-cache.ttl-seconds:300}")
+    private long tokenCacheTtlSeconds;
 
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            SecureRandom.getInstanceStrong().nextBytes(iv);
+    @Value("${encryption.token-cache.max-size:1000}")
+    private long tokenCacheMaxSize;
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec);
+    // Decoded once; the active key is missing when none is configured, in which case
+    // every encrypt fails
+    private final Map<String, SecretKeySpec> keyRing = new HashMap<>();
 
-            byte[] encryptedData = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+    // Seeded once from system entropy and never blocks afterwards, unlike
+    // SecureRandom.getInstanceStrong() which can wait on /dev/random
+    private final SecureRandom ivGenerator = createIvGenerator();
 
-            byte[] encryptedWithIv = new byte[iv.length + encryptedData.length];
-            System.arraycopy(iv, 0, encryptedWithIv, 0, iv.length);
-            System.arraycopy(encryptedData, 0, encryptedWithIv, iv.length, encryptedData.length);
+    private Cache<String, PlaintextHolder> decryptedTokens;
+
+    @PostConstruct
+    void init() {
+        if (previousKeys != null && !previousKeys.isBlank()) {
+            for (String entry : previousKeys.split(",")) {
+                int separator = entry.indexOf(KEY_ID_SEPARATOR);
+                if (separator <= 0) {
+                    throw new IllegalStateException("encryption.previous-keys entries must be keyId:base64Key");
+                }
+                addKey(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+            }
+        }
+        if (encryptionKey != null && !encryptionKey.isBlank()) {
+            addKey(activeKeyId, encryptionKey);
+        }
+        this.decryptedTokens = Caffeine.newBuilder()
+            .maximumSize(Math.max(1, tokenCacheMaxSize))
+            .expireAfterWrite(Duration.ofSeconds(Math.max(1, tokenCacheTtlSeconds)))
+            // Expire (and wipe) on time even when no sync touches the cache
+            .scheduler(Scheduler.systemScheduler())
+            .removalListener((String ciphertext, PlaintextHolder holder, RemovalCause cause) -> {
+                if (holder != null) {
+                    holder.wipe();
+                }
+            })
+            .build();
+    }
 
-            return Base64.getEncoder().encodeToString(encryptedWithIv);
+    public String encrypt(String plaintext) {
+        byte[] dek = new byte[DEK_LENGTH];
+        byte[] input = plaintext.getBytes(StandardCharsets.UTF_8);
+        try {
+            SecretKeySpec kek = requireKey(activeKeyId);
+            ivGenerator.nextBytes(dek);
+            byte[] ciphertext = seal(new SecretKeySpec(dek, ALGORITHM), input, null);
+            return envelope(activeKeyId, seal(kek, dek, wrapAad(activeKeyId)), ciphertext);
         } catch (Exception e) {
             logger.error("Error encrypting data", e);
             throw new RuntimeException("Failed to encrypt data", e);
+        } finally {
+            Arrays.fill(dek, (byte) 0);
+            Arrays.fill(input, (byte) 0);
         }
     }
 
     public String decrypt(String encryptedText) {
+        byte[] decryptedData = decryptBytes(encryptedText);
         try {
-            byte[] key = Base64.getDecoder().decode(encryptionKey);
-            SecretKeySpec secretKey = new SecretKeySpec(key, ALGORITHM);
+            return new String(decryptedData, StandardCharsets.UTF_8);
+        } finally {
+            Arrays.fill(decryptedData, (byte) 0);
+        }
+    }
 
-            byte[] encryptedWithIv = Base64.getDecoder().decode(encryptedText);
+    /**
+     * Like {@link #decrypt} but served from a short-lived cache of decrypted values,
+     * for secrets such as Plaid access tokens that are decrypted on every sync. Cached
+     * plaintext is held as bytes and zeroed when the entry is evicted or expires.
+     *
+     * Every call returns a new String, because the Plaid client takes the token as a
+     * String. Only the cached bytes are wiped; returned Strings stay on the heap until
+     * collected, so callers should not keep them beyond the request.
+     */
+    public String decryptCached(String encryptedText) {
+        PlaintextHolder holder = decryptedTokens.get(encryptedText, key -> new PlaintextHolder(decryptBytes(key)));
+        String plaintext = holder.read();
+        // The entry was wiped between lookup and read
+        return plaintext != null ? plaintext : decrypt(encryptedText);
+    }
 
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            System.arraycopy(encryptedWithIv, 0, iv, 0, iv.length);
+    public void evictCached(String encryptedText) {
+        decryptedTokens.invalidate(encryptedText);
+    }
 
-            byte[] encryptedData = new byte[encryptedWithIv.length - GCM_IV_LENGTH];
-            System.arraycopy(encryptedWithIv, GCM_IV_LENGTH, encryptedData, 0, encryptedData.length);
+    /**
+     * Id of the key that wrapped the data key of a value produced by {@link #encrypt},
+     * or that encrypted a value in one of the older direct formats.
+     */
+    public String keyIdOf(String encryptedText) {
+        int separator = encryptedText.indexOf(KEY_ID_SEPARATOR);
+        return separator > 0 ? encryptedText.substring(0, separator) : UNVERSIONED_KEY_ID;
+    }
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
+    public boolean hasActiveKey() {
+        return keyRing.containsKey(activeKeyId);
+    }
 
-            byte[] decryptedData = cipher.doFinal(encryptedData);
-            return new String(decryptedData, StandardCharsets.UTF_8);
+    /**
+     * Prefix shared by every value encrypted with the active key.
+     */
+    public String activeKeyPrefix() {
+        return activeKeyId + KEY_ID_SEPARATOR;
+    }
+
+    public boolean isEncryptedWithActiveKey(String encryptedText) {
+        return encryptedText.startsWith(activeKeyPrefix());
+    }
+
+    /**
+     * Moves a value onto the active key. For envelope values only the data key is
+     * unwrapped and wrapped again; the ciphertext is kept as is. Values in the older
+     * direct formats are decrypted once and written as an envelope. Plaintext and data
+     * keys never leave this method.
+     */
+    public String rewrap(String encryptedText) {
+        String keyId = keyIdOf(encryptedText);
+        String body = bodyOf(encryptedText);
+        int separator = body.indexOf(ENVELOPE_SEPARATOR);
+        if (separator < 0) {
+            byte[] plaintext = decryptBytes(encryptedText);
+            try {
+                return encrypt(new String(plaintext, StandardCharsets.UTF_8));
+            } finally {
+                Arrays.fill(plaintext, (byte) 0);
+            }
+        }
+
+        byte[] dek = null;
+        try {
+            dek = open(requireKey(keyId), Base64.getDecoder().decode(body.substring(0, separator)), wrapAad(keyId));
+            byte[] wrapped = seal(requireKey(activeKeyId), dek, wrapAad(activeKeyId));
+            return activeKeyPrefix() + Base64.getEncoder().encodeToString(wrapped) + body.substring(separator);
+        } catch (Exception e) {
+            logger.error("Error rewrapping data key", e);
+            throw new RuntimeException("Failed to rewrap data key", e);
+        } finally {
+            if (dek != null) {
+                Arrays.fill(dek, (byte) 0);
+            }
+        }
+    }
+
+    private byte[] decryptBytes(String encryptedText) {
+        byte[] dek = null;
+        try {
+            String keyId = keyIdOf(encryptedText);
+            String body = bodyOf(encryptedText);
+            int separator = body.indexOf(ENVELOPE_SEPARATOR);
+            if (separator < 0) {
+                return open(requireKey(keyId), Base64.getDecoder().decode(body), null);
+            }
+            dek = open(requireKey(keyId), Base64.getDecoder().decode(body.substring(0, separator)), wrapAad(keyId));
+            return open(new SecretKeySpec(dek, ALGORITHM), Base64.getDecoder().decode(body.substring(separator + 1)), null);
         } catch (Exception e) {
             logger.error("Error decrypting data", e);
             throw new RuntimeException("Failed to decrypt data", e);
+        } finally {
+            if (dek != null) {
+                Arrays.fill(dek, (byte) 0);
+            }
+        }
+    }
+
+    // IV followed by ciphertext and tag
+    private byte[] seal(SecretKeySpec key, byte[] input, byte[] aad) throws Exception {
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        ivGenerator.nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        byte[] encryptedData = cipher.doFinal(input);
+
+        byte[] encryptedWithIv = new byte[GCM_IV_LENGTH + encryptedData.length];
+        System.arraycopy(iv, 0, encryptedWithIv, 0, GCM_IV_LENGTH);
+        System.arraycopy(encryptedData, 0, encryptedWithIv, GCM_IV_LENGTH, encryptedData.length);
+        return encryptedWithIv;
+    }
+
+    private byte[] open(SecretKeySpec key, byte[] encryptedWithIv, byte[] aad) throws Exception {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, encryptedWithIv, 0, GCM_IV_LENGTH));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        return cipher.doFinal(encryptedWithIv, GCM_IV_LENGTH, encryptedWithIv.length - GCM_IV_LENGTH);
+    }
+
+    private static String envelope(String keyId, byte[] wrappedDek, byte[] ciphertext) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return keyId + KEY_ID_SEPARATOR + encoder.encodeToString(wrappedDek) + ENVELOPE_SEPARATOR
+            + encoder.encodeToString(ciphertext);
+    }
+
+    // Binds a wrapped data key to the key id in front of it
+    private static byte[] wrapAad(String keyId) {
+        return keyId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String bodyOf(String encryptedText) {
+        return encryptedText.substring(encryptedText.indexOf(KEY_ID_SEPARATOR) + 1);
+    }
+
+    private void addKey(String keyId, String base64Key) {
+        if (!KEY_ID_PATTERN.matcher(keyId).matches()) {
+            throw new IllegalStateException("Invalid encryption key id: " + keyId);
+        }
+        byte[] key = Base64.getDecoder().decode(base64Key);
+        keyRing.put(keyId, new SecretKeySpec(key, ALGORITHM));
+        Arrays.fill(key, (byte) 0);
+    }
+
+    private SecretKeySpec requireKey(String keyId) {
+        SecretKeySpec key = keyRing.get(keyId);
+        if (key == null) {
+            throw new IllegalStateException(keyId.equals(activeKeyId)
+                ? "ENCRYPTION_KEY is not configured"
+                : "No encryption key configured for key id " + keyId);
+        }
+        return key;
+    }
+
+    private static SecureRandom createIvGenerator() {
+        try {
+            return SecureRandom.getInstance("DRBG",
+                DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, null));
+        } catch (NoSuchAlgorithmException e) {
+            logger.warn("DRBG SecureRandom unavailable, using the platform default", e);
+            return new SecureRandom();
+        }
+    }
+
+    /**
+     * Decrypted bytes that can be wiped while other threads may still be reading.
+     */
+    private static final class PlaintextHolder {
+        private byte[] plaintext;
+
+        PlaintextHolder(byte[] plaintext) {
+            this.plaintext = plaintext;
+        }
+
+        // A fresh copy per call; the String itself cannot be wiped
+        synchronized String read() {
+            return plaintext != null ? new String(plaintext, StandardCharsets.UTF_8) : null;
+        }
+
+        synchronized void wipe() {
+            if (plaintext != null) {
+                Arrays.fill(plaintext, (byte) 0);
+                plaintext = null;
+            }
         }
     }
-}
\ No newline at end of file
+}
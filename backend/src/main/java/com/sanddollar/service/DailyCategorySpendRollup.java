@@ -0,0 +1,194 @@
+package com.sanddollar.service;
+
+import com.sanddollar.entity.Transaction;
+import com.sanddollar.repository.DailyCategorySpendRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Maintains the daily_category_spend rollup from transaction writes.
+ *
+ * Writers describe the rows they touched as {@link Contribution}s before and after
+ * the write; only the difference is applied, so the cost of keeping the rollup
+ * current is proportional to the change, not to the user's history. Users whose
+ * totals changed are announced with a {@link SpendingChangedEvent}.
+ *
+ * Rows are always written in (user, day, category) order. Pages of one user's items
+ * sync concurrently and touch overlapping rows, and a consistent lock order keeps
+ * their transactions from deadlocking on each other.
+ */
+@Component
+public class DailyCategorySpendRollup {
+
+    static final String UNCATEGORIZED = "Other";
+
+    private static final String POSTGRES_UPSERT_SQL =
+        "INSERT INTO daily_category_spend (user_id, \"day\", category_top, spend_cents, income_cents, txn_count, spend_count) " +
+        "VALUES (:userId, :day, :categoryTop, :spendCents, :incomeCents, :txnCount, :spendCount) " +
+        "ON CONFLICT (user_id, \"day\", category_top) DO UPDATE SET " +
+        "spend_cents = daily_category_spend.spend_cents + EXCLUDED.spend_cents, " +
+        "income_cents = daily_category_spend.income_cents + EXCLUDED.income_cents, " +
+        "txn_count = daily_category_spend.txn_count + EXCLUDED.txn_count, " +
+        "spend_count = daily_category_spend.spend_count + EXCLUDED.spend_count";
+
+    // H2 (mock profile) has no ON CONFLICT; the standard MERGE is fine there because
+    // mock data is written by a single thread
+    private static final String MERGE_SQL =
+        "MERGE INTO daily_category_spend d " +
+        "USING (VALUES (CAST(:userId AS BIGINT), CAST(:day AS DATE), CAST(:categoryTop AS VARCHAR(100)), " +
+        "CAST(:spendCents AS BIGINT), CAST(:incomeCents AS BIGINT), CAST(:txnCount AS INTEGER), " +
+        "CAST(:spendCount AS INTEGER))) " +
+        "AS v(user_id, \"day\", category_top, spend_cents, income_cents, txn_count, spend_count) " +
+        "ON d.user_id = v.user_id AND d.\"day\" = v.\"day\" AND d.category_top = v.category_top " +
+        "WHEN MATCHED THEN UPDATE SET spend_cents = d.spend_cents + v.spend_cents, " +
+        "income_cents = d.income_cents + v.income_cents, txn_count = d.txn_count + v.txn_count, " +
+        "spend_count = d.spend_count + v.spend_count " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, \"day\", category_top, spend_cents, income_cents, txn_count, spend_count) " +
+        "VALUES (v.user_id, v.\"day\", v.category_top, v.spend_cents, v.income_cents, v.txn_count, v.spend_count)";
+
+    private static final String DELETE_EMPTY_SQL =
+        "DELETE FROM daily_category_spend WHERE user_id = :userId AND \"day\" = :day " +
+        "AND category_top = :categoryTop AND txn_count <= 0";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DailyCategorySpendRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile Boolean postgres;
+
+    public DailyCategorySpendRollup(NamedParameterJdbcTemplate jdbcTemplate, DailyCategorySpendRepository repository,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.repository = repository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Applies the change between the state of some transaction rows before and after a
+     * write. Rows missing from {@code after} were deleted; rows missing from
+     * {@code before} were inserted.
+     */
+    public void applyChanges(Collection<Contribution> before, Collection<Contribution> after) {
+        SortedMap<Key, long[]> deltas = new TreeMap<>(Key.ORDER);
+        accumulate(deltas, before, -1);
+        accumulate(deltas, after, 1);
+        write(deltas);
+    }
+
+    /**
+     * Adds newly saved transactions to the rollup.
+     */
+    public void addAll(Collection<Transaction> transactions) {
+        List<Contribution> added = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            added.add(Contribution.of(transaction));
+        }
+        applyChanges(List.of(), added);
+    }
+
+    public void deleteForUser(Long userId) {
+        repository.deleteByUserId(userId);
+        eventPublisher.publishEvent(new SpendingChangedEvent(Set.of(userId)));
+    }
+
+    private void accumulate(Map<Key, long[]> deltas, Collection<Contribution> contributions, int sign) {
+        for (Contribution contribution : contributions) {
+            if (contribution.transfer() || contribution.userId() == null || contribution.day() == null) {
+                continue;
+            }
+            Key key = new Key(contribution.userId(), contribution.day(),
+                contribution.categoryTop() != null ? contribution.categoryTop() : UNCATEGORIZED);
+            long[] delta = deltas.computeIfAbsent(key, k -> new long[4]);
+            long amount = contribution.amountCents();
+            if (amount < 0) {
+                delta[0] += sign * -amount;
+                delta[3] += sign;
+            } else if (amount > 0) {
+                delta[1] += sign * amount;
+            }
+            delta[2] += sign;
+        }
+    }
+
+    private void write(SortedMap<Key, long[]> deltas) {
+        List<SqlParameterSource> upserts = new ArrayList<>();
+        List<SqlParameterSource> shrunk = new ArrayList<>();
+        Set<Long> changedUsers = new HashSet<>();
+        for (Map.Entry<Key, long[]> entry : deltas.entrySet()) {
+            long[] delta = entry.getValue();
+            if (delta[0] == 0 && delta[1] == 0 && delta[2] == 0 && delta[3] == 0) {
+                continue;
+            }
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", entry.getKey().userId())
+                .addValue("day", entry.getKey().day())
+                .addValue("categoryTop", entry.getKey().categoryTop())
+                .addValue("spendCents", delta[0])
+                .addValue("incomeCents", delta[1])
+                .addValue("txnCount", (int) delta[2])
+                .addValue("spendCount", (int) delta[3]);
+            upserts.add(params);
+            changedUsers.add(entry.getKey().userId());
+            if (delta[2] < 0) {
+                shrunk.add(params);
+            }
+        }
+
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(isPostgres() ? POSTGRES_UPSERT_SQL : MERGE_SQL,
+                upserts.toArray(SqlParameterSource[]::new));
+        }
+        if (!shrunk.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_EMPTY_SQL, shrunk.toArray(SqlParameterSource[]::new));
+        }
+        if (!changedUsers.isEmpty()) {
+            eventPublisher.publishEvent(new SpendingChangedEvent(changedUsers));
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String product = jdbcTemplate.getJdbcTemplate().execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            result = product != null && product.toLowerCase().contains("postgres");
+            postgres = result;
+        }
+        return result;
+    }
+
+    private record Key(Long userId, LocalDate day, String categoryTop) {
+        static final Comparator<Key> ORDER = Comparator.comparing(Key::userId)
+            .thenComparing(Key::day)
+            .thenComparing(Key::categoryTop);
+    }
+
+    /**
+     * What one transaction row contributes to the rollup.
+     */
+    public record Contribution(Long userId, LocalDate day, String categoryTop, long amountCents, boolean transfer) {
+        public static Contribution of(Transaction transaction) {
+            return new Contribution(
+                transaction.getAccount().getUser().getId(),
+                transaction.getDate(),
+                transaction.getCategoryTop(),
+                transaction.getAmountCents() != null ? transaction.getAmountCents() : 0L,
+                Boolean.TRUE.equals(transaction.getIsTransfer())
+            );
+        }
+    }
+}
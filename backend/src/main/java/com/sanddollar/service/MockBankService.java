@@ -30,11 +30,17 @@ public class MockBankService implements BankDataProvider {
     private AccountRepository accountRepository;
 
     @Autowired
-    private BalanceSnapshotRepository balanceSnapshotRepository;
+    private AccountLatestBalanceRepository latestBalanceRepository;
+
+    @Autowired
+    private AccountBalanceRecorder balanceRecorder;
 
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private DailyCategorySpendRollup spendRollup;
+
     // Mock data constants
     private static final String INSTITUTION_NAME = "MockBank";
     private static final List<String> ACCOUNT_CONFIGS = List.of(
@@ -168,10 +174,10 @@ public class MockBankService implements BankDataProvider {
         }
         
         // Calculate totals
-        List<BalanceSnapshot> recentBalances = balanceSnapshotRepository.findRecentByUser(user);
-        Long totalAvailable = recentBalances.stream()
-            .mapToLong(b -> b.getAvailableCents() != null ? b.getAvailableCents() : 0L)
-            .sum();
+        Long totalAvailable = latestBalanceRepository.sumAvailableCentsByUserId(user.getId());
+        if (totalAvailable == null) {
+            totalAvailable = 0L;
+        }
         
         return Map.of(
             "totalAvailableCents", totalAvailable,
@@ -241,7 +247,7 @@ public class MockBankService implements BankDataProvider {
         snapshot.setCurrentCents(availableBalance);
         // asOf timestamp will be set automatically by @CreationTimestamp
         
-        balanceSnapshotRepository.save(snapshot);
+        balanceRecorder.record(snapshot);
     }
 
     /**
@@ -255,11 +261,9 @@ public class MockBankService implements BankDataProvider {
             .sum();
         
         // Get initial balance or use default
-        List<BalanceSnapshot> existing = balanceSnapshotRepository.findByAccountOrderByAsOfDesc(account);
-        Long initialBalance = 0L;
-        if (!existing.isEmpty()) {
-            initialBalance = existing.get(0).getAvailableCents();
-        }
+        Long initialBalance = latestBalanceRepository.findById(account.getId())
+            .map(AccountLatestBalance::getAvailableCents)
+            .orElse(0L);
         
         Long currentBalance = initialBalance + totalCents;
         
@@ -269,7 +273,7 @@ public class MockBankService implements BankDataProvider {
         snapshot.setCurrentCents(currentBalance);
         // asOf timestamp will be set automatically by @CreationTimestamp
         
-        balanceSnapshotRepository.save(snapshot);
+        balanceRecorder.record(snapshot);
     }
 
     /**
@@ -332,7 +336,7 @@ public class MockBankService implements BankDataProvider {
         detectTransfers(transactions);
         
         // Save all transactions
-        transactionRepository.saveAll(transactions);
+        spendRollup.addAll(transactionRepository.saveAll(transactions));
         
         logger.info("Generated {} mock transactions for user: {}", transactions.size(), user.getEmail());
     }
@@ -1,13 +1,13 @@
 package com.sanddollar.service;
 
-import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatMessage;
-import com.theokanning.openai.completion.chat.ChatCompletionChunk;
-import com.theokanning.openai.service.OpenAiService;
 import com.sanddollar.dto.BudgetRequest;
 import com.sanddollar.dto.BudgetPlanResponse;
 import com.sanddollar.dto.Allocation;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,7 +19,10 @@ import java.time.Duration;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.function.Consumer;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -27,22 +30,50 @@ import java.util.concurrent.TimeoutException;
 public class OpenAIService {
     private static final Logger logger = LoggerFactory.getLogger(OpenAIService.class);
     
-    private final OpenAiService openAiService;
+    private static final String UNAVAILABLE_ANSWER = "I can't reach my assistant service right now. " +
+        "Your budgets and transactions are all still available - please ask me again in a minute.";
+
+    private static final String BUSY_ANSWER = "I'm handling a lot of questions right now. Please try again in a moment.";
+
     private final String model;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final boolean mockMode;
+    // How long a caller waits for a one-shot call before serving its fallback
+    private final Duration callTimeout;
+    private final OpenAiClient openAiClient;
+    private final MeterRegistry meterRegistry;
+    private final Timer timeToFirstToken;
+    // Separate compartments so long-lived streams cannot starve one-shot calls
+    private final OpenAiBulkhead callBulkhead;
+    private final OpenAiBulkhead streamBulkhead;
     
     public OpenAIService(
             @Value("${openai.api.key}") String apiKey,
-            @Value("${openai.model}") String model) {
+            @Value("${openai.model}") String model,
+            @Value("${openai.bulkhead.calls.max-concurrent:32}") int callMaxConcurrent,
+            @Value("${openai.bulkhead.calls.max-queued:32}") int callMaxQueued,
+            @Value("${openai.bulkhead.streams.max-concurrent:64}") int streamMaxConcurrent,
+            @Value("${openai.bulkhead.streams.max-queued:16}") int streamMaxQueued,
+            @Value("${openai.bulkhead.queue-timeout-ms:2000}") long queueTimeoutMs,
+            @Value("${openai.call-timeout-ms:12000}") long callTimeoutMs,
+            OpenAiClient openAiClient,
+            MeterRegistry meterRegistry) {
+        this.openAiClient = openAiClient;
+        this.meterRegistry = meterRegistry;
+        this.callTimeout = Duration.ofMillis(callTimeoutMs);
+        Duration queueTimeout = Duration.ofMillis(queueTimeoutMs);
+        this.callBulkhead = new OpenAiBulkhead("openai-call", callMaxConcurrent, callMaxQueued, queueTimeout, meterRegistry);
+        this.streamBulkhead = new OpenAiBulkhead("openai-stream", streamMaxConcurrent, streamMaxQueued, queueTimeout, meterRegistry);
+        this.timeToFirstToken = Timer.builder("openai.stream.time_to_first_token")
+            .description("Time from starting a streamed chat answer to its first token")
+            .publishPercentiles(0.5, 0.9, 0.99)
+            .register(meterRegistry);
         this.mockMode = apiKey == null || apiKey.trim().isEmpty() || "mock-key".equals(apiKey);
         logger.debug("Mock mode determined: {}", mockMode);
         
         if (mockMode) {
-            this.openAiService = null;
             logger.info("OpenAI service initialized in MOCK MODE (no API key provided)");
         } else {
-            this.openAiService = new OpenAiService(apiKey, Duration.ofSeconds(12));
             logger.info("OpenAI service initialized with model: {}", model);
         }
         this.model = model;
@@ -65,14 +96,16 @@ public class OpenAIService {
                    "What would you like to know about your finances?";
         }
         
-        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
-            try {
+        if (openAiClient.isCircuitOpen()) {
+            logger.debug("OpenAI circuit open, returning canned chat answer");
+            return UNAVAILABLE_ANSWER;
+        }
+        
+        Future<String> future;
+        try {
+            future = callBulkhead.submit(() -> {
                 logger.debug("Making OpenAI chat request with {} messages", messages.size());
                 
-                ChatCompletionRequest.ChatCompletionRequestBuilder builder = ChatCompletionRequest.builder()
-                        .model(model)
-                        .messages(messages);
-                
                 // Only set temperature if it's not the default value or if model supports it
                 // Many newer models only support default temperature (1.0)
                 if (temperature != null && !temperature.equals(1.0)) {
@@ -80,39 +113,42 @@ public class OpenAIService {
                     // Don't set temperature to avoid API errors
                 }
                 
-                ChatCompletionRequest completionRequest = builder.build();
-                
-                var response = openAiService.createChatCompletion(completionRequest);
-                
-                if (response.getChoices().isEmpty()) {
+                // A user is waiting on the answer, so this call may be hedged
+                OpenAiClient.OpenAiResponse response = openAiClient.complete(toClientMessages(messages), null, true);
+                String result = response.getContent();
+                if (result == null) {
                     logger.error("No choices returned from OpenAI API");
                     throw new RuntimeException("No choices returned");
                 }
-                
-                String result = response.getChoices().get(0).getMessage().getContent();
                 logger.debug("OpenAI chat response: {}", result);
                 return result;
-                
-            } catch (Exception e) {
-                logger.error("Error calling OpenAI chat API", e);
-                throw new RuntimeException(e);
-            }
-        });
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("OpenAI chat request rejected: {}", e.getMessage());
+            return BUSY_ANSWER;
+        }
         
         try {
-            return future.get(12, TimeUnit.SECONDS);
+            return future.get(callTimeout.toMillis(), TimeUnit.MILLISECONDS);
         } catch (TimeoutException e) {
-            logger.warn("OpenAI chat request timed out after 12 seconds");
+            logger.warn("OpenAI chat request timed out after {} ms", callTimeout.toMillis());
+            // Interrupts the worker, which aborts the HTTP exchange
             future.cancel(true);
             return "I'm taking longer than usual to respond. Let me give you a quick answer: I'm here to help with your budgeting questions. Could you try rephrasing your question or ask something more specific?";
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OpenAiClient.CircuitOpenException) {
+                return UNAVAILABLE_ANSWER;
+            }
+            logger.error("Error in OpenAI chat request", e);
+            return "Sorry, I encountered an issue processing your request. I'm still here to help - try asking about your budget, spending, or savings goals.";
         } catch (Exception e) {
             logger.error("Error in OpenAI chat request", e);
             return "Sorry, I encountered an issue processing your request. I'm still here to help - try asking about your budget, spending, or savings goals.";
         }
     }
     
-    public void chatStream(String prompt, Consumer<String> onDelta, Runnable onComplete) {
-        chatStream(List.of(
+    public StreamHandle chatStream(String prompt, Consumer<String> onDelta, Runnable onComplete) {
+        return chatStream(List.of(
             new ChatMessage("system", "You are SandDollar's budgeting assistant. Be concise, practical, numerate. " +
                 "When asked to change budgets, call /api/budgets/adjust (see below) and then confirm deltas. " +
                 "Focus on actionable financial advice and budget optimization."),
@@ -120,69 +156,177 @@ public class OpenAIService {
         ), 0.7, onDelta, onComplete);
     }
     
-    public void chatStream(List<ChatMessage> messages, Double temperature, Consumer<String> onDelta, Runnable onComplete) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                logger.debug("Starting OpenAI streaming with {} messages", messages.size());
-                
-                // For now, we'll provide a better simulation that demonstrates real streaming capability
-                // In production, this would use the actual OpenAI streaming API with proper API key
-                String response = chatOnce(messages, temperature);
-                
-                // Stream the response word by word to simulate real streaming
-                String[] words = response.split("\\s+");
-                for (int i = 0; i < words.length; i++) {
-                    String word = words[i];
-                    if (i > 0) {
-                        word = " " + word;
-                    }
-                    
-                    try {
-                        onDelta.accept(word);
-                        Thread.sleep(50 + (int)(Math.random() * 100)); // Variable delay to simulate real typing
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-                
-                if (onComplete != null) {
-                    onComplete.run();
+    /**
+     * Streams a chat answer, forwarding each delta as soon as OpenAI produces it.
+     * Runs on its own virtual thread; {@code onComplete} is called exactly once unless
+     * the returned handle is cancelled first. A stream that waits out the bulkhead queue
+     * gets the busy answer as its only delta and then completes.
+     *
+     * @throws RejectedExecutionException if too many streams are already open
+     */
+    public StreamHandle chatStream(List<ChatMessage> messages, Double temperature, Consumer<String> onDelta, Runnable onComplete) {
+        StreamHandle handle = new StreamHandle();
+        handle.future = streamBulkhead.submit(() -> {
+            runStream(handle, messages, onDelta, onComplete);
+            return null;
+        }, rejected -> rejectStream(handle, rejected, onDelta, onComplete));
+        return handle;
+    }
+
+    private void rejectStream(StreamHandle handle, RejectedExecutionException rejected,
+                              Consumer<String> onDelta, Runnable onComplete) {
+        logger.warn("OpenAI chat stream rejected: {}", rejected.getMessage());
+        if (handle.isCancelled()) {
+            return;
+        }
+        try {
+            onDelta.accept(BUSY_ANSWER);
+        } catch (RuntimeException e) {
+            // The consumer has already given up on the stream
+            return;
+        }
+        if (onComplete != null) {
+            onComplete.run();
+        }
+    }
+
+    private void runStream(StreamHandle handle, List<ChatMessage> messages, Consumer<String> onDelta, Runnable onComplete) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            logger.debug("Starting OpenAI streaming with {} messages", messages.size());
+            if (mockMode) {
+                recordFirstToken(start);
+                onDelta.accept(chatOnce(messages, null));
+                outcome = "success";
+            } else if (openAiClient.isCircuitOpen()) {
+                onDelta.accept(UNAVAILABLE_ANSWER);
+                outcome = "circuit_open";
+            } else {
+                // Temperature is left at the model default, as in chatOnce
+                OpenAiClient.ChatStream stream = openAiClient.openChatStream(toClientMessages(messages), null);
+                if (!handle.attach(stream)) {
+                    outcome = "cancelled";
+                    return;
                 }
-                
-            } catch (Exception e) {
-                logger.error("Error in streaming chat", e);
-                onDelta.accept("Error: " + e.getMessage());
-                if (onComplete != null) {
-                    onComplete.run();
+                try (stream) {
+                    String delta;
+                    boolean first = true;
+                    while ((delta = stream.nextDelta()) != null) {
+                        if (first) {
+                            recordFirstToken(start);
+                            first = false;
+                        }
+                        onDelta.accept(delta);
+                    }
                 }
+                outcome = "success";
+            }
+        } catch (OpenAiClient.CircuitOpenException e) {
+            // Opened between the check above and the call
+            onDelta.accept(UNAVAILABLE_ANSWER);
+            outcome = "circuit_open";
+        } catch (RuntimeException e) {
+            // Either the caller cancelled or the consumer could not take more deltas
+            if (handle.isCancelled() || e instanceof CancellationException) {
+                outcome = "cancelled";
+                return;
             }
-        });
+            logger.error("Error in streaming chat", e);
+            onDelta.accept("Error: " + e.getMessage());
+        } finally {
+            Timer.builder("openai.stream.duration")
+                .description("Total duration of streamed chat answers")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (onComplete != null && !handle.isCancelled()) {
+            onComplete.run();
+        }
+    }
+
+    private void recordFirstToken(long startNanos) {
+        timeToFirstToken.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static List<OpenAiClient.OpenAiMessage> toClientMessages(List<ChatMessage> messages) {
+        List<OpenAiClient.OpenAiMessage> converted = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            converted.add(new OpenAiClient.OpenAiMessage(message.getRole(), message.getContent()));
+        }
+        return converted;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        callBulkhead.shutdown();
+        streamBulkhead.shutdown();
+    }
+
+    /**
+     * A running chat stream. Cancelling closes the upstream connection, so OpenAI
+     * stops generating tokens nobody will read.
+     */
+    public static final class StreamHandle {
+        private volatile Future<?> future;
+        private volatile OpenAiClient.ChatStream stream;
+        private volatile boolean cancelled;
+
+        private synchronized boolean attach(OpenAiClient.ChatStream stream) {
+            if (cancelled) {
+                stream.close();
+                return false;
+            }
+            this.stream = stream;
+            return true;
+        }
+
+        public synchronized void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            if (stream != null) {
+                stream.close();
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
     }
     
     public BudgetPlanResponse generateBudget(BudgetRequest request) {
-        CompletableFuture<BudgetPlanResponse> future = CompletableFuture.supplyAsync(() -> {
-            try {
+        if (mockMode) {
+            return createFallbackBudget(request);
+        }
+        if (openAiClient.isCircuitOpen()) {
+            logger.debug("OpenAI circuit open, using fallback budget");
+            return createFallbackBudget(request);
+        }
+
+        Future<BudgetPlanResponse> future;
+        try {
+            future = callBulkhead.submit(() -> {
                 logger.debug("Making OpenAI budget request: {}", request);
                 
                 String prompt = buildBudgetPrompt(request);
                 
-                ChatCompletionRequest completionRequest = ChatCompletionRequest.builder()
-                        .model(model)
-                        .messages(List.of(
-                            new ChatMessage("system", "You are a financial budgeting assistant. Return ONLY valid JSON matching the provided schema. Be concise. No explanatory text outside the JSON."),
-                            new ChatMessage("user", prompt)
-                        ))
-                        .build();
-                
-                var response = openAiService.createChatCompletion(completionRequest);
+                OpenAiClient.OpenAiResponse response = openAiClient.complete(List.of(
+                    new OpenAiClient.OpenAiMessage("system", "You are a financial budgeting assistant. Return ONLY valid JSON matching the provided schema. Be concise. No explanatory text outside the JSON."),
+                    new OpenAiClient.OpenAiMessage("user", prompt)
+                ), null);
                 
-                if (response.getChoices().isEmpty()) {
+                if (response.getContent() == null) {
                     logger.error("No choices returned from OpenAI API");
                     throw new RuntimeException("No choices returned");
                 }
                 
-                String jsonResponse = response.getChoices().get(0).getMessage().getContent();
+                String jsonResponse = response.getContent();
                 logger.debug("OpenAI budget response: {}", jsonResponse);
                 
                 // Clean the JSON response (remove code blocks if present)
@@ -197,17 +341,16 @@ public class OpenAIService {
                     logger.warn("Failed to parse JSON response, using fallback", parseEx);
                     throw new RuntimeException("Failed to parse response", parseEx);
                 }
-                
-            } catch (Exception e) {
-                logger.error("Error calling OpenAI budget API", e);
-                throw new RuntimeException(e);
-            }
-        });
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("OpenAI budget request rejected, using fallback: {}", e.getMessage());
+            return createFallbackBudget(request);
+        }
         
         try {
-            return future.get(12, TimeUnit.SECONDS);
+            return future.get(callTimeout.toMillis(), TimeUnit.MILLISECONDS);
         } catch (TimeoutException e) {
-            logger.warn("OpenAI budget request timed out after 12 seconds, using fallback");
+            logger.warn("OpenAI budget request timed out after {} ms, using fallback", callTimeout.toMillis());
             future.cancel(true);
             return createFallbackBudget(request);
         } catch (Exception e) {
@@ -0,0 +1,158 @@
+package com.sanddollar.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A named compartment for blocking OpenAI calls.
+ *
+ * Tasks run on virtual threads, at most {@code maxConcurrent} at a time; up to
+ * {@code maxQueued} more may wait for a slot, each for at most {@code queueTimeout}.
+ * Anything beyond that is rejected immediately with {@link RejectedExecutionException},
+ * so a slow upstream makes callers fail fast instead of piling up. Futures returned
+ * by {@link #submit} interrupt the task when cancelled, which aborts the HTTP
+ * exchange in {@link OpenAiClient}. A cancelled task keeps its admission until its
+ * body has actually returned, so cancelling never lets more tasks in than the caps.
+ */
+public class OpenAiBulkhead {
+
+    private final String name;
+    private final ExecutorService executor;
+    private final Semaphore running;
+    private final Semaphore admitted;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxConcurrent;
+    private final long queueTimeoutNanos;
+
+    private final Counter rejectedFull;
+    private final Counter rejectedTimeout;
+    private final Timer queueWait;
+
+    public OpenAiBulkhead(String name, int maxConcurrent, int maxQueued, Duration queueTimeout,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.running = new Semaphore(this.maxConcurrent, true);
+        this.admitted = new Semaphore(this.maxConcurrent + Math.max(0, maxQueued));
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+
+        Gauge.builder("openai.bulkhead.active", running, s -> this.maxConcurrent - s.availablePermits())
+            .description("OpenAI tasks currently running")
+            .tag("bulkhead", name)
+            .register(meterRegistry);
+        Gauge.builder("openai.bulkhead.queued", queued, AtomicInteger::get)
+            .description("OpenAI tasks waiting for a slot")
+            .tag("bulkhead", name)
+            .register(meterRegistry);
+        this.rejectedFull = rejections(meterRegistry, name, "full");
+        this.rejectedTimeout = rejections(meterRegistry, name, "queue_timeout");
+        this.queueWait = Timer.builder("openai.bulkhead.queue.wait")
+            .description("Time OpenAI tasks waited for a slot")
+            .tag("bulkhead", name)
+            .register(meterRegistry);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String name, String reason) {
+        return Counter.builder("openai.bulkhead.rejected")
+            .description("OpenAI tasks rejected because the bulkhead was saturated")
+            .tag("bulkhead", name)
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Submits a task, or throws {@link RejectedExecutionException} straight away if the
+     * running and waiting slots are all taken.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return submit(task, null);
+    }
+
+    /**
+     * Like {@link #submit(Callable)}, but also hands a rejection after waiting out the
+     * queue timeout to {@code onRejected}. Callers that never read the future, such as
+     * streams, need this to learn that their task will not run.
+     */
+    public <T> Future<T> submit(Callable<T> task, Consumer<RejectedExecutionException> onRejected) {
+        if (!admitted.tryAcquire()) {
+            rejectedFull.increment();
+            throw new RejectedExecutionException("OpenAI bulkhead '" + name + "' is full");
+        }
+        // Whoever claims first releases the admission: the body once it has returned, or
+        // done() for a task cancelled before it started. A cancel while the body runs must
+        // not release it, as the body still holds a slot until it notices the interrupt
+        AtomicBoolean claimed = new AtomicBoolean();
+        FutureTask<T> future = new FutureTask<>(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                return runWhenSlotFree(task, onRejected);
+            } finally {
+                admitted.release();
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (claimed.compareAndSet(false, true)) {
+                    admitted.release();
+                }
+            }
+        };
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            // Executor shut down
+            admitted.release();
+            throw e;
+        }
+        return future;
+    }
+
+    private <T> T runWhenSlotFree(Callable<T> task, Consumer<RejectedExecutionException> onRejected)
+            throws Exception {
+        long queuedAt = System.nanoTime();
+        queued.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = running.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            queued.decrementAndGet();
+            queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            rejectedTimeout.increment();
+            RejectedExecutionException rejected =
+                new RejectedExecutionException("Timed out waiting for OpenAI bulkhead '" + name + "'");
+            if (onRejected != null) {
+                onRejected.accept(rejected);
+            }
+            throw rejected;
+        }
+        try {
+            return task.call();
+        } finally {
+            running.release();
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,270 @@
+package com.sanddollar.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker shared by every call to OpenAI.
+ *
+ * Outcomes of the last {@code window-size} calls are kept in a ring; once at least
+ * {@code minimum-calls} have been recorded and the share of failures (errors worth
+ * retrying, or calls slower than {@code slow-call-ms}, including ones the caller gave
+ * up on after that long) reaches the threshold, the
+ * circuit opens and calls are refused immediately so callers can serve their
+ * fallback. After {@code open-duration-ms} a few probe calls are let through
+ * (half-open): if they all succeed the circuit closes, any failure opens it again.
+ *
+ * State is exposed through the {@code circuitbreakers} actuator endpoint and the
+ * {@code openai.circuit.*} metrics.
+ */
+@Component
+public class OpenAiCircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiCircuitBreaker.class);
+
+    private static final int MAX_TRANSITIONS = 20;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final long openDurationNanos;
+    private final int halfOpenPermits;
+    private final LongSupplier nanoTime;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+    private final Deque<Transition> transitions = new ArrayDeque<>();
+
+    private final Map<State, Counter> transitionCounters = new EnumMap<>(State.class);
+    private final Counter rejected;
+
+    @Autowired
+    public OpenAiCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${openai.circuit-breaker.enabled:true}") boolean enabled,
+            @Value("${openai.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${openai.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${openai.circuit-breaker.failure-rate-threshold:50}") double failureRateThresholdPercent,
+            @Value("${openai.circuit-breaker.slow-call-ms:10000}") long slowCallMs,
+            @Value("${openai.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+            @Value("${openai.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        this(meterRegistry, enabled, windowSize, minimumCalls, failureRateThresholdPercent, slowCallMs,
+            openDurationMs, halfOpenCalls, System::nanoTime);
+    }
+
+    OpenAiCircuitBreaker(MeterRegistry meterRegistry, boolean enabled, int windowSize, int minimumCalls,
+                         double failureRateThresholdPercent, long slowCallMs, long openDurationMs,
+                         int halfOpenCalls, LongSupplier nanoTime) {
+        this.enabled = enabled;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThresholdPercent / 100.0;
+        this.slowCallNanos = Duration.ofMillis(slowCallMs).toNanos();
+        this.openDurationNanos = Duration.ofMillis(openDurationMs).toNanos();
+        this.halfOpenPermits = Math.max(1, halfOpenCalls);
+        this.nanoTime = nanoTime;
+
+        Gauge.builder("openai.circuit.state", this, breaker -> breaker.getState().ordinal())
+            .description("OpenAI circuit state: 0 closed, 1 open, 2 half-open")
+            .register(meterRegistry);
+        Gauge.builder("openai.circuit.failure.rate", this, OpenAiCircuitBreaker::getFailureRate)
+            .description("Share of failed OpenAI calls in the sliding window")
+            .register(meterRegistry);
+        for (State to : State.values()) {
+            transitionCounters.put(to, Counter.builder("openai.circuit.transitions")
+                .description("OpenAI circuit state changes")
+                .tag("to", to.name().toLowerCase())
+                .register(meterRegistry));
+        }
+        this.rejected = Counter.builder("openai.circuit.rejected")
+            .description("OpenAI calls refused because the circuit was open")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Whether a call would currently be refused. Does not take a half-open probe slot,
+     * so callers can use it to skip straight to their fallback.
+     */
+    public synchronized boolean isOpen() {
+        if (!enabled) {
+            return false;
+        }
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openDurationNanos) {
+            return false; // the next call becomes a probe
+        }
+        return state == State.OPEN || (state == State.HALF_OPEN && halfOpenInFlight >= halfOpenPermits);
+    }
+
+    /**
+     * Claims permission for one call. Every granted permission must be followed by
+     * exactly one of {@link #onSuccess}, {@link #onFailure}, {@link #onCancelled} or
+     * {@link #release}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (nanoTime.getAsLong() - openedAt < openDurationNanos) {
+                rejected.increment();
+                return false;
+            }
+            transitionTo(State.HALF_OPEN, "open duration elapsed");
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenPermits) {
+                rejected.increment();
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess(long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        boolean slow = durationNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            if (slow) {
+                open("slow probe call");
+            } else if (++halfOpenSucceeded >= halfOpenPermits) {
+                transitionTo(State.CLOSED, halfOpenSucceeded + " probe calls succeeded");
+            }
+            return;
+        }
+        record(slow);
+    }
+
+    public synchronized void onFailure(String reason) {
+        if (!enabled) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            open("probe call failed: " + reason);
+            return;
+        }
+        record(true);
+    }
+
+    /**
+     * Ends a call the caller cancelled. Callers stop waiting on a hung upstream before
+     * its own timeouts fire, so a call abandoned after {@code slow-call-ms} counts as a
+     * slow call; an earlier cancel says nothing about OpenAI and gives the permission back.
+     */
+    public synchronized void onCancelled(long durationNanos) {
+        if (durationNanos >= slowCallNanos) {
+            onSuccess(durationNanos);
+        } else {
+            release();
+        }
+    }
+
+    /**
+     * Gives back a permission without an outcome, e.g. when the call failed before
+     * reaching OpenAI.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+        }
+    }
+
+    private void record(boolean failed) {
+        if (state != State.CLOSED) {
+            return; // a late result from before the circuit opened
+        }
+        if (recorded == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failed;
+        if (failed) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+
+        if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            open(String.format("failure rate %.0f%% over %d calls", 100.0 * failures / recorded, recorded));
+        }
+    }
+
+    private void open(String reason) {
+        openedAt = nanoTime.getAsLong();
+        transitionTo(State.OPEN, reason);
+    }
+
+    private void transitionTo(State next, String reason) {
+        State previous = state;
+        state = next;
+        // Every state starts with a clean slate
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        halfOpenInFlight = 0;
+        halfOpenSucceeded = 0;
+
+        transitions.addFirst(new Transition(Instant.now(), previous, next, reason));
+        while (transitions.size() > MAX_TRANSITIONS) {
+            transitions.removeLast();
+        }
+        transitionCounters.get(next).increment();
+        if (next == State.OPEN) {
+            logger.warn("OpenAI circuit {} -> OPEN ({})", previous, reason);
+        } else {
+            logger.info("OpenAI circuit {} -> {} ({})", previous, next, reason);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0.0 : (double) failures / recorded;
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(enabled, state, getFailureRate(), recorded, failures, new ArrayList<>(transitions));
+    }
+
+    public record Transition(Instant at, State from, State to, String reason) { }
+
+    public record Snapshot(boolean enabled, State state, double failureRate, int bufferedCalls, int failedCalls,
+                           List<Transition> transitions) { }
+}
@@ -1,24 +1,66 @@
 package com.sanddollar.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Minimal client for the OpenAI chat completions API.
+ *
+ * Requests go through one shared {@link HttpClient}, which keeps connections alive
+ * and negotiates HTTP/2, so concurrent calls are multiplexed over a few connections
+ * instead of a new handshake per call. Failures worth retrying (connection errors,
+ * timeouts, 408/409/429 and 5xx) are retried with exponential backoff and full
+ * jitter, waiting at least as long as the server asks for in {@code Retry-After}.
+ * Each logical call (all of its attempts) is one outcome for {@link OpenAiCircuitBreaker};
+ * while the circuit is open calls fail at once with {@link CircuitOpenException}.
+ *
+ * Latency-sensitive calls can opt in to hedging ({@code openai.hedging.enabled}): if
+ * the first attempt has not answered by the tracked percentile of recent response
+ * times, an identical request is sent and whichever answers first wins, the other
+ * being cancelled. Hedges are paid for from a budget that grows by
+ * {@code max-ratio} per request, which caps them at that share of traffic.
+ */
 @Service
 public class OpenAiClient {
     
     private static final Logger logger = LoggerFactory.getLogger(OpenAiClient.class);
+
+    private static final String STREAM_DONE = "[DONE]";
     
     @Value("${openai.api-key:}")
     private String apiKey;
@@ -32,6 +74,9 @@ public class OpenAiClient {
     @Value("${openai.temperature:0.3}")
     private Double temperature;
 
+    @Value("${openai.base-url:https://api.openai.com/v1}")
+    private String baseUrl;
+
     @Value("${openai.connect-timeout-ms:15000}")
     private int connectTimeoutMs;
 
@@ -41,76 +86,535 @@ public class OpenAiClient {
     @Value("${openai.max-retries:2}")
     private int maxRetries;
 
-    private final RestTemplate restTemplate;
+    @Value("${openai.retry.initial-backoff-ms:500}")
+    private long initialBackoffMs;
+
+    @Value("${openai.retry.max-backoff-ms:8000}")
+    private long maxBackoffMs;
+
+    // Longer Retry-After hints are not worth waiting for inside a user request
+    @Value("${openai.retry.max-retry-after-ms:20000}")
+    private long maxRetryAfterMs;
+
+    @Autowired
+    private OpenAiCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${openai.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${openai.hedging.percentile:0.9}")
+    private double hedgePercentile;
+
+    // Used until enough responses have been seen to trust the percentile
+    @Value("${openai.hedging.initial-delay-ms:3000}")
+    private long hedgeInitialDelayMs;
+
+    @Value("${openai.hedging.min-delay-ms:250}")
+    private long hedgeMinDelayMs;
+
+    @Value("${openai.hedging.max-ratio:0.1}")
+    private double hedgeMaxRatio;
+
     private final ObjectMapper objectMapper;
+    private HttpClient httpClient;
+    private URI completionsUri;
+    private final LatencyWindow latencies = new LatencyWindow(200);
+    private final HedgeBudget hedgeBudget = new HedgeBudget();
+    private Counter hedgeNotNeeded;
+    private Counter hedgeThrottled;
+    private Counter hedgePrimaryWon;
+    private Counter hedgeWon;
 
     public OpenAiClient() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+        // Same defaults the RestTemplate converter used: unknown response fields are ignored
+        this.objectMapper = Jackson2ObjectMapperBuilder.json().build();
     }
 
     @PostConstruct
-    void configureRestTemplate() {
-        this.restTemplate.getInterceptors().clear();
-        this.restTemplate.getInterceptors().add((request, body, execution) -> {
-            request.getHeaders().set("Authorization", "Bearer " + apiKey);
-            request.getHeaders().set("Content-Type", "application/json");
-            return execution.execute(request, body);
-        });
+    void init() {
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .build();
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.completionsUri = URI.create(base + "/chat/completions");
+
+        this.hedgeNotNeeded = hedgeOutcome("not_needed");
+        this.hedgeThrottled = hedgeOutcome("throttled");
+        this.hedgePrimaryWon = hedgeOutcome("primary_won");
+        this.hedgeWon = hedgeOutcome("hedge_won");
+    }
 
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(connectTimeoutMs);
-        factory.setReadTimeout(readTimeoutMs);
-        this.restTemplate.setRequestFactory(factory);
+    private Counter hedgeOutcome(String outcome) {
+        // Win rate is hedge_won / (hedge_won + primary_won)
+        return Counter.builder("openai.hedge.requests")
+            .description("Hedge-eligible OpenAI requests, by what the hedge did")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
     }
     
     public OpenAiResponse generateBudgetRecommendations(String systemPrompt, String userPrompt) {
-        if (apiKey == null || apiKey.trim().isEmpty()) {
-            logger.warn("OpenAI API key not configured, using fallback");
-            throw new RuntimeException("OpenAI API key not configured");
-        }
+        return complete(List.of(
+            new OpenAiMessage("system", systemPrompt),
+            new OpenAiMessage("user", userPrompt)
+        ), temperature);
+    }
+
+    /**
+     * Blocking chat completion. Interrupting the calling thread aborts the HTTP
+     * exchange rather than leaving it running in the background.
+     */
+    public OpenAiResponse complete(List<OpenAiMessage> messages, Double temperature) {
+        return complete(messages, temperature, false);
+    }
 
+    /**
+     * Blocking chat completion, hedged when {@code latencySensitive} and hedging is
+     * enabled.
+     */
+    public OpenAiResponse complete(List<OpenAiMessage> messages, Double temperature, boolean latencySensitive) {
+        requireApiKey();
         OpenAiRequest request = new OpenAiRequest(
             model,
-            List.of(
-                new OpenAiMessage("system", systemPrompt),
-                new OpenAiMessage("user", userPrompt)
-            ),
+            messages,
             maxTokens,
             temperature,
             0.1  // top_p for more focused responses
         );
 
-        RuntimeException lastError = null;
+        HttpResponse<String> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofString(),
+            latencySensitive && hedgingEnabled);
+        try {
+            return objectMapper.readValue(response.body(), OpenAiResponse.class);
+        } catch (IOException e) {
+            throw new OpenAiException("Unreadable OpenAI response", response.statusCode(), false, e);
+        }
+    }
+
+    /**
+     * Starts a streamed chat completion and returns once the response headers have
+     * arrived. Retries only happen up to that point; after the first chunk a failure
+     * surfaces from {@link ChatStream#nextDelta()}.
+     */
+    public ChatStream openChatStream(List<OpenAiMessage> messages, Double temperature) {
+        requireApiKey();
+        OpenAiRequest request = new OpenAiRequest(model, messages, maxTokens, temperature, null);
+        request.stream = Boolean.TRUE;
+
+        HttpResponse<InputStream> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofInputStream(), false);
+        return new ChatStream(response.body());
+    }
+
+    /**
+     * Whether calls are currently being refused by the circuit breaker, so callers
+     * can serve their fallback without waiting on OpenAI.
+     */
+    public boolean isCircuitOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    private void requireApiKey() {
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            logger.warn("OpenAI API key not configured, using fallback");
+            throw new OpenAiException("OpenAI API key not configured", 0, false, null);
+        }
+    }
+
+    private <T> HttpResponse<T> sendWithRetry(OpenAiRequest body, HttpResponse.BodyHandler<T> bodyHandler, boolean hedged) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(completionsUri)
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .header("Accept", Boolean.TRUE.equals(body.stream) ? "text/event-stream" : "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CircuitOpenException();
+        }
+        long started = System.nanoTime();
+        try {
+            HttpResponse<T> response = attempt(request, bodyHandler, hedged);
+            circuitBreaker.onSuccess(System.nanoTime() - started);
+            return response;
+        } catch (OpenAiException e) {
+            if (e.isRetryable()) {
+                circuitBreaker.onFailure(e.getMessage());
+            } else {
+                // The API answered; a bad request says nothing about its health
+                circuitBreaker.onSuccess(System.nanoTime() - started);
+            }
+            throw e;
+        } catch (CancellationException e) {
+            // The caller stopped waiting; counts as slow if it waited long enough
+            circuitBreaker.onCancelled(System.nanoTime() - started);
+            throw e;
+        } catch (RuntimeException e) {
+            // Failed before reaching the API
+            circuitBreaker.release();
+            throw e;
+        }
+    }
+
+    private <T> HttpResponse<T> attempt(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, boolean hedged) {
+        int attempts = Math.max(0, maxRetries) + 1;
+        for (int attempt = 1; ; attempt++) {
+            OpenAiException failure;
+            Optional<Duration> retryAfter = Optional.empty();
+            try {
+                // Only the first attempt is hedged; retries already wait out a backoff
+                HttpResponse<T> response = hedged && attempt == 1
+                    ? sendHedged(request, bodyHandler)
+                    : send(request, bodyHandler);
+                int status = response.statusCode();
+                if (status / 100 == 2) {
+                    return response;
+                }
+                retryAfter = retryAfter(response);
+                discard(response);
+                failure = new OpenAiException("OpenAI API returned status: " + status, status, isRetryable(status), null);
+            } catch (IOException e) {
+                failure = new OpenAiException("OpenAI request failed: " + e.getMessage(), 0, true, e);
+            }
+
+            if (!failure.isRetryable() || attempt >= attempts) {
+                logger.error("OpenAI API call failed after {} attempt(s)", attempt, failure);
+                throw failure;
+            }
+
+            long delayMs = backoffMillis(attempt, retryAfter);
+            if (delayMs > maxRetryAfterMs) {
+                logger.error("OpenAI asked to retry after {}ms, giving up", delayMs);
+                throw failure;
+            }
+            logger.warn("OpenAI request attempt {}/{} failed: {}; retrying in {}ms",
+                attempt, attempts, failure.getMessage(), delayMs);
+            sleep(delayMs);
+        }
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        // sendAsync so an interrupt can cancel the exchange; a blocking send would keep going
+        return await(httpClient.sendAsync(request, bodyHandler));
+    }
+
+    /**
+     * Sends the request and, if it is still outstanding after the hedge delay, sends it
+     * again. Returns the first successful response, or the last failure if neither
+     * succeeds; the request still running when the other wins is cancelled.
+     */
+    private <T> HttpResponse<T> sendHedged(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        long start = System.nanoTime();
+        hedgeBudget.deposit(hedgeMaxRatio);
+        CompletableFuture<HttpResponse<T>> primary = httpClient.sendAsync(request, bodyHandler);
+        try {
+            HttpResponse<T> response = primary.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+            latencies.record(System.nanoTime() - start);
+            hedgeNotNeeded.increment();
+            return response;
+        } catch (TimeoutException e) {
+            // fall through to hedge
+        } catch (InterruptedException e) {
+            primary.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("OpenAI request interrupted");
+        } catch (ExecutionException e) {
+            return await(primary);
+        }
+
+        if (!hedgeBudget.tryWithdraw()) {
+            hedgeThrottled.increment();
+            HttpResponse<T> response = await(primary);
+            latencies.record(System.nanoTime() - start);
+            return response;
+        }
+
+        logger.debug("OpenAI request still running after hedge delay, sending a hedge");
+        CompletableFuture<HttpResponse<T>> hedge = httpClient.sendAsync(request, bodyHandler);
+        CompletableFuture<HttpResponse<T>> first = firstSuccessful(primary, hedge);
+        try {
+            HttpResponse<T> response = await(first);
+            boolean primaryWon = primary.isDone() && !primary.isCompletedExceptionally() && primary.join() == response;
+            (primaryWon ? hedgePrimaryWon : hedgeWon).increment();
+            // When the hedge wins this is a lower bound on how long the primary would have taken
+            latencies.record(System.nanoTime() - start);
+            return response;
+        } finally {
+            primary.cancel(true);
+            hedge.cancel(true);
+        }
+    }
+
+    private static <T> CompletableFuture<HttpResponse<T>> firstSuccessful(CompletableFuture<HttpResponse<T>> a,
+                                                                        CompletableFuture<HttpResponse<T>> b) {
+        CompletableFuture<HttpResponse<T>> first = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+        for (CompletableFuture<HttpResponse<T>> candidate : List.of(a, b)) {
+            candidate.whenComplete((response, error) -> {
+                if (error == null && response.statusCode() / 100 == 2) {
+                    first.complete(response);
+                } else if (pending.decrementAndGet() == 0) {
+                    // Both failed: report whichever finished last
+                    if (error != null) {
+                        first.completeExceptionally(error);
+                    } else {
+                        first.complete(response);
+                    }
+                }
+            });
+        }
+        return first;
+    }
+
+    private long hedgeDelayNanos() {
+        long tracked = latencies.percentile(hedgePercentile);
+        long delay = tracked > 0 ? tracked : TimeUnit.MILLISECONDS.toNanos(hedgeInitialDelayMs);
+        return Math.max(delay, TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayMs));
+    }
+
+    private static <T> HttpResponse<T> await(CompletableFuture<HttpResponse<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("OpenAI request interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 408 || status == 409 || status == 429 || status >= 500;
+    }
+
+    /**
+     * Exponential backoff with full jitter, but never shorter than the server's hint.
+     */
+    long backoffMillis(int attempt, Optional<Duration> retryAfter) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(Math.max(1, ceiling) + 1);
+        return retryAfter.map(hint -> Math.max(hint.toMillis(), jittered)).orElse(jittered);
+    }
 
-        for (int attempt = 0; attempt <= Math.max(0, maxRetries); attempt++) {
+    private static Optional<Duration> retryAfter(HttpResponse<?> response) {
+        // OpenAI sends a millisecond variant alongside the standard header
+        Optional<String> millis = response.headers().firstValue("retry-after-ms");
+        if (millis.isPresent()) {
+            try {
+                return Optional.of(Duration.ofMillis((long) Double.parseDouble(millis.get().trim())));
+            } catch (NumberFormatException ignored) {
+                // fall through to Retry-After
+            }
+        }
+        return response.headers().firstValue("retry-after").flatMap(value -> {
             try {
-                ResponseEntity<OpenAiResponse> response = restTemplate.postForEntity(
-                    "https://api.openai.com/v1/chat/completions",
-                    request,
-                    OpenAiResponse.class
-                );
-
-                if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                    return response.getBody();
+                return Optional.of(Duration.ofSeconds(Long.parseLong(value.trim())));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    Duration wait = Duration.between(ZonedDateTime.now(at.getZone()), at);
+                    return Optional.of(wait.isNegative() ? Duration.ZERO : wait);
+                } catch (RuntimeException unparseable) {
+                    return Optional.empty();
                 }
+            }
+        });
+    }
 
-                lastError = new RuntimeException("OpenAI API returned status: " + response.getStatusCode());
-            } catch (Exception e) {
-                lastError = new RuntimeException(e);
+    private static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof InputStream stream) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+                // the connection is dropped either way
             }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("OpenAI retry interrupted");
+        }
+    }
+
+    /**
+     * Response times of recent hedge-eligible requests.
+     */
+    static final class LatencyWindow {
+        private static final int MIN_SAMPLES = 20;
 
-            if (attempt < Math.max(0, maxRetries)) {
-                logger.warn("OpenAI request attempt {}/{} failed: {}", attempt + 1, maxRetries + 1,
-                    lastError != null ? lastError.getMessage() : "unknown error");
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        /**
+         * @return the percentile in nanoseconds, or 0 if too few samples have been seen
+         */
+        synchronized long percentile(double percentile) {
+            if (size < MIN_SAMPLES) {
+                return 0;
             }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return sorted[Math.max(0, Math.min(index, size - 1))];
         }
+    }
+
+    /**
+     * Each request deposits {@code max-ratio} of a hedge and each hedge withdraws one,
+     * so over time hedges stay under that share of requests. The balance is capped so
+     * a quiet period cannot bank a burst of hedges.
+     */
+    static final class HedgeBudget {
+        private static final double MAX_BALANCE = 10.0;
+
+        private double balance;
 
-        logger.error("OpenAI API call failed after {} attempts", maxRetries + 1, lastError);
-        throw lastError != null ? lastError : new RuntimeException("OpenAI call failed");
+        synchronized void deposit(double amount) {
+            balance = Math.min(MAX_BALANCE, balance + amount);
+        }
+
+        synchronized boolean tryWithdraw() {
+            if (balance < 1.0) {
+                return false;
+            }
+            balance -= 1.0;
+            return true;
+        }
+    }
+
+    /**
+     * An open server-sent event stream of chat completion chunks. Not thread-safe,
+     * except that {@link #close()} may be called from another thread to abort a read
+     * in progress.
+     */
+    public final class ChatStream implements AutoCloseable {
+        private final InputStream body;
+        private final BufferedReader reader;
+        private volatile boolean closed;
+        private boolean done;
+
+        private ChatStream(InputStream body) {
+            this.body = body;
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Blocks until the next piece of generated text arrives.
+         *
+         * @return the text, or {@code null} once the completion has finished
+         */
+        public String nextDelta() {
+            try {
+                String line;
+                while (!done && (line = reader.readLine()) != null) {
+                    if (!line.startsWith("data:")) {
+                        continue; // blank separators, comments and other SSE fields
+                    }
+                    String data = line.substring(5).trim();
+                    if (STREAM_DONE.equals(data)) {
+                        done = true;
+                        break;
+                    }
+                    String delta = deltaContent(objectMapper.readTree(data));
+                    if (delta != null && !delta.isEmpty()) {
+                        return delta;
+                    }
+                }
+                done = true;
+                return null;
+            } catch (IOException e) {
+                if (closed) {
+                    throw new CancellationException("OpenAI stream closed");
+                }
+                throw new OpenAiException("OpenAI stream failed: " + e.getMessage(), 0, false, e);
+            }
+        }
+
+        private String deltaContent(JsonNode chunk) {
+            JsonNode choices = chunk.path("choices");
+            if (!choices.isArray() || choices.isEmpty()) {
+                return null;
+            }
+            JsonNode content = choices.get(0).path("delta").path("content");
+            return content.isTextual() ? content.asText() : null;
+        }
+
+        /**
+         * Closes the stream, cancelling the upstream request if it is still running.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                body.close();
+            } catch (IOException e) {
+                logger.debug("Error closing OpenAI stream: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A failed OpenAI call, with the HTTP status when there was one (0 otherwise).
+     */
+    public static class OpenAiException extends RuntimeException {
+        private final int status;
+        private final boolean retryable;
+
+        public OpenAiException(String message, int status, boolean retryable, Throwable cause) {
+            super(message, cause);
+            this.status = status;
+            this.retryable = retryable;
+        }
+
+        public int getStatus() { return status; }
+        public boolean isRetryable() { return retryable; }
+    }
+
+    /**
+     * Thrown without contacting OpenAI while the circuit breaker is open.
+     */
+    public static class CircuitOpenException extends OpenAiException {
+        public CircuitOpenException() {
+            super("OpenAI circuit breaker is open", 0, false, null);
+        }
     }
     
     // Request/Response DTOs for OpenAI API
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class OpenAiRequest {
         public String model;
         public List<OpenAiMessage> messages;
@@ -119,6 +623,7 @@ public class OpenAiClient {
         public Double temperature;
         @JsonProperty("top_p")
         public Double topP;
+        public Boolean stream;
         
         public OpenAiRequest(String model, List<OpenAiMessage> messages, Integer maxTokens, Double temperature, Double topP) {
             this.model = model;
@@ -132,6 +637,8 @@ public class OpenAiClient {
     public static class OpenAiMessage {
         public String role;
         public String content;
+
+        public OpenAiMessage() {}
         
         public OpenAiMessage(String role, String content) {
             this.role = role;
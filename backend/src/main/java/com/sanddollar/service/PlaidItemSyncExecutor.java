@@ -0,0 +1,113 @@
+package com.sanddollar.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sanddollar.entity.PlaidItem;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the per-item part of a Plaid sync concurrently on virtual threads.
+ *
+ * Every item is isolated: a failure is captured in that item's result instead of
+ * aborting its siblings. Concurrency is capped globally (shared by all users, which
+ * also bounds how many DB connections sync can hold) and per user, across all of
+ * that user's concurrent syncs (e.g. a webhook and a manual refresh).
+ */
+@Component
+@Profile("plaid")
+public class PlaidItemSyncExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(PlaidItemSyncExecutor.class);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore globalPermits;
+    private final int perUserConcurrency;
+    // Weak values: a user's semaphore lives as long as one of their syncs holds it
+    private final Cache<Long, Semaphore> userPermits = Caffeine.newBuilder().weakValues().build();
+
+    public PlaidItemSyncExecutor(
+            @Value("${plaid.sync.max-concurrency:8}") int maxConcurrency,
+            @Value("${plaid.sync.max-concurrency-per-user:3}") int maxConcurrencyPerUser) {
+        this.globalPermits = new Semaphore(Math.max(1, maxConcurrency), true);
+        this.perUserConcurrency = Math.max(1, maxConcurrencyPerUser);
+    }
+
+    public List<PlaidSyncService.ItemSyncResult> syncAll(Long userId, List<PlaidItem> items, ItemSyncTask task) {
+        Semaphore userPermits = this.userPermits.get(userId, id -> new Semaphore(perUserConcurrency, true));
+        List<Future<PlaidSyncService.ItemSyncResult>> futures = new ArrayList<>(items.size());
+
+        for (PlaidItem item : items) {
+            Long plaidItemId = item.getId();
+            String itemId = item.getItemId();
+            futures.add(executor.submit(() -> runIsolated(plaidItemId, itemId, task, userPermits)));
+        }
+
+        List<PlaidSyncService.ItemSyncResult> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(await(futures.get(i), items.get(i).getItemId()));
+        }
+        return results;
+    }
+
+    private PlaidSyncService.ItemSyncResult runIsolated(Long plaidItemId, String itemId, ItemSyncTask task,
+                                                        Semaphore userPermits) throws InterruptedException {
+        // Always take the per-user permit first so a waiting user never holds a global slot
+        userPermits.acquire();
+        try {
+            globalPermits.acquire();
+            try {
+                long start = System.nanoTime();
+                try {
+                    PlaidSyncService.SyncResult result = task.sync(plaidItemId);
+                    return PlaidSyncService.ItemSyncResult.success(itemId, result, elapsedMs(start));
+                } catch (Exception e) {
+                    logger.warn("Plaid sync failed for item {}: {}", itemId, e.getMessage(), e);
+                    return PlaidSyncService.ItemSyncResult.failure(itemId, e, elapsedMs(start));
+                }
+            } finally {
+                globalPermits.release();
+            }
+        } finally {
+            userPermits.release();
+        }
+    }
+
+    private PlaidSyncService.ItemSyncResult await(Future<PlaidSyncService.ItemSyncResult> future, String itemId) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return PlaidSyncService.ItemSyncResult.failure(itemId, e, 0L);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return PlaidSyncService.ItemSyncResult.failure(itemId, cause, 0L);
+        }
+    }
+
+    private long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface ItemSyncTask {
+        PlaidSyncService.SyncResult sync(Long plaidItemId);
+    }
+}
@@ -0,0 +1,136 @@
+package com.sanddollar.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Cross-instance mutual exclusion for syncing a Plaid item, using Postgres session
+ * advisory locks.
+ *
+ * A sync commits page by page, so the lock cannot live in one transaction; instead
+ * each lease pins its own connection for the length of the sync. If the instance
+ * dies the connection drops and Postgres releases the lock.
+ *
+ * Keys use the two-int form, (namespace, item id), which Postgres keeps apart from
+ * single-bigint keys. Item ids up to 2^32 - 1 map to distinct keys; larger ids are
+ * refused rather than allowed to share a lock.
+ */
+@Component
+@Profile("plaid")
+public class PlaidItemSyncLock {
+    private static final Logger logger = LoggerFactory.getLogger(PlaidItemSyncLock.class);
+
+    // First half of the lock key, so item locks cannot collide with other advisory locks
+    private static final int LOCK_NAMESPACE = 0x504C4149;
+    private static final long MAX_ITEM_ID = 0xFFFFFFFFL;
+
+    private final DataSource dataSource;
+
+    public PlaidItemSyncLock(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Tries to take the sync lock for an item without waiting.
+     *
+     * @return the held lease, or empty if another session is already syncing the item
+     */
+    public Optional<Lease> tryAcquire(Long plaidItemId) {
+        if (plaidItemId < 0 || plaidItemId > MAX_ITEM_ID) {
+            throw new IllegalArgumentException("Plaid item id out of advisory lock range: " + plaidItemId);
+        }
+        // Unsigned: ids above 2^31 wrap to negative ints but stay distinct
+        int key = (int) plaidItemId.longValue();
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            if (query(connection, "SELECT pg_try_advisory_lock(?, ?)", key)) {
+                return Optional.of(new Lease(connection, key));
+            }
+            connection.close();
+            return Optional.empty();
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw new IllegalStateException("Failed to acquire sync lock for Plaid item " + plaidItemId, e);
+        }
+    }
+
+    private static boolean query(Connection connection, String sql, int key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            statement.setInt(2, key);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Throws away the physical connection instead of returning it to the pool, ending
+     * its session and with it any advisory lock the session still holds.
+     */
+    private void discard(Connection connection) {
+        try {
+            if (dataSource instanceof HikariDataSource hikari) {
+                hikari.evictConnection(connection);
+                return;
+            }
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                dataSource.unwrap(HikariDataSource.class).evictConnection(connection);
+                return;
+            }
+            connection.abort(Runnable::run);
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Failed to discard advisory lock connection", e);
+        }
+        closeQuietly(connection);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close advisory lock connection", e);
+        }
+    }
+
+    public final class Lease implements AutoCloseable {
+        private final Connection connection;
+        private final int key;
+
+        private Lease(Connection connection, int key) {
+            this.connection = connection;
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            boolean released;
+            try {
+                released = query(connection, "SELECT pg_advisory_unlock(?, ?)", key);
+            } catch (SQLException e) {
+                logger.warn("Failed to release Plaid item sync lock {}", key, e);
+                released = false;
+            }
+            if (released) {
+                closeQuietly(connection);
+            } else {
+                // A pooled connection would carry the lock on to its next borrower
+                discard(connection);
+            }
+        }
+    }
+}
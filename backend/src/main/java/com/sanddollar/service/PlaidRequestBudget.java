@@ -0,0 +1,60 @@
+package com.sanddollar.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces calls to the Plaid API made by background and on-demand syncs to a fixed
+ * requests-per-second budget.
+ *
+ * The budget is for the whole deployment: each of the {@code plaid.sync.replicas}
+ * instances paces itself to an equal share of it, so adding replicas does not raise
+ * the total rate as long as the replica count is kept in step. Callers reserve the
+ * next free slot and park until it comes up, so bursts from many concurrent syncs are
+ * smoothed instead of tripping Plaid's rate limits.
+ */
+@Component
+@Profile("plaid")
+public class PlaidRequestBudget {
+    private final long intervalNanos;
+    private long nextSlotNanos = System.nanoTime();
+
+    public PlaidRequestBudget(@Value("${plaid.sync.max-requests-per-second:10}") double maxRequestsPerSecond,
+                              @Value("${plaid.sync.replicas:1}") int replicas) {
+        double perInstance = maxRequestsPerSecond / Math.max(1, replicas);
+        this.intervalNanos = perInstance > 0
+            ? (long) (TimeUnit.SECONDS.toNanos(1) / perInstance)
+            : 0L;
+    }
+
+    /**
+     * Blocks until this caller may issue one Plaid request.
+     */
+    public void acquire() {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long waitNanos = reserve();
+        while (waitNanos > 0) {
+            long deadline = System.nanoTime() + waitNanos;
+            LockSupport.parkNanos(this, waitNanos);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for Plaid request budget");
+            }
+            waitNanos = deadline - System.nanoTime();
+        }
+    }
+
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        // Idle time does not bank credit: at most one request goes out immediately
+        long slot = Math.max(nextSlotNanos, now);
+        nextSlotNanos = slot + intervalNanos;
+        return slot - now;
+    }
+}
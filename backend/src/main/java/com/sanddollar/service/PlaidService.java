@@ -20,7 +20,6 @@ import com.sanddollar.entity.BalanceSnapshot;
 import com.sanddollar.entity.PlaidItem;
 import com.sanddollar.entity.User;
 import com.sanddollar.repository.AccountRepository;
-import com.sanddollar.repository.BalanceSnapshotRepository;
 import com.sanddollar.repository.PlaidItemRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,27 +46,30 @@ public class PlaidService implements BankDataProvider {
 
     private final PlaidApi plaidApi;
     private final PlaidConfig plaidConfig;
-    private final CryptoService cryptoService;
+    private final PlaidAccessTokenCipher tokenCipher;
     private final PlaidItemRepository plaidItemRepository;
     private final AccountRepository accountRepository;
-    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountBalanceRecorder balanceRecorder;
     private final PlaidSyncService plaidSyncService;
+    private final PlaidWebhookInbox webhookInbox;
 
     public PlaidService(
             PlaidApi plaidApi,
             PlaidConfig plaidConfig,
-            CryptoService cryptoService,
+            PlaidAccessTokenCipher tokenCipher,
             PlaidItemRepository plaidItemRepository,
             AccountRepository accountRepository,
-            BalanceSnapshotRepository balanceSnapshotRepository,
-            PlaidSyncService plaidSyncService) {
+            AccountBalanceRecorder balanceRecorder,
+            PlaidSyncService plaidSyncService,
+            PlaidWebhookInbox webhookInbox) {
         this.plaidApi = plaidApi;
         this.plaidConfig = plaidConfig;
-        this.cryptoService = cryptoService;
+        this.tokenCipher = tokenCipher;
         this.plaidItemRepository = plaidItemRepository;
         this.accountRepository = accountRepository;
-        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.balanceRecorder = balanceRecorder;
         this.plaidSyncService = plaidSyncService;
+        this.webhookInbox = webhookInbox;
     }
 
     @Override
@@ -119,7 +121,7 @@ public class PlaidService implements BankDataProvider {
 
             ItemPublicTokenExchangeResponse body = response.body();
             String accessToken = body.getAccessToken();
-            String encryptedToken = encrypt(accessToken);
+            String encryptedToken = tokenCipher.encrypt(accessToken);
 
             PlaidItem plaidItem = plaidItemRepository.findByItemId(body.getItemId())
                 .orElseGet(PlaidItem::new);
@@ -144,7 +146,7 @@ public class PlaidService implements BankDataProvider {
         Instant asOf = Instant.now();
 
         for (PlaidItem item : items) {
-            String accessToken = decrypt(item.getAccessTokenEncrypted());
+            String accessToken = tokenCipher.decrypt(item);
             totalAvailableCents += upsertAccounts(item, accessToken, asOf);
         }
 
@@ -161,6 +163,7 @@ public class PlaidService implements BankDataProvider {
         payload.put("success", true);
         payload.put("accountsUpserted", result.accountsUpserted());
         payload.put("transactionsUpserted", result.transactionsUpserted());
+        payload.put("items", result.items());
         payload.put("message", "Plaid transactions synced");
         if (cursor != null) {
             payload.put("receivedCursor", cursor);
@@ -171,6 +174,12 @@ public class PlaidService implements BankDataProvider {
     @Override
     public void handleWebhook(String itemId, String webhookType, String webhookCode) {
         logger.info("Received Plaid webhook: item={}, type={}, code={}", itemId, webhookType, webhookCode);
+        if (itemId == null || webhookCode == null) {
+            logger.warn("Ignoring Plaid webhook without item_id or webhook_code");
+            return;
+        }
+        // Only record the webhook here; PlaidWebhookDispatcher runs the sync in the background
+        webhookInbox.enqueue(itemId, webhookType, webhookCode);
     }
 
     public Map<String, Object> refreshBalances(User user) {
@@ -228,7 +237,7 @@ public class PlaidService implements BankDataProvider {
                     snapshot.setAvailableCents(availableCents);
                     snapshot.setCurrentCents(currentCents != null ? currentCents : availableCents);
                     snapshot.setCurrency(balance.getIsoCurrencyCode());
-                    balanceSnapshotRepository.save(snapshot);
+                    balanceRecorder.record(snapshot);
 
                     if (availableCents != null) {
                         totalAvailableCents += availableCents;
@@ -266,24 +275,6 @@ public class PlaidService implements BankDataProvider {
         }
     }
 
-    private String encrypt(String raw) {
-        try {
-            return cryptoService.encrypt(raw);
-        } catch (Exception e) {
-            logger.warn("Failed to encrypt Plaid access token. Falling back to plain text storage. Ensure ENCRYPTION_KEY is set.", e);
-            return raw;
-        }
-    }
-
-    private String decrypt(String encrypted) {
-        try {
-            return cryptoService.decrypt(encrypted);
-        } catch (Exception e) {
-            logger.warn("Failed to decrypt Plaid access token. Assuming token stored in plain text.", e);
-            return encrypted;
-        }
-    }
-
     public record PlaidError(String code, String type, String message) {}
 
     public static class PlaidApiException extends RuntimeException {
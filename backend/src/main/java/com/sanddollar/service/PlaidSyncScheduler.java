@@ -0,0 +1,126 @@
+package com.sanddollar.service;
+
+import com.sanddollar.entity.PlaidItem;
+import com.sanddollar.repository.PlaidItemRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodically runs an incremental sync for every ACTIVE Plaid item.
+ *
+ * Each cycle picks the items that have not completed a sync within half an interval,
+ * stalest first, and spreads their start times across the interval with random
+ * jitter so instances and items do not all hit Plaid at the same moment. Every
+ * instance schedules the same due items; the per-item advisory lock in
+ * {@link PlaidSyncService} makes an item that another instance is syncing a cheap
+ * skip, and one it has already synced this cycle is skipped once the lock is held.
+ */
+@Component
+@Profile("plaid")
+public class PlaidSyncScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(PlaidSyncScheduler.class);
+
+    private final PlaidItemRepository plaidItemRepository;
+    private final PlaidSyncService plaidSyncService;
+    private final boolean enabled;
+    private final Duration interval;
+    private final double spread;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Set<Long> scheduledItems = ConcurrentHashMap.newKeySet();
+
+    public PlaidSyncScheduler(
+            PlaidItemRepository plaidItemRepository,
+            PlaidSyncService plaidSyncService,
+            @Value("${plaid.scheduler.enabled:true}") boolean enabled,
+            @Value("${plaid.scheduler.interval-ms:14400000}") long intervalMs,
+            @Value("${plaid.scheduler.spread:0.8}") double spread,
+            @Value("${plaid.scheduler.max-concurrency:2}") int maxConcurrency) {
+        this.plaidItemRepository = plaidItemRepository;
+        this.plaidSyncService = plaidSyncService;
+        this.enabled = enabled;
+        this.interval = Duration.ofMillis(Math.max(60_000L, intervalMs));
+        this.spread = Math.min(1.0, Math.max(0.0, spread));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, maxConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "plaid-sync-scheduler-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @Scheduled(fixedDelayString = "${plaid.scheduler.interval-ms:14400000}",
+               initialDelayString = "${plaid.scheduler.initial-delay-ms:60000}")
+    public void scheduleCycle() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Instant syncedBefore = Instant.now().minus(interval.dividedBy(2));
+            List<Long> due = plaidItemRepository.findIdsDueForSync(PlaidItem.PlaidItemStatus.ACTIVE, syncedBefore);
+            if (due.isEmpty()) {
+                return;
+            }
+
+            // Items keep their stalest-first order; jitter stays inside each item's slot
+            long windowNanos = (long) (interval.toNanos() * spread);
+            long slotNanos = windowNanos / due.size();
+            int scheduled = 0;
+            for (int i = 0; i < due.size(); i++) {
+                Long plaidItemId = due.get(i);
+                if (!scheduledItems.add(plaidItemId)) {
+                    continue; // still queued or running from the previous cycle
+                }
+                long jitter = slotNanos > 0 ? ThreadLocalRandom.current().nextLong(slotNanos) : 0L;
+                executor.schedule(() -> syncItem(plaidItemId, syncedBefore), i * slotNanos + jitter,
+                    TimeUnit.NANOSECONDS);
+                scheduled++;
+            }
+            logger.info("Scheduled background Plaid sync for {} of {} due items over {}",
+                scheduled, due.size(), Duration.ofNanos(windowNanos));
+        } catch (Exception e) {
+            logger.error("Failed to schedule background Plaid sync", e);
+        }
+    }
+
+    private void syncItem(Long plaidItemId, Instant syncedBefore) {
+        try {
+            Optional<PlaidSyncService.SyncResult> result =
+                plaidSyncService.incrementalSyncItemIfDue(plaidItemId, syncedBefore);
+            if (result.isEmpty()) {
+                logger.debug("Skipping background Plaid sync for item {}: synced since the cycle started", plaidItemId);
+                return;
+            }
+            logger.debug("Background Plaid sync for item {}: {} transactions upserted",
+                plaidItemId, result.get().transactionsUpserted());
+        } catch (PlaidSyncService.SyncInProgressException e) {
+            logger.debug("Skipping background Plaid sync for item {}: {}", plaidItemId, e.getMessage());
+        } catch (Exception e) {
+            logger.warn("Background Plaid sync failed for item {}: {}", plaidItemId, e.getMessage(), e);
+        } finally {
+            scheduledItems.remove(plaidItemId);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -3,9 +3,6 @@ package com.sanddollar.service;
 import com.plaid.client.model.AccountBase;
 import com.plaid.client.model.AccountsGetRequest;
 import com.plaid.client.model.AccountsGetResponse;
-import com.plaid.client.model.PersonalFinanceCategory;
-import com.plaid.client.model.RemovedTransaction;
-import com.plaid.client.model.TransactionCode;
 import com.plaid.client.model.TransactionsSyncRequest;
 import com.plaid.client.model.TransactionsSyncRequestOptions;
 import com.plaid.client.model.TransactionsSyncResponse;
@@ -13,22 +10,28 @@ import com.plaid.client.request.PlaidApi;
 import com.sanddollar.config.PlaidConfig;
 import com.sanddollar.entity.Account;
 import com.sanddollar.entity.PlaidItem;
-import com.sanddollar.entity.Transaction;
+import com.sanddollar.entity.PlaidSyncRun;
 import com.sanddollar.entity.User;
 import com.sanddollar.repository.AccountRepository;
 import com.sanddollar.repository.PlaidItemRepository;
-import com.sanddollar.repository.TransactionRepository;
+import com.sanddollar.repository.PlaidSyncRunRepository;
 import com.sanddollar.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import retrofit2.Call;
 import retrofit2.Response;
 
 import java.io.IOException;
-import java.time.LocalDate;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,19 +40,26 @@ import java.util.Optional;
 
 @Service
 @Profile("plaid")
-@Transactional
 public class PlaidSyncService {
     private static final Logger logger = LoggerFactory.getLogger(PlaidSyncService.class);
     private static final int PAGE_SIZE = 100;
+    private static final int MAX_PAGINATION_RESTARTS = 3;
+    private static final List<PlaidSyncRun.SyncStatus> UNFINISHED_RUN_STATUSES =
+        List.of(PlaidSyncRun.SyncStatus.RUNNING, PlaidSyncRun.SyncStatus.FAILED);
 
     private final PlaidApi plaidApi;
     private final PlaidConfig plaidConfig;
     private final UserRepository userRepository;
     private final PlaidItemRepository plaidItemRepository;
     private final AccountRepository accountRepository;
-    private final TransactionRepository transactionRepository;
-    private final CryptoService cryptoService;
-    private final PlaidCategoryMapper categoryMapper;
+    private final PlaidSyncRunRepository syncRunRepository;
+    private final PlaidAccessTokenCipher tokenCipher;
+    private final PlaidTransactionBatchWriter batchWriter;
+    private final PlaidItemSyncExecutor itemSyncExecutor;
+    private final PlaidItemSyncLock syncLock;
+    private final PlaidRequestBudget requestBudget;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration runRetention;
 
     public PlaidSyncService(
             PlaidApi plaidApi,
@@ -57,17 +67,28 @@ public class PlaidSyncService {
             UserRepository userRepository,
             PlaidItemRepository plaidItemRepository,
             AccountRepository accountRepository,
-            TransactionRepository transactionRepository,
-            CryptoService cryptoService,
-            PlaidCategoryMapper categoryMapper) {
+            PlaidSyncRunRepository syncRunRepository,
+            PlaidAccessTokenCipher tokenCipher,
+            PlaidTransactionBatchWriter batchWriter,
+            PlaidItemSyncExecutor itemSyncExecutor,
+            PlaidItemSyncLock syncLock,
+            PlaidRequestBudget requestBudget,
+            PlatformTransactionManager transactionManager,
+            @Value("${plaid.sync.run-retention-days:14}") long runRetentionDays) {
         this.plaidApi = plaidApi;
         this.plaidConfig = plaidConfig;
         this.userRepository = userRepository;
         this.plaidItemRepository = plaidItemRepository;
         this.accountRepository = accountRepository;
-        this.transactionRepository = transactionRepository;
-        this.cryptoService = cryptoService;
-        this.categoryMapper = categoryMapper;
+        this.syncRunRepository = syncRunRepository;
+        this.tokenCipher = tokenCipher;
+        this.batchWriter = batchWriter;
+        this.itemSyncExecutor = itemSyncExecutor;
+        this.syncLock = syncLock;
+        this.requestBudget = requestBudget;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.runRetention = Duration.ofDays(Math.max(1, runRetentionDays));
     }
 
     public SyncResult initialBackfill(Long userId) {
@@ -80,6 +101,33 @@ public class PlaidSyncService {
         return syncUserItems(userId, false);
     }
 
+    /**
+     * Incremental sync of a single item, used when Plaid tells us that item has updates.
+     */
+    public SyncResult incrementalSyncItem(Long plaidItemId) {
+        validateCredentials();
+        return syncItem(plaidItemId, false);
+    }
+
+    /**
+     * Incremental sync of a single item unless it has completed a sync since
+     * {@code syncedBefore}. Checked under the item's lock, so when several instances
+     * schedule the same due item only the first to get there calls Plaid.
+     *
+     * @return empty if the item was skipped as already synced
+     * @throws SyncInProgressException if the item is already being synced elsewhere
+     */
+    public Optional<SyncResult> incrementalSyncItemIfDue(Long plaidItemId, Instant syncedBefore) {
+        validateCredentials();
+        try (PlaidItemSyncLock.Lease ignored = lockItem(plaidItemId)) {
+            Instant lastSynced = plaidItemRepository.findLastSyncedAt(plaidItemId);
+            if (lastSynced != null && !lastSynced.isBefore(syncedBefore)) {
+                return Optional.empty();
+            }
+            return Optional.of(syncItemPages(plaidItemId, false));
+        }
+    }
+
     private SyncResult syncUserItems(Long userId, boolean resetCursor) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
@@ -87,54 +135,159 @@ public class PlaidSyncService {
         validateCredentials();
 
         List<PlaidItem> items = plaidItemRepository.findByUserAndStatus(user, PlaidItem.PlaidItemStatus.ACTIVE);
-        int accountUpserts = 0;
-        int transactionUpserts = 0;
 
-        for (PlaidItem item : items) {
-            SyncResult result = syncItem(item, resetCursor);
-            accountUpserts += result.accountsUpserted();
-            transactionUpserts += result.transactionsUpserted();
+        // Each item commits on its own, so one broken institution
+        // no longer discards the work done for the others
+        List<ItemSyncResult> itemResults = itemSyncExecutor.syncAll(userId, items,
+            plaidItemId -> syncItem(plaidItemId, resetCursor));
+
+        SyncResult result = SyncResult.of(itemResults);
+        logger.info("Plaid sync finished for user {}: {} items, {} failed, {} transactions upserted",
+            userId, itemResults.size(), result.failedItems(), result.transactionsUpserted());
+        return result;
+    }
+
+    /**
+     * Syncs one item while holding its advisory lock, so no two instances sync the
+     * same item at once.
+     *
+     * @throws SyncInProgressException if the item is already being synced elsewhere
+     */
+    private SyncResult syncItem(Long plaidItemId, boolean initialBackfill) {
+        try (PlaidItemSyncLock.Lease ignored = lockItem(plaidItemId)) {
+            return syncItemPages(plaidItemId, initialBackfill);
         }
+    }
 
-        return new SyncResult(accountUpserts, transactionUpserts);
+    private PlaidItemSyncLock.Lease lockItem(Long plaidItemId) {
+        return syncLock.tryAcquire(plaidItemId).orElseThrow(() -> new SyncInProgressException(plaidItemId));
     }
 
-    private SyncResult syncItem(PlaidItem plaidItem, boolean resetCursor) {
-        String decryptedToken = decryptToken(plaidItem);
-        String cursor = resetCursor ? null : plaidItem.getCursor();
+    /**
+     * Syncs one item page by page. Each page's upserts, the item cursor and the run
+     * record commit in one transaction, so a crash loses at most the page in flight.
+     */
+    private SyncResult syncItemPages(Long plaidItemId, boolean initialBackfill) {
+        Map<String, Account> accountCache = new HashMap<>();
+        ItemSyncContext context = transactionTemplate.execute(status -> {
+            PlaidItem plaidItem = plaidItemRepository.findById(plaidItemId)
+                .orElseThrow(() -> new IllegalStateException("Plaid item not found: " + plaidItemId));
+            String accessToken = tokenCipher.decrypt(plaidItem);
+            int accountsUpdated = refreshAccountsForItem(plaidItem, accessToken, accountCache);
+            return openRun(plaidItem, accessToken, accountsUpdated, initialBackfill);
+        });
+
+        String cursor = context.cursor();
         boolean hasMore = true;
-        int accountsUpdated = 0;
         int transactionsUpdated = 0;
-        Map<String, Account> accountCache = new HashMap<>();
+        int paginationRestarts = 0;
 
-        accountsUpdated += refreshAccountsForItem(plaidItem, decryptedToken, accountCache);
+        try {
+            while (hasMore) {
+                TransactionsSyncResponse response;
+                try {
+                    response = executeCall(plaidApi.transactionsSync(buildSyncRequest(context.accessToken(), cursor)));
+                } catch (IllegalStateException e) {
+                    if (!isPaginationMutation(e) || ++paginationRestarts > MAX_PAGINATION_RESTARTS) {
+                        throw e;
+                    }
+                    // Plaid requires restarting from the cursor the pagination began with;
+                    // re-applying already committed pages is harmless because writes are upserts
+                    logger.warn("Transactions changed during pagination for item {}, restarting from run start cursor",
+                        context.itemId());
+                    cursor = context.startCursor();
+                    continue;
+                }
+
+                PlaidTransactionBatchWriter.PageResult page = transactionTemplate.execute(
+                    status -> commitPage(context, accountCache, response));
+                transactionsUpdated += page.upserted();
+                logger.info("Synced Plaid page for item {}: {} upserted, {} removed, {} rows/sec",
+                    context.itemId(), page.upserted(), page.removed(), Math.round(page.rowsPerSecond()));
+
+                cursor = response.getNextCursor();
+                hasMore = Boolean.TRUE.equals(response.getHasMore());
+            }
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> syncRunRepository.findById(context.runId())
+                .ifPresent(run -> run.fail(e.getMessage(), Instant.now())));
+            throw e;
+        }
 
-        while (hasMore) {
-            TransactionsSyncRequest request = new TransactionsSyncRequest()
-                .accessToken(decryptedToken)
-                .clientId(plaidConfig.getClientId())
-                .secret(plaidConfig.getSecret())
-                .cursor(cursor)
-                .count(PAGE_SIZE)
-                .options(new TransactionsSyncRequestOptions()
-                    .includePersonalFinanceCategory(Boolean.TRUE)
-                    .includeOriginalDescription(Boolean.TRUE)
-                );
+        return new SyncResult(context.accountsUpserted(), transactionsUpdated);
+    }
 
-            TransactionsSyncResponse response = executeCall(plaidApi.transactionsSync(request));
+    /**
+     * Every sync records a run, so finished ones are dropped once past the retention
+     * period. Unfinished and failed initial runs are kept, as a later backfill resumes them.
+     */
+    @Scheduled(fixedDelayString = "${plaid.sync.run-purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeFinishedRuns() {
+        int deleted = syncRunRepository.deleteFinishedBefore(Instant.now().minus(runRetention));
+        if (deleted > 0) {
+            logger.debug("Purged {} finished Plaid sync runs", deleted);
+        }
+    }
+
+    private ItemSyncContext openRun(PlaidItem plaidItem, String accessToken, int accountsUpserted, boolean initialBackfill) {
+        if (initialBackfill) {
+            Optional<PlaidSyncRun> unfinished = syncRunRepository.findFirstByPlaidItemIdAndModeAndStatusInOrderByStartedAtDesc(
+                plaidItem.getId(), PlaidSyncRun.SyncMode.INITIAL, UNFINISHED_RUN_STATUSES);
+            if (unfinished.isPresent()) {
+                PlaidSyncRun run = unfinished.get();
+                run.resume();
+                logger.info("Resuming initial backfill for item {} after {} committed pages",
+                    plaidItem.getItemId(), run.getPagesCommitted());
+                return new ItemSyncContext(plaidItem.getId(), plaidItem.getItemId(), accessToken, run.getId(),
+                    run.getStartCursor(), plaidItem.getCursor(), accountsUpserted);
+            }
+        }
 
-            transactionsUpdated += upsertTransactions(accountCache, response.getAdded());
-            transactionsUpdated += upsertTransactions(accountCache, response.getModified());
-            removeTransactions(response.getRemoved());
+        String cursor = initialBackfill ? null : plaidItem.getCursor();
+        PlaidSyncRun.SyncMode mode = initialBackfill ? PlaidSyncRun.SyncMode.INITIAL : PlaidSyncRun.SyncMode.INCREMENTAL;
+        PlaidSyncRun run = syncRunRepository.save(new PlaidSyncRun(plaidItem.getId(), mode, cursor));
+        return new ItemSyncContext(plaidItem.getId(), plaidItem.getItemId(), accessToken, run.getId(),
+            cursor, cursor, accountsUpserted);
+    }
 
-            cursor = response.getNextCursor();
-            hasMore = Boolean.TRUE.equals(response.getHasMore());
+    private PlaidTransactionBatchWriter.PageResult commitPage(ItemSyncContext context,
+                                                             Map<String, Account> accountCache,
+                                                             TransactionsSyncResponse response) {
+        resolveAccounts(accountCache, response.getAdded());
+        resolveAccounts(accountCache, response.getModified());
+        PlaidTransactionBatchWriter.PageResult page = batchWriter.writePage(
+            accountCache, response.getAdded(), response.getModified(), response.getRemoved());
+
+        plaidItemRepository.updateCursor(context.plaidItemId(), response.getNextCursor());
+
+        Instant now = Instant.now();
+        PlaidSyncRun run = syncRunRepository.findById(context.runId())
+            .orElseThrow(() -> new IllegalStateException("Sync run not found: " + context.runId()));
+        run.recordPage(page.upserted(), now);
+        if (!Boolean.TRUE.equals(response.getHasMore())) {
+            run.complete(now);
+            syncRunRepository.completeOtherRuns(context.plaidItemId(), run.getId(), now);
+            plaidItemRepository.markSynced(context.plaidItemId(), now);
         }
+        return page;
+    }
 
-        plaidItem.setCursor(cursor);
-        plaidItemRepository.save(plaidItem);
+    private TransactionsSyncRequest buildSyncRequest(String accessToken, String cursor) {
+        return new TransactionsSyncRequest()
+            .accessToken(accessToken)
+            .clientId(plaidConfig.getClientId())
+            .secret(plaidConfig.getSecret())
+            .cursor(cursor)
+            .count(PAGE_SIZE)
+            .options(new TransactionsSyncRequestOptions()
+                .includePersonalFinanceCategory(Boolean.TRUE)
+                .includeOriginalDescription(Boolean.TRUE)
+            );
+    }
 
-        return new SyncResult(accountsUpdated, transactionsUpdated);
+    private boolean isPaginationMutation(IllegalStateException e) {
+        return e.getMessage() != null && e.getMessage().contains("TRANSACTIONS_SYNC_MUTATION_DURING_PAGINATION");
     }
 
     private int refreshAccountsForItem(PlaidItem plaidItem, String accessToken, Map<String, Account> cache) {
@@ -218,120 +371,21 @@ public class PlaidSyncService {
         return changed;
     }
 
-    private int upsertTransactions(Map<String, Account> accountCache, List<com.plaid.client.model.Transaction> plaidTransactions) {
-        if (plaidTransactions == null || plaidTransactions.isEmpty()) {
-            return 0;
+    private void resolveAccounts(Map<String, Account> accountCache, List<com.plaid.client.model.Transaction> plaidTransactions) {
+        if (plaidTransactions == null) {
+            return;
         }
-
-        int upserts = 0;
         for (com.plaid.client.model.Transaction plaidTxn : plaidTransactions) {
             String accountId = plaidTxn.getAccountId();
-            if (accountId == null) {
-                continue;
-            }
-
-            Account account = accountCache.computeIfAbsent(accountId, id ->
-                accountRepository.findByPlaidAccountId(id).orElse(null)
-            );
-
-            if (account == null) {
-                logger.warn("Skipping transaction {} because account {} was not found", plaidTxn.getTransactionId(), accountId);
-                continue;
-            }
-
-            if (upsertTransaction(account, plaidTxn)) {
-                upserts++;
-            }
-        }
-        return upserts;
-    }
-
-    private boolean upsertTransaction(Account account, com.plaid.client.model.Transaction plaidTxn) {
-        String plaidTransactionId = plaidTxn.getTransactionId();
-        if (plaidTransactionId == null) {
-            return false;
-        }
-
-        boolean pending = Boolean.TRUE.equals(plaidTxn.getPending());
-        String pendingTransactionId = plaidTxn.getPendingTransactionId();
-
-        Optional<Transaction> existing = transactionRepository.findByPlaidTransactionId(plaidTransactionId);
-        Transaction entity = existing.orElse(null);
-
-        if (entity == null && !pending && pendingTransactionId != null) {
-            entity = transactionRepository.findByPlaidTransactionId(pendingTransactionId)
-                .orElseGet(() -> transactionRepository.findByPendingTransactionId(pendingTransactionId).orElse(null));
-        }
-
-        boolean isNew = false;
-        if (entity == null) {
-            entity = new Transaction();
-            entity.setAccount(account);
-            entity.setExternalId(plaidTransactionId);
-            entity.setPlaidTransactionId(plaidTransactionId);
-            isNew = true;
-        }
-
-        entity.setAccount(account);
-        entity.setExternalId(plaidTransactionId);
-        entity.setPlaidTransactionId(plaidTransactionId);
-        entity.setPendingTransactionId(pendingTransactionId);
-        entity.setPending(pending);
-
-        LocalDate date = plaidTxn.getDate();
-        if (date != null) {
-            entity.setDate(date);
-        }
-
-        entity.setName(plaidTxn.getName());
-        entity.setMerchantName(plaidTxn.getMerchantName());
-
-        Long amountCents = normalizeAmount(plaidTxn.getAmount());
-        entity.setAmountCents(amountCents);
-        entity.setCurrency(plaidTxn.getIsoCurrencyCode());
-
-        PersonalFinanceCategory pfc = plaidTxn.getPersonalFinanceCategory();
-        PlaidCategoryMapper.CategoryMapping mapping = categoryMapper.mapCategory(pfc);
-        entity.setCategoryTop(mapping.primary());
-        entity.setCategorySub(mapping.secondary());
-        entity.setIsTransfer(isLikelyTransfer(plaidTxn, pfc));
-
-        transactionRepository.save(entity);
-        return true;
-    }
-
-    private void removeTransactions(List<RemovedTransaction> removedTransactions) {
-        if (removedTransactions == null || removedTransactions.isEmpty()) {
-            return;
-        }
-
-        for (RemovedTransaction removed : removedTransactions) {
-            String transactionId = removed.getTransactionId();
-            if (transactionId == null) {
-                continue;
+            if (accountId != null && !accountCache.containsKey(accountId)) {
+                accountRepository.findByPlaidAccountId(accountId)
+                    .ifPresent(account -> accountCache.put(accountId, account));
             }
-            transactionRepository.findByPlaidTransactionId(transactionId)
-                .ifPresent(transactionRepository::delete);
-        }
-    }
-
-    private boolean isLikelyTransfer(com.plaid.client.model.Transaction plaidTxn, PersonalFinanceCategory category) {
-        if (category != null && "TRANSFER".equalsIgnoreCase(category.getPrimary())) {
-            return true;
-        }
-        TransactionCode transactionCode = plaidTxn.getTransactionCode();
-        return transactionCode != null && "TRANSFER".equalsIgnoreCase(transactionCode.getValue());
-    }
-
-    private Long normalizeAmount(Double amount) {
-        if (amount == null) {
-            return 0L;
         }
-        long cents = Math.round(Math.abs(amount) * 100);
-        return amount > 0 ? -cents : cents;
     }
 
     private <T> T executeCall(Call<T> call) {
+        requestBudget.acquire();
         try {
             Response<T> response = call.execute();
             if (!response.isSuccessful() || response.body() == null) {
@@ -344,15 +398,6 @@ public class PlaidSyncService {
         }
     }
 
-    private String decryptToken(PlaidItem plaidItem) {
-        try {
-            return cryptoService.decrypt(plaidItem.getAccessTokenEncrypted());
-        } catch (Exception e) {
-            logger.warn("Failed to decrypt access token for item {}. Assuming token stored in plain text.", plaidItem.getItemId(), e);
-            return plaidItem.getAccessTokenEncrypted();
-        }
-    }
-
     private void validateCredentials() {
         if (plaidConfig.getClientId() == null || plaidConfig.getClientId().isBlank()) {
             throw new IllegalStateException("PLAID_CLIENT_ID is not configured");
@@ -362,5 +407,48 @@ public class PlaidSyncService {
         }
     }
 
-    public record SyncResult(int accountsUpserted, int transactionsUpserted) { }
+    public static class SyncInProgressException extends IllegalStateException {
+        public SyncInProgressException(Long plaidItemId) {
+            super("Plaid item " + plaidItemId + " is already being synced");
+        }
+    }
+
+    private record ItemSyncContext(Long plaidItemId, String itemId, String accessToken, Long runId,
+                                   String startCursor, String cursor, int accountsUpserted) { }
+
+    public record SyncResult(int accountsUpserted, int transactionsUpserted, List<ItemSyncResult> items) {
+        public SyncResult(int accountsUpserted, int transactionsUpserted) {
+            this(accountsUpserted, transactionsUpserted, List.of());
+        }
+
+        static SyncResult of(List<ItemSyncResult> items) {
+            int accounts = 0;
+            int transactions = 0;
+            for (ItemSyncResult item : items) {
+                accounts += item.accountsUpserted();
+                transactions += item.transactionsUpserted();
+            }
+            return new SyncResult(accounts, transactions, List.copyOf(items));
+        }
+
+        public long failedItems() {
+            return items.stream().filter(item -> !item.succeeded()).count();
+        }
+    }
+
+    public record ItemSyncResult(String itemId, int accountsUpserted, int transactionsUpserted,
+                                 long durationMs, String error) {
+        static ItemSyncResult success(String itemId, SyncResult result, long durationMs) {
+            return new ItemSyncResult(itemId, result.accountsUpserted(), result.transactionsUpserted(), durationMs, null);
+        }
+
+        static ItemSyncResult failure(String itemId, Throwable error, long durationMs) {
+            String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+            return new ItemSyncResult(itemId, 0, 0, durationMs, message);
+        }
+
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
 }
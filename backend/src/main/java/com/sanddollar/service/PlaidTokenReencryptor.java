@@ -0,0 +1,143 @@
+package com.sanddollar.service;
+
+import com.sanddollar.entity.PlaidItem;
+import com.sanddollar.repository.PlaidItemRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves stored Plaid access tokens onto the active encryption key in the background
+ * after a key rotation, and encrypts any left in plain text by older builds. Tokens
+ * already in the envelope format only have their data key rewrapped.
+ *
+ * Items are rewritten one short transaction at a time, paced to a fixed rate, with a
+ * compare-and-set update so a concurrent relink always wins. Running on several
+ * instances at once is safe.
+ */
+@Component
+@Profile("plaid")
+public class PlaidTokenReencryptor {
+    private static final Logger logger = LoggerFactory.getLogger(PlaidTokenReencryptor.class);
+
+    private final PlaidItemRepository plaidItemRepository;
+    private final PlaidAccessTokenCipher tokenCipher;
+    private final CryptoService cryptoService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long intervalNanos;
+
+    private final AtomicLong remaining = new AtomicLong();
+    private final Counter reencryptedCounter;
+    private final Counter failedCounter;
+    private final Counter skippedCounter;
+
+    public PlaidTokenReencryptor(
+            PlaidItemRepository plaidItemRepository,
+            PlaidAccessTokenCipher tokenCipher,
+            CryptoService cryptoService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${encryption.reencrypt.enabled:true}") boolean enabled,
+            @Value("${encryption.reencrypt.batch-size:100}") int batchSize,
+            @Value("${encryption.reencrypt.items-per-second:20}") double itemsPerSecond) {
+        this.plaidItemRepository = plaidItemRepository;
+        this.tokenCipher = tokenCipher;
+        this.cryptoService = cryptoService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.intervalNanos = itemsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / itemsPerSecond) : 0L;
+
+        Gauge.builder("encryption.reencrypt.remaining", remaining, AtomicLong::get)
+            .description("Plaid items whose access token is not yet under the active key")
+            .register(meterRegistry);
+        this.reencryptedCounter = Counter.builder("encryption.reencrypt.items").tag("outcome", "reencrypted").register(meterRegistry);
+        this.failedCounter = Counter.builder("encryption.reencrypt.items").tag("outcome", "failed").register(meterRegistry);
+        this.skippedCounter = Counter.builder("encryption.reencrypt.items").tag("outcome", "skipped").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${encryption.reencrypt.interval-ms:300000}",
+               initialDelayString = "${encryption.reencrypt.initial-delay-ms:30000}")
+    public void run() {
+        if (!enabled || !cryptoService.hasActiveKey()) {
+            return;
+        }
+        String keyPrefix = cryptoService.activeKeyPrefix();
+        try {
+            remaining.set(plaidItemRepository.countWithTokenNotUnderKey(keyPrefix));
+            if (remaining.get() == 0) {
+                return;
+            }
+            logger.info("Re-encrypting {} Plaid access tokens under key prefix {}", remaining.get(), keyPrefix);
+
+            // Keyset over IDs so items that fail are not retried until the next run
+            long afterId = 0L;
+            int failures = 0;
+            while (true) {
+                List<Long> ids = plaidItemRepository.findIdsWithTokenNotUnderKey(
+                    keyPrefix, afterId, PageRequest.of(0, batchSize));
+                for (Long id : ids) {
+                    pace();
+                    if (!reencryptItem(id)) {
+                        failures++;
+                    }
+                    afterId = id;
+                }
+                if (ids.size() < batchSize) {
+                    break;
+                }
+            }
+
+            remaining.set(plaidItemRepository.countWithTokenNotUnderKey(keyPrefix));
+            logger.info("Plaid token re-encryption pass finished: {} remaining, {} failed", remaining.get(), failures);
+        } catch (Exception e) {
+            logger.error("Plaid token re-encryption pass failed", e);
+        }
+    }
+
+    private boolean reencryptItem(Long id) {
+        try {
+            Boolean replaced = transactionTemplate.execute(status -> {
+                PlaidItem item = plaidItemRepository.findById(id).orElse(null);
+                if (item == null || tokenCipher.isCurrent(item.getAccessTokenEncrypted())) {
+                    return false;
+                }
+                String stored = item.getAccessTokenEncrypted();
+                return plaidItemRepository.replaceAccessToken(id, stored, tokenCipher.rewrap(stored)) == 1;
+            });
+            if (Boolean.TRUE.equals(replaced)) {
+                reencryptedCounter.increment();
+                remaining.updateAndGet(value -> Math.max(0, value - 1));
+            } else {
+                skippedCounter.increment();
+            }
+            return true;
+        } catch (Exception e) {
+            failedCounter.increment();
+            logger.warn("Failed to re-encrypt access token for Plaid item id {}: {}", id, e.getMessage());
+            return false;
+        }
+    }
+
+    private void pace() {
+        if (intervalNanos > 0) {
+            LockSupport.parkNanos(this, intervalNanos);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.sanddollar.service;
+
+import com.plaid.client.model.PersonalFinanceCategory;
+import com.plaid.client.model.RemovedTransaction;
+import com.plaid.client.model.TransactionCode;
+import com.sanddollar.entity.Account;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based writer for a single /transactions/sync page.
+ *
+ * Instead of looking up and saving each transaction individually, every plaid/pending
+ * ID referenced by the page is prefetched with one IN query, pending-to-posted matches
+ * are resolved in memory, and the writes go out as two JDBC batches.
+ */
+@Component
+@Profile("plaid")
+@Transactional(propagation = Propagation.MANDATORY)
+public class PlaidTransactionBatchWriter {
+    private static final Logger logger = LoggerFactory.getLogger(PlaidTransactionBatchWriter.class);
+
+    private static final String SELECT_EXISTING_SQL =
+        "SELECT t.id, t.plaid_transaction_id, t.pending_transaction_id, " + Contributions.COLUMNS +
+        "FROM transactions t WHERE t.plaid_transaction_id IN (:ids) OR t.pending_transaction_id IN (:ids)";
+
+    private static final String SELECT_WRITTEN_SQL =
+        "SELECT " + Contributions.COLUMNS + "FROM transactions t " +
+        "WHERE t.id IN (:rowIds) OR t.plaid_transaction_id IN (:ids)";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO transactions (account_id, user_id, external_id, plaid_transaction_id, pending_transaction_id, pending, " +
+        "date, name, merchant_name, amount_cents, currency, category_top, category_sub, is_transfer, created_at, updated_at) " +
+        "VALUES (:accountId, :userId, :plaidTransactionId, :plaidTransactionId, :pendingTransactionId, :pending, " +
+        ":date, :name, :merchantName, :amountCents, :currency, :categoryTop, :categorySub, :isTransfer, :now, :now) " +
+        "ON CONFLICT (plaid_transaction_id) DO UPDATE SET " +
+        "account_id = EXCLUDED.account_id, user_id = EXCLUDED.user_id, pending_transaction_id = EXCLUDED.pending_transaction_id, " +
+        "pending = EXCLUDED.pending, date = EXCLUDED.date, name = EXCLUDED.name, " +
+        "merchant_name = EXCLUDED.merchant_name, amount_cents = EXCLUDED.amount_cents, currency = EXCLUDED.currency, " +
+        "category_top = EXCLUDED.category_top, category_sub = EXCLUDED.category_sub, " +
+        "is_transfer = EXCLUDED.is_transfer, updated_at = EXCLUDED.updated_at";
+
+    private static final String UPDATE_SQL =
+        "UPDATE transactions SET account_id = :accountId, user_id = :userId, external_id = :plaidTransactionId, " +
+        "plaid_transaction_id = :plaidTransactionId, pending_transaction_id = :pendingTransactionId, " +
+        "pending = :pending, date = COALESCE(:date, date), name = :name, merchant_name = :merchantName, " +
+        "amount_cents = :amountCents, currency = :currency, category_top = :categoryTop, " +
+        "category_sub = :categorySub, is_transfer = :isTransfer, updated_at = :now " +
+        "WHERE id = :id";
+
+    private static final String DELETE_SQL =
+        "DELETE FROM transactions WHERE plaid_transaction_id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PlaidCategoryMapper categoryMapper;
+    private final DailyCategorySpendRollup spendRollup;
+
+    public PlaidTransactionBatchWriter(NamedParameterJdbcTemplate jdbcTemplate,
+                                       PlaidCategoryMapper categoryMapper,
+                                       DailyCategorySpendRollup spendRollup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.categoryMapper = categoryMapper;
+        this.spendRollup = spendRollup;
+    }
+
+    /**
+     * Applies the added, modified and removed sets of one sync page and the matching
+     * daily_category_spend deltas.
+     *
+     * @param accounts Plaid account ID to persisted account, for the item being synced
+     */
+    public PageResult writePage(Map<String, Account> accounts,
+                                List<com.plaid.client.model.Transaction> added,
+                                List<com.plaid.client.model.Transaction> modified,
+                                List<RemovedTransaction> removed) {
+        long start = System.nanoTime();
+
+        // Later entries win, so a modified row overrides an added row with the same ID
+        Map<String, com.plaid.client.model.Transaction> incoming = new LinkedHashMap<>();
+        collect(incoming, added);
+        collect(incoming, modified);
+
+        Set<String> removedIds = new LinkedHashSet<>();
+        if (removed != null) {
+            for (RemovedTransaction txn : removed) {
+                if (txn.getTransactionId() != null) {
+                    removedIds.add(txn.getTransactionId());
+                }
+            }
+        }
+
+        ExistingRows existing = loadExisting(incoming, removedIds);
+        int upserted = upsert(accounts, incoming, existing);
+        int deleted = delete(removedIds);
+
+        // Diff the touched rows before and after the writes so the rollup only sees the change
+        if (!existing.contributions().isEmpty() || !incoming.isEmpty()) {
+            spendRollup.applyChanges(existing.contributions(), loadWritten(existing.rowIds(), incoming.keySet()));
+        }
+
+        return new PageResult(upserted, deleted, System.nanoTime() - start);
+    }
+
+    private void collect(Map<String, com.plaid.client.model.Transaction> target,
+                         List<com.plaid.client.model.Transaction> transactions) {
+        if (transactions == null) {
+            return;
+        }
+        for (com.plaid.client.model.Transaction txn : transactions) {
+            if (txn.getTransactionId() != null && txn.getAccountId() != null) {
+                target.put(txn.getTransactionId(), txn);
+            }
+        }
+    }
+
+    private ExistingRows loadExisting(Map<String, com.plaid.client.model.Transaction> incoming, Set<String> removedIds) {
+        Set<String> referencedIds = new LinkedHashSet<>(incoming.keySet());
+        for (com.plaid.client.model.Transaction txn : incoming.values()) {
+            if (txn.getPendingTransactionId() != null) {
+                referencedIds.add(txn.getPendingTransactionId());
+            }
+        }
+        referencedIds.addAll(removedIds);
+
+        ExistingRows existing = new ExistingRows(new HashMap<>(), new HashMap<>(), new LinkedHashSet<>(), new ArrayList<>());
+        if (referencedIds.isEmpty()) {
+            return existing;
+        }
+
+        jdbcTemplate.query(SELECT_EXISTING_SQL, new MapSqlParameterSource("ids", referencedIds), rs -> {
+            long id = rs.getLong("id");
+            existing.rowIds().add(id);
+            existing.idByPlaidId().put(rs.getString("plaid_transaction_id"), id);
+            String pendingId = rs.getString("pending_transaction_id");
+            if (pendingId != null) {
+                existing.idByPendingId().put(pendingId, id);
+            }
+            existing.contributions().add(Contributions.read(rs));
+        });
+        return existing;
+    }
+
+    private List<DailyCategorySpendRollup.Contribution> loadWritten(Set<Long> rowIds, Set<String> plaidIds) {
+        // IN () is invalid SQL, so pad empty sets with a value that matches nothing
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("rowIds", rowIds.isEmpty() ? Set.of(-1L) : rowIds)
+            .addValue("ids", plaidIds.isEmpty() ? Set.of("") : plaidIds);
+        return jdbcTemplate.query(SELECT_WRITTEN_SQL, params, (rs, rowNum) -> Contributions.read(rs));
+    }
+
+    private int upsert(Map<String, Account> accounts, Map<String, com.plaid.client.model.Transaction> incoming,
+                       ExistingRows existing) {
+        if (incoming.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Long> idByPlaidId = existing.idByPlaidId();
+        Map<String, Long> idByPendingId = existing.idByPendingId();
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<SqlParameterSource> inserts = new ArrayList<>();
+        List<SqlParameterSource> updates = new ArrayList<>();
+        Set<Long> claimedIds = new HashSet<>();
+
+        for (com.plaid.client.model.Transaction txn : incoming.values()) {
+            Account account = accounts.get(txn.getAccountId());
+            if (account == null) {
+                logger.warn("Skipping transaction {} because account {} was not found", txn.getTransactionId(), txn.getAccountId());
+                continue;
+            }
+
+            Long existingId = resolveExistingId(txn, idByPlaidId, idByPendingId);
+            if (existingId != null && !claimedIds.add(existingId)) {
+                // Another row in this page already took over the pending row
+                existingId = null;
+            }
+
+            MapSqlParameterSource params = toParameters(account, txn, now);
+            if (existingId != null) {
+                updates.add(params.addValue("id", existingId));
+            } else if (txn.getDate() != null) {
+                inserts.add(params);
+            } else {
+                logger.warn("Skipping transaction {} because it has no date", txn.getTransactionId());
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates.toArray(SqlParameterSource[]::new));
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts.toArray(SqlParameterSource[]::new));
+        }
+        return updates.size() + inserts.size();
+    }
+
+    private Long resolveExistingId(com.plaid.client.model.Transaction txn,
+                                   Map<String, Long> idByPlaidId,
+                                   Map<String, Long> idByPendingId) {
+        Long existingId = idByPlaidId.get(txn.getTransactionId());
+        if (existingId != null) {
+            return existingId;
+        }
+
+        String pendingTransactionId = txn.getPendingTransactionId();
+        if (Boolean.TRUE.equals(txn.getPending()) || pendingTransactionId == null) {
+            return null;
+        }
+
+        existingId = idByPlaidId.get(pendingTransactionId);
+        return existingId != null ? existingId : idByPendingId.get(pendingTransactionId);
+    }
+
+    private MapSqlParameterSource toParameters(Account account, com.plaid.client.model.Transaction txn, Timestamp now) {
+        PersonalFinanceCategory pfc = txn.getPersonalFinanceCategory();
+        PlaidCategoryMapper.CategoryMapping mapping = categoryMapper.mapCategory(pfc);
+        LocalDate date = txn.getDate();
+
+        return new MapSqlParameterSource()
+            .addValue("accountId", account.getId())
+            .addValue("userId", account.getUser().getId())
+            .addValue("plaidTransactionId", txn.getTransactionId())
+            .addValue("pendingTransactionId", txn.getPendingTransactionId())
+            .addValue("pending", Boolean.TRUE.equals(txn.getPending()))
+            .addValue("date", date, Types.DATE)
+            .addValue("name", txn.getName())
+            .addValue("merchantName", txn.getMerchantName())
+            .addValue("amountCents", normalizeAmount(txn.getAmount()))
+            .addValue("currency", txn.getIsoCurrencyCode())
+            .addValue("categoryTop", mapping.primary())
+            .addValue("categorySub", mapping.secondary())
+            .addValue("isTransfer", isLikelyTransfer(txn, pfc))
+            .addValue("now", now);
+    }
+
+    private int delete(Set<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource("ids", ids));
+    }
+
+    private boolean isLikelyTransfer(com.plaid.client.model.Transaction plaidTxn, PersonalFinanceCategory category) {
+        if (category != null && "TRANSFER".equalsIgnoreCase(category.getPrimary())) {
+            return true;
+        }
+        TransactionCode transactionCode = plaidTxn.getTransactionCode();
+        return transactionCode != null && "TRANSFER".equalsIgnoreCase(transactionCode.getValue());
+    }
+
+    private Long normalizeAmount(Double amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        long cents = Math.round(Math.abs(amount) * 100);
+        return amount > 0 ? -cents : cents;
+    }
+
+    private record ExistingRows(Map<String, Long> idByPlaidId,
+                                Map<String, Long> idByPendingId,
+                                Set<Long> rowIds,
+                                List<DailyCategorySpendRollup.Contribution> contributions) { }
+
+    private static final class Contributions {
+        static final String COLUMNS = "t.user_id, t.date, t.category_top, t.amount_cents, t.is_transfer ";
+
+        static DailyCategorySpendRollup.Contribution read(ResultSet rs) throws SQLException {
+            Date date = rs.getDate("date");
+            return new DailyCategorySpendRollup.Contribution(
+                rs.getLong("user_id"),
+                date != null ? date.toLocalDate() : null,
+                rs.getString("category_top"),
+                rs.getLong("amount_cents"),
+                rs.getBoolean("is_transfer")
+            );
+        }
+    }
+
+    public record PageResult(int upserted, int removed, long elapsedNanos) {
+        public double rowsPerSecond() {
+            if (elapsedNanos <= 0) {
+                return 0.0;
+            }
+            return (upserted + removed) * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.sanddollar.service;
+
+import com.sanddollar.entity.PlaidItem;
+import com.sanddollar.entity.PlaidWebhookEvent;
+import com.sanddollar.repository.PlaidItemRepository;
+import com.sanddollar.repository.PlaidWebhookEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the Plaid webhook inbox in the background.
+ *
+ * All claimed rows for one item are handled together, so any number of queued
+ * transaction webhooks for an item cost a single incremental sync. Work runs on a
+ * bounded set of workers; rows that fail are retried with backoff.
+ */
+@Component
+@Profile("plaid")
+public class PlaidWebhookDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(PlaidWebhookDispatcher.class);
+
+    // Transaction webhooks that mean new data is waiting behind the item's cursor
+    private static final Set<String> SYNC_WEBHOOK_CODES = Set.of(
+        "SYNC_UPDATES_AVAILABLE", "INITIAL_UPDATE", "HISTORICAL_UPDATE", "DEFAULT_UPDATE", "TRANSACTIONS_REMOVED"
+    );
+
+    private final PlaidWebhookInbox inbox;
+    private final PlaidWebhookEventRepository webhookEventRepository;
+    private final PlaidItemRepository plaidItemRepository;
+    private final PlaidSyncService plaidSyncService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore workerPermits;
+    private final int maxWorkers;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration claimTimeout;
+
+    private final AtomicLong pendingDepth = new AtomicLong();
+    private final AtomicLong failedDepth = new AtomicLong();
+    private final Counter coalescedCounter;
+    private final Counter syncSuccessCounter;
+    private final Counter syncFailureCounter;
+    private final Counter ignoredCounter;
+    private final Timer dispatchTimer;
+
+    public PlaidWebhookDispatcher(
+            PlaidWebhookInbox inbox,
+            PlaidWebhookEventRepository webhookEventRepository,
+            PlaidItemRepository plaidItemRepository,
+            PlaidSyncService plaidSyncService,
+            MeterRegistry meterRegistry,
+            @Value("${plaid.webhook.max-workers:4}") int maxWorkers,
+            @Value("${plaid.webhook.max-attempts:5}") int maxAttempts,
+            @Value("${plaid.webhook.retry-backoff-seconds:30}") long retryBackoffSeconds,
+            @Value("${plaid.webhook.claim-timeout-minutes:10}") long claimTimeoutMinutes) {
+        this.inbox = inbox;
+        this.webhookEventRepository = webhookEventRepository;
+        this.plaidItemRepository = plaidItemRepository;
+        this.plaidSyncService = plaidSyncService;
+        this.maxWorkers = Math.max(1, maxWorkers);
+        this.workerPermits = new Semaphore(this.maxWorkers);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = Duration.ofSeconds(Math.max(1, retryBackoffSeconds));
+        this.claimTimeout = Duration.ofMinutes(Math.max(1, claimTimeoutMinutes));
+
+        Gauge.builder("plaid.webhook.inbox.depth", pendingDepth, AtomicLong::get)
+            .tag("status", "pending")
+            .description("Webhook inbox rows waiting to be dispatched")
+            .register(meterRegistry);
+        Gauge.builder("plaid.webhook.inbox.depth", failedDepth, AtomicLong::get)
+            .tag("status", "failed")
+            .description("Webhook inbox rows that exhausted their retries")
+            .register(meterRegistry);
+        Gauge.builder("plaid.webhook.workers.active", workerPermits, permits -> this.maxWorkers - permits.availablePermits())
+            .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("plaid.webhook.coalesced")
+            .description("Webhooks absorbed into an already queued sync")
+            .register(meterRegistry);
+        this.syncSuccessCounter = Counter.builder("plaid.webhook.dispatched").tag("outcome", "success").register(meterRegistry);
+        this.syncFailureCounter = Counter.builder("plaid.webhook.dispatched").tag("outcome", "failure").register(meterRegistry);
+        this.ignoredCounter = Counter.builder("plaid.webhook.dispatched").tag("outcome", "ignored").register(meterRegistry);
+        this.dispatchTimer = Timer.builder("plaid.webhook.dispatch.duration").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${plaid.webhook.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            int released = inbox.releaseStale(Instant.now().minus(claimTimeout));
+            if (released > 0) {
+                logger.warn("Released {} stale Plaid webhook claims", released);
+            }
+
+            int freeWorkers = workerPermits.availablePermits();
+            if (freeWorkers > 0) {
+                Map<String, List<PlaidWebhookInbox.Entry>> byItem = new LinkedHashMap<>();
+                for (PlaidWebhookInbox.Entry entry : inbox.claim(freeWorkers)) {
+                    byItem.computeIfAbsent(entry.itemId(), key -> new ArrayList<>()).add(entry);
+                }
+                byItem.forEach(this::submit);
+            }
+
+            pendingDepth.set(webhookEventRepository.countByStatus(PlaidWebhookEvent.Status.PENDING));
+            failedDepth.set(webhookEventRepository.countByStatus(PlaidWebhookEvent.Status.FAILED));
+        } catch (Exception e) {
+            logger.error("Plaid webhook dispatcher poll failed", e);
+        }
+    }
+
+    private void submit(String itemId, List<PlaidWebhookInbox.Entry> entries) {
+        workerPermits.acquireUninterruptibly();
+        try {
+            executor.submit(() -> {
+                try {
+                    dispatch(itemId, entries);
+                } finally {
+                    workerPermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            workerPermits.release();
+            throw e;
+        }
+    }
+
+    private void dispatch(String itemId, List<PlaidWebhookInbox.Entry> entries) {
+        List<Long> ids = entries.stream().map(PlaidWebhookInbox.Entry::id).toList();
+        int received = entries.stream().mapToInt(PlaidWebhookInbox.Entry::receivedCount).sum();
+        boolean needsSync = entries.stream().anyMatch(this::requiresSync);
+        if (received > 1) {
+            coalescedCounter.increment(received - 1);
+        }
+
+        long start = System.nanoTime();
+        try {
+            Optional<PlaidItem> plaidItem = plaidItemRepository.findByItemId(itemId);
+            if (!needsSync || plaidItem.isEmpty() || plaidItem.get().getStatus() != PlaidItem.PlaidItemStatus.ACTIVE) {
+                logger.info("Ignoring Plaid webhooks for item {}: codes={}", itemId,
+                    entries.stream().map(PlaidWebhookInbox.Entry::webhookCode).toList());
+                ignoredCounter.increment();
+                inbox.complete(ids);
+                return;
+            }
+
+            PlaidSyncService.SyncResult result = plaidSyncService.incrementalSyncItem(plaidItem.get().getId());
+            logger.info("Plaid webhook sync for item {} covered {} webhooks: {} transactions upserted",
+                itemId, received, result.transactionsUpserted());
+            syncSuccessCounter.increment();
+            inbox.complete(ids);
+        } catch (PlaidSyncService.SyncInProgressException e) {
+            // Another instance is syncing the item right now; try again after it finishes
+            logger.debug("Deferring Plaid webhooks for item {}: {}", itemId, e.getMessage());
+            inbox.defer(ids, Instant.now().plus(retryBackoff));
+        } catch (Exception e) {
+            logger.warn("Plaid webhook sync failed for item {}: {}", itemId, e.getMessage(), e);
+            syncFailureCounter.increment();
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            inbox.fail(ids, message, Instant.now().plus(retryBackoff), maxAttempts);
+        } finally {
+            dispatchTimer.record(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    private boolean requiresSync(PlaidWebhookInbox.Entry entry) {
+        return "TRANSACTIONS".equalsIgnoreCase(entry.webhookType())
+            && SYNC_WEBHOOK_CODES.contains(entry.webhookCode());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Rows still PROCESSING are picked up again once their claim times out
+        executor.shutdownNow();
+    }
+}
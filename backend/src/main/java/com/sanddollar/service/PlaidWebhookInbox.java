@@ -0,0 +1,139 @@
+package com.sanddollar.service;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Postgres-backed inbox for Plaid webhooks.
+ *
+ * Rows are unique per item and webhook code, so a storm of identical webhooks is a
+ * series of cheap upserts on one row. A webhook that lands while its row is being
+ * processed sets {@code redeliver}, which puts the row back to PENDING once the
+ * current attempt finishes instead of losing the update.
+ */
+@Component
+@Profile("plaid")
+public class PlaidWebhookInbox {
+
+    private static final String ENQUEUE_SQL =
+        "INSERT INTO plaid_webhook_inbox (item_id, webhook_type, webhook_code, status, redeliver, received_count, " +
+        "attempts, first_received_at, last_received_at, available_at) " +
+        "VALUES (:itemId, :webhookType, :webhookCode, 'PENDING', FALSE, 1, 0, :now, :now, :now) " +
+        "ON CONFLICT (item_id, webhook_code) DO UPDATE SET " +
+        "webhook_type = EXCLUDED.webhook_type, " +
+        "last_received_at = EXCLUDED.last_received_at, " +
+        "received_count = CASE WHEN plaid_webhook_inbox.status IN ('DONE', 'FAILED') THEN 1 " +
+        "ELSE plaid_webhook_inbox.received_count + 1 END, " +
+        "first_received_at = CASE WHEN plaid_webhook_inbox.status IN ('DONE', 'FAILED') " +
+        "THEN EXCLUDED.first_received_at ELSE plaid_webhook_inbox.first_received_at END, " +
+        "attempts = CASE WHEN plaid_webhook_inbox.status IN ('DONE', 'FAILED') THEN 0 " +
+        "ELSE plaid_webhook_inbox.attempts END, " +
+        "available_at = CASE WHEN plaid_webhook_inbox.status IN ('DONE', 'FAILED') " +
+        "THEN EXCLUDED.available_at ELSE plaid_webhook_inbox.available_at END, " +
+        "last_error = CASE WHEN plaid_webhook_inbox.status IN ('DONE', 'FAILED') THEN NULL " +
+        "ELSE plaid_webhook_inbox.last_error END, " +
+        "redeliver = plaid_webhook_inbox.status = 'PROCESSING', " +
+        "status = CASE WHEN plaid_webhook_inbox.status = 'PROCESSING' THEN 'PROCESSING' ELSE 'PENDING' END";
+
+    // Claims every due row of the oldest waiting items, skipping items another worker
+    // is already processing. Concurrent claimers block on the row locks and then fail
+    // the status re-check, so a row is never handed out twice.
+    private static final String CLAIM_SQL =
+        "UPDATE plaid_webhook_inbox SET status = 'PROCESSING', claimed_at = :now, attempts = attempts + 1 " +
+        "WHERE status = 'PENDING' AND available_at <= :now AND item_id IN (" +
+        "SELECT item_id FROM plaid_webhook_inbox WHERE status = 'PENDING' AND available_at <= :now " +
+        "AND item_id NOT IN (SELECT item_id FROM plaid_webhook_inbox WHERE status = 'PROCESSING') " +
+        "GROUP BY item_id ORDER BY MIN(first_received_at) LIMIT :limit) " +
+        "RETURNING id, item_id, webhook_type, webhook_code, received_count";
+
+    private static final String COMPLETE_SQL =
+        "UPDATE plaid_webhook_inbox SET status = CASE WHEN redeliver THEN 'PENDING' ELSE 'DONE' END, " +
+        "attempts = CASE WHEN redeliver THEN 0 ELSE attempts END, " +
+        "redeliver = FALSE, claimed_at = NULL, last_error = NULL, available_at = :now " +
+        "WHERE id IN (:ids) AND status = 'PROCESSING'";
+
+    private static final String FAIL_SQL =
+        "UPDATE plaid_webhook_inbox SET status = CASE WHEN redeliver OR attempts < :maxAttempts " +
+        "THEN 'PENDING' ELSE 'FAILED' END, " +
+        "redeliver = FALSE, claimed_at = NULL, last_error = :error, available_at = :retryAt " +
+        "WHERE id IN (:ids) AND status = 'PROCESSING'";
+
+    private static final String DEFER_SQL =
+        "UPDATE plaid_webhook_inbox SET status = 'PENDING', attempts = GREATEST(attempts - 1, 0), " +
+        "redeliver = FALSE, claimed_at = NULL, available_at = :retryAt " +
+        "WHERE id IN (:ids) AND status = 'PROCESSING'";
+
+    private static final String RELEASE_STALE_SQL =
+        "UPDATE plaid_webhook_inbox SET status = 'PENDING', claimed_at = NULL " +
+        "WHERE status = 'PROCESSING' AND claimed_at < :cutoff";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PlaidWebhookInbox(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void enqueue(String itemId, String webhookType, String webhookCode) {
+        jdbcTemplate.update(ENQUEUE_SQL, new MapSqlParameterSource()
+            .addValue("itemId", itemId)
+            .addValue("webhookType", webhookType)
+            .addValue("webhookCode", webhookCode)
+            .addValue("now", Timestamp.from(Instant.now())));
+    }
+
+    /**
+     * Marks the due rows of up to {@code maxItems} items as PROCESSING and returns them.
+     */
+    public List<Entry> claim(int maxItems) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("now", Timestamp.from(Instant.now()))
+            .addValue("limit", maxItems);
+        return jdbcTemplate.query(CLAIM_SQL, params, (rs, rowNum) -> new Entry(
+            rs.getLong("id"),
+            rs.getString("item_id"),
+            rs.getString("webhook_type"),
+            rs.getString("webhook_code"),
+            rs.getInt("received_count")
+        ));
+    }
+
+    public void complete(Collection<Long> ids) {
+        jdbcTemplate.update(COMPLETE_SQL, new MapSqlParameterSource()
+            .addValue("ids", ids)
+            .addValue("now", Timestamp.from(Instant.now())));
+    }
+
+    public void fail(Collection<Long> ids, String error, Instant retryAt, int maxAttempts) {
+        jdbcTemplate.update(FAIL_SQL, new MapSqlParameterSource()
+            .addValue("ids", ids)
+            .addValue("error", error)
+            .addValue("retryAt", Timestamp.from(retryAt))
+            .addValue("maxAttempts", maxAttempts));
+    }
+
+    /**
+     * Puts claimed rows back without counting the attempt, e.g. when the item is busy.
+     */
+    public void defer(Collection<Long> ids, Instant retryAt) {
+        jdbcTemplate.update(DEFER_SQL, new MapSqlParameterSource()
+            .addValue("ids", ids)
+            .addValue("retryAt", Timestamp.from(retryAt)));
+    }
+
+    /**
+     * Returns rows claimed by a worker that died (e.g. instance restart) to the queue.
+     */
+    public int releaseStale(Instant claimedBefore) {
+        return jdbcTemplate.update(RELEASE_STALE_SQL,
+            new MapSqlParameterSource("cutoff", Timestamp.from(claimedBefore)));
+    }
+
+    public record Entry(long id, String itemId, String webhookType, String webhookCode, int receivedCount) { }
+}
@@ -0,0 +1,301 @@
+package com.sanddollar.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Cluster-wide token buckets for the AI endpoints, kept in Postgres.
+ *
+ * Refilling and taking tokens is one atomic {@code UPDATE ... RETURNING}, so replicas
+ * share a limit without coordinating. To keep most decisions in-process a replica
+ * takes a small lease of tokens per round trip and spends it locally; leased tokens
+ * not used before the lease expires are simply lost, which can only make the limit
+ * stricter. When the database errors or answers slower than the configured
+ * threshold the store stops answering for a cooldown and
+ * {@link AiBudgetRateLimiter} falls back to its per-instance buckets.
+ *
+ * Statements run on a small pool of their own with a short connection timeout. The
+ * query timeout does not cover waiting for a connection, so on the shared pool a
+ * saturated application would hold every rate-limit decision for Hikari's default
+ * 30 seconds before the fallback could kick in.
+ *
+ * Disabled unless {@code feature.ai-rate-limits.distributed.enabled} is set; the
+ * statements are Postgres-only.
+ */
+@Component
+public class PostgresRateLimitStore {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresRateLimitStore.class);
+
+    // Balance after crediting the time since the last refill, capped at capacity
+    private static final String REFILLED =
+        "LEAST(CAST(:capacity AS DOUBLE PRECISION), " +
+        "tokens + EXTRACT(EPOCH FROM (now() - refilled_at)) * 1000 * :capacity / :windowMillis)";
+
+    private static final String GRANTED = "LEAST(:lease, FLOOR(" + REFILLED + "))";
+
+    // Every SET expression sees the locked row's old values, so the grant is computed once
+    // per row and recorded in last_granted for RETURNING
+    private static final String TAKE_SQL =
+        "UPDATE ai_rate_limit_buckets SET " +
+        "tokens = " + REFILLED + " - " + GRANTED + ", " +
+        "last_granted = " + GRANTED + ", " +
+        "refilled_at = now() " +
+        "WHERE endpoint = :endpoint AND user_key = :userKey " +
+        "RETURNING last_granted";
+
+    private static final String CREATE_SQL =
+        "INSERT INTO ai_rate_limit_buckets (endpoint, user_key, tokens, last_granted, refilled_at) " +
+        "VALUES (:endpoint, :userKey, :capacity, 0, now()) " +
+        "ON CONFLICT (endpoint, user_key) DO NOTHING";
+
+    // A bucket untouched for a full window has refilled and carries no information
+    private static final String PRUNE_SQL =
+        "DELETE FROM ai_rate_limit_buckets WHERE refilled_at < now() - make_interval(secs => :idleSeconds)";
+
+    private final HikariDataSource pool;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final LongSupplier clock;
+    private final boolean enabled;
+    private final int leaseSize;
+    private final long leaseTtlMillis;
+    private final long slowThresholdMillis;
+    private final long fallbackCooldownMillis;
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+    private volatile long unavailableUntil;
+
+    private final Counter leaseHits;
+    private final Counter databaseGrants;
+    private final Counter databaseDenials;
+    private final Counter fallbacks;
+
+    @Autowired
+    public PostgresRateLimitStore(
+            DataSourceProperties dataSourceProperties,
+            MeterRegistry meterRegistry,
+            @Value("${feature.ai-rate-limits.distributed.enabled:false}") boolean enabled,
+            @Value("${feature.ai-rate-limits.distributed.lease-size:0}") int leaseSize,
+            @Value("${feature.ai-rate-limits.distributed.lease-ttl-ms:5000}") long leaseTtlMillis,
+            @Value("${feature.ai-rate-limits.distributed.query-timeout-seconds:1}") int queryTimeoutSeconds,
+            @Value("${feature.ai-rate-limits.distributed.pool-size:4}") int poolSize,
+            @Value("${feature.ai-rate-limits.distributed.connection-timeout-ms:250}") long connectionTimeoutMillis,
+            @Value("${feature.ai-rate-limits.distributed.slow-threshold-ms:100}") long slowThresholdMillis,
+            @Value("${feature.ai-rate-limits.distributed.fallback-cooldown-ms:30000}") long fallbackCooldownMillis) {
+        this(enabled ? createPool(dataSourceProperties, poolSize, connectionTimeoutMillis) : null, meterRegistry,
+            enabled, leaseSize, leaseTtlMillis, queryTimeoutSeconds, slowThresholdMillis, fallbackCooldownMillis,
+            System::currentTimeMillis);
+    }
+
+    PostgresRateLimitStore(DataSource dataSource, MeterRegistry meterRegistry, boolean enabled, int leaseSize,
+                           long leaseTtlMillis, int queryTimeoutSeconds, long slowThresholdMillis,
+                           long fallbackCooldownMillis, LongSupplier clock) {
+        this.pool = dataSource instanceof HikariDataSource hikari ? hikari : null;
+        if (dataSource != null) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.setQueryTimeout(Math.max(1, queryTimeoutSeconds));
+            this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+        } else {
+            this.jdbcTemplate = null;
+        }
+        this.clock = clock;
+        this.enabled = enabled;
+        this.leaseSize = leaseSize;
+        this.leaseTtlMillis = Math.max(1, leaseTtlMillis);
+        this.slowThresholdMillis = slowThresholdMillis;
+        this.fallbackCooldownMillis = fallbackCooldownMillis;
+
+        this.leaseHits = decisions(meterRegistry, "lease");
+        this.databaseGrants = decisions(meterRegistry, "db_grant");
+        this.databaseDenials = decisions(meterRegistry, "db_deny");
+        this.fallbacks = decisions(meterRegistry, "fallback");
+
+        if (enabled) {
+            logger.info("AI rate limits shared through Postgres (lease size {}, lease ttl {}ms)",
+                leaseSize > 0 ? leaseSize : "auto", this.leaseTtlMillis);
+        }
+    }
+
+    private static HikariDataSource createPool(DataSourceProperties properties, int poolSize, long connectionTimeoutMillis) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("ai-rate-limit");
+        pool.setMaximumPoolSize(Math.max(1, poolSize));
+        pool.setMinimumIdle(1);
+        // Hikari rejects anything below 250ms
+        pool.setConnectionTimeout(Math.max(250, connectionTimeoutMillis));
+        // Start even if the database is down; decisions fall back until it is reachable
+        pool.setInitializationFailTimeout(-1);
+        return pool;
+    }
+
+    @PreDestroy
+    void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private static Counter decisions(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("ai.ratelimit.distributed.decisions")
+            .description("AI rate-limit decisions in distributed mode, by where they were made")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes one token from the shared bucket, from a local lease where possible.
+     *
+     * @return whether the request may proceed, or {@code null} if the database could
+     *     not answer in time and the caller should decide locally
+     */
+    public Boolean tryConsume(String endpoint, long userKey, int capacity, long windowMillis) {
+        String leaseKey = endpoint + ':' + userKey;
+        long now = clock.getAsLong();
+
+        Lease lease = leases.get(leaseKey);
+        if (lease != null && lease.expiresAt > now) {
+            if (lease.take()) {
+                leaseHits.increment();
+                return Boolean.TRUE;
+            }
+            if (lease.denied) {
+                // A recent round trip found the bucket empty; wait for it to refill
+                leaseHits.increment();
+                return Boolean.FALSE;
+            }
+        }
+
+        if (now < unavailableUntil) {
+            fallbacks.increment();
+            return null;
+        }
+
+        int granted;
+        try {
+            granted = take(endpoint, userKey, capacity, windowMillis, leaseSizeFor(capacity));
+            long elapsedMillis = clock.getAsLong() - now;
+            if (elapsedMillis > slowThresholdMillis) {
+                markUnavailable("took " + elapsedMillis + "ms");
+            }
+        } catch (RuntimeException e) {
+            markUnavailable(e.getMessage());
+            fallbacks.increment();
+            return null;
+        }
+
+        if (granted <= 0) {
+            // Cache the denial until roughly one token has refilled
+            long retryAfter = Math.min(leaseTtlMillis, Math.max(1, windowMillis / capacity));
+            leases.put(leaseKey, Lease.denied(now + retryAfter));
+            databaseDenials.increment();
+            return Boolean.FALSE;
+        }
+        leases.put(leaseKey, new Lease(granted - 1, now + leaseTtlMillis));
+        databaseGrants.increment();
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Forgets local leases for a key; the shared bucket itself is left alone.
+     */
+    public void clear(long userKey) {
+        String suffix = ":" + userKey;
+        leases.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
+    private int take(String endpoint, long userKey, int capacity, long windowMillis, int lease) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("endpoint", endpoint)
+            .addValue("userKey", userKey)
+            .addValue("capacity", capacity)
+            .addValue("windowMillis", windowMillis)
+            .addValue("lease", lease);
+
+        List<Integer> granted = jdbcTemplate.queryForList(TAKE_SQL, params, Integer.class);
+        if (granted.isEmpty()) {
+            jdbcTemplate.update(CREATE_SQL, params);
+            granted = jdbcTemplate.queryForList(TAKE_SQL, params, Integer.class);
+        }
+        return granted.isEmpty() || granted.get(0) == null ? 0 : granted.get(0);
+    }
+
+    /**
+     * Tokens taken per round trip. Small limits lease one at a time so a replica never
+     * sits on a large share of a user's allowance.
+     */
+    private int leaseSizeFor(int capacity) {
+        int size = leaseSize > 0 ? leaseSize : capacity / 10;
+        return Math.max(1, Math.min(size, capacity));
+    }
+
+    private void markUnavailable(String reason) {
+        unavailableUntil = clock.getAsLong() + fallbackCooldownMillis;
+        logger.warn("Shared AI rate limits unavailable ({}); limiting per instance for {}ms",
+            reason, fallbackCooldownMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${feature.ai-rate-limits.eviction-interval-ms:60000}")
+    public void pruneIdle() {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.getAsLong();
+        leases.values().removeIf(lease -> lease.expiresAt <= now);
+        if (now < unavailableUntil) {
+            return;
+        }
+        try {
+            // Buckets are per-minute today; an hour leaves plenty of margin
+            int deleted = jdbcTemplate.update(PRUNE_SQL, new MapSqlParameterSource("idleSeconds", 3600));
+            if (deleted > 0) {
+                logger.debug("Pruned {} idle AI rate-limit buckets", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to prune AI rate-limit buckets: {}", e.getMessage());
+        }
+    }
+
+    private static final class Lease {
+        private final AtomicInteger remaining;
+        private final long expiresAt;
+        private final boolean denied;
+
+        Lease(int remaining, long expiresAt) {
+            this(remaining, expiresAt, false);
+        }
+
+        private Lease(int remaining, long expiresAt, boolean denied) {
+            this.remaining = new AtomicInteger(remaining);
+            this.expiresAt = expiresAt;
+            this.denied = denied;
+        }
+
+        static Lease denied(long expiresAt) {
+            return new Lease(0, expiresAt, true);
+        }
+
+        boolean take() {
+            return remaining.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0;
+        }
+    }
+}
@@ -27,9 +27,18 @@ public class SeedDataService implements CommandLineRunner {
     
     @Autowired
     private TransactionRepository transactionRepository;
+
+    @Autowired
+    private DailyCategorySpendRollup spendRollup;
     
     @Autowired
     private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private BalanceSnapshotDailyRepository balanceSnapshotDailyRepository;
+
+    @Autowired
+    private AccountBalanceRecorder balanceRecorder;
     
     @Autowired
     private GoalRepository goalRepository;
@@ -74,6 +83,7 @@ public class SeedDataService implements CommandLineRunner {
                 // Clear existing balance snapshots
                 for (Account account : accounts) {
                     balanceSnapshotRepository.deleteByAccount(account);
+                    balanceSnapshotDailyRepository.deleteByAccountId(account.getId());
                 }
                 
                 // Create new balance snapshots with 30 days of data
@@ -208,7 +218,7 @@ public class SeedDataService implements CommandLineRunner {
                 // Set the timestamp to the specific date
                 snapshot.setAsOf(date.atStartOfDay().toInstant(java.time.ZoneOffset.UTC));
                 
-                balanceSnapshotRepository.save(snapshot);
+                balanceRecorder.record(snapshot);
             }
         }
     }
@@ -272,7 +282,7 @@ public class SeedDataService implements CommandLineRunner {
         markTransfers(transactions);
         
         // Save all transactions
-        transactionRepository.saveAll(transactions);
+        spendRollup.addAll(transactionRepository.saveAll(transactions));
     }
 
     private Transaction createTransaction(Account account, LocalDate date, String name, 
@@ -0,0 +1,9 @@
+package com.sanddollar.service;
+
+import java.util.Set;
+
+/**
+ * Published by {@link DailyCategorySpendRollup} whenever transaction writes change
+ * what the listed users have spent or earned.
+ */
+public record SpendingChangedEvent(Set<Long> userIds) { }
@@ -0,0 +1,334 @@
+package com.sanddollar.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanddollar.entity.UserSpendingFeatures;
+import com.sanddollar.repository.DailyCategorySpendRepository;
+import com.sanddollar.repository.TransactionRepository;
+import com.sanddollar.repository.UserSpendingFeaturesRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Per-user spending features used to build AI budget prompts: 30- and 90-day monthly
+ * category averages, detected income, week-to-week volatility and recurring bills.
+ *
+ * A sync that changes a user's spending ({@link SpendingChangedEvent}) only drops
+ * their stored features, since a sync can publish one event per page; the next read
+ * recomputes them. Averages and volatility come from the daily_category_spend rollup,
+ * which is itself maintained incrementally, and bills and income from the user's last
+ * 90 days of outflows and deposits, so a refresh costs the same however long the
+ * user's history is. Income only counts deposits that recur like a paycheck; refunds
+ * and one-off transfers in would otherwise inflate it. Reads are a primary-key lookup;
+ * features computed on an earlier day are rolled forward on first read, since their
+ * windows have moved.
+ */
+@Component
+public class SpendingFeatureStore {
+    private static final Logger logger = LoggerFactory.getLogger(SpendingFeatureStore.class);
+
+    static final int SHORT_WINDOW_DAYS = 30;
+    static final int LONG_WINDOW_DAYS = 90;
+    private static final int MAX_RECURRING_BILLS = 15;
+    // Charges within this share of the typical amount/interval count as the same bill
+    private static final double AMOUNT_TOLERANCE = 0.15;
+    // Paychecks vary more than bills (overtime, commission)
+    private static final double INCOME_AMOUNT_TOLERANCE = 0.30;
+    private static final double INTERVAL_TOLERANCE = 0.25;
+
+    private static final TypeReference<TreeMap<String, CategoryAverage>> CATEGORY_AVERAGES = new TypeReference<>() { };
+    private static final TypeReference<List<RecurringBill>> RECURRING_BILLS = new TypeReference<>() { };
+
+    private final UserSpendingFeaturesRepository repository;
+    private final DailyCategorySpendRepository spendRepository;
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public SpendingFeatureStore(UserSpendingFeaturesRepository repository,
+                                DailyCategorySpendRepository spendRepository,
+                                TransactionRepository transactionRepository,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.spendRepository = spendRepository;
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+        // Runs after the sync's transaction has committed, so needs its own
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Current features for the user, computing them if they are missing or from an
+     * earlier day.
+     */
+    public SpendingFeatures get(Long userId) {
+        LocalDate today = LocalDate.now();
+        Optional<SpendingFeatures> stored = repository.findById(userId)
+            .filter(entity -> today.equals(entity.getAsOf()))
+            .flatMap(this::fromEntity);
+        return stored.orElseGet(() -> refresh(userId));
+    }
+
+    /**
+     * Drops the users' stored features once the transaction that changed their
+     * spending has committed, so the next {@link #get} recomputes them.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSpendingChanged(SpendingChangedEvent event) {
+        if (event.userIds().isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.deleteByUserIdIn(event.userIds()));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to invalidate spending features for users {}: {}", event.userIds(), e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes and stores the user's features.
+     */
+    public SpendingFeatures refresh(Long userId) {
+        SpendingFeatures features = transactionTemplate.execute(status -> compute(userId, LocalDate.now()));
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.save(toEntity(features)));
+        } catch (RuntimeException e) {
+            // A concurrent refresh stored the same thing first
+            logger.debug("Could not store spending features for user {}: {}", userId, e.getMessage());
+        }
+        return features;
+    }
+
+    private SpendingFeatures compute(Long userId, LocalDate asOf) {
+        LocalDate longStart = asOf.minusDays(LONG_WINDOW_DAYS - 1);
+        LocalDate shortStart = asOf.minusDays(SHORT_WINDOW_DAYS - 1);
+
+        // Days with any activity, oldest last; bounds the history actually available
+        List<Object[]> daily = spendRepository.getDailySpending(userId, longStart, asOf);
+        LocalDate earliest = daily.isEmpty() ? asOf : (LocalDate) daily.get(daily.size() - 1)[0];
+        int historyDays = (int) ChronoUnit.DAYS.between(earliest, asOf) + 1;
+        int longDays = Math.max(SHORT_WINDOW_DAYS, historyDays);
+        int shortDays = SHORT_WINDOW_DAYS;
+
+        Map<String, Long> shortSpend = new HashMap<>();
+        for (Object[] row : spendRepository.getCategoryTotals(userId, shortStart, asOf)) {
+            shortSpend.put((String) row[0], ((Number) row[1]).longValue());
+        }
+
+        SortedMap<String, CategoryAverage> categories = new TreeMap<>();
+        for (Object[] row : spendRepository.getCategoryTotals(userId, longStart, asOf)) {
+            String category = (String) row[0];
+            long spent = ((Number) row[1]).longValue();
+            if (spent > 0) {
+                categories.put(category, new CategoryAverage(
+                    monthly(shortSpend.getOrDefault(category, 0L), shortDays),
+                    monthly(spent, longDays)));
+            }
+        }
+
+        List<RecurringBill> bills = detectRecurringBills(
+            transactionRepository.getOutflows(userId, longStart, asOf), asOf);
+        long incomeCents = detectRecurringIncome(transactionRepository.getInflows(userId, longStart, asOf), asOf);
+
+        return new SpendingFeatures(userId, asOf, historyDays, incomeCents,
+            weeklyVolatility(daily, asOf, historyDays), categories, bills);
+    }
+
+    private static long monthly(long cents, int days) {
+        return Math.round(cents * (double) SHORT_WINDOW_DAYS / days);
+    }
+
+    /**
+     * Coefficient of variation of weekly spend over the full weeks of history, 0 with
+     * fewer than four weeks.
+     */
+    static double weeklyVolatility(List<Object[]> daily, LocalDate asOf, int historyDays) {
+        int weeks = Math.min(LONG_WINDOW_DAYS, historyDays) / 7;
+        if (weeks < 4) {
+            return 0.0;
+        }
+        long[] totals = new long[weeks];
+        for (Object[] row : daily) {
+            long daysAgo = ChronoUnit.DAYS.between((LocalDate) row[0], asOf);
+            int week = (int) (daysAgo / 7);
+            if (week < weeks && row[1] != null) {
+                totals[week] += ((Number) row[1]).longValue();
+            }
+        }
+        double mean = 0;
+        for (long total : totals) {
+            mean += total;
+        }
+        mean /= weeks;
+        if (mean <= 0) {
+            return 0.0;
+        }
+        double variance = 0;
+        for (long total : totals) {
+            variance += (total - mean) * (total - mean);
+        }
+        double cv = Math.sqrt(variance / weeks) / mean;
+        return Math.round(cv * 100) / 100.0;
+    }
+
+    /**
+     * Finds merchants charged a steady amount at a steady weekly, fortnightly or
+     * monthly interval, still active as of {@code asOf}.
+     *
+     * @param outflows rows of merchant, category, date and amount in cents (positive),
+     *     ordered by date
+     */
+    static List<RecurringBill> detectRecurringBills(List<Object[]> outflows, LocalDate asOf) {
+        List<RecurringBill> bills = detectRecurring(outflows, asOf, AMOUNT_TOLERANCE);
+        return bills.size() > MAX_RECURRING_BILLS ? List.copyOf(bills.subList(0, MAX_RECURRING_BILLS)) : bills;
+    }
+
+    /**
+     * Monthly income from deposits that recur the way bills do (a payer paying a steady
+     * amount weekly, fortnightly or monthly, still active as of {@code asOf}), 0 if
+     * there are none.
+     *
+     * @param inflows rows of payer, category, date and amount in cents (positive),
+     *     ordered by date
+     */
+    static long detectRecurringIncome(List<Object[]> inflows, LocalDate asOf) {
+        long monthlyCents = 0;
+        for (RecurringBill deposit : detectRecurring(inflows, asOf, INCOME_AMOUNT_TOLERANCE)) {
+            monthlyCents += deposit.monthlyCents();
+        }
+        return monthlyCents;
+    }
+
+    private static List<RecurringBill> detectRecurring(List<Object[]> rows, LocalDate asOf, double amountTolerance) {
+        Map<String, List<Object[]>> byMerchant = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            if (row[0] == null) {
+                continue;
+            }
+            String key = ((String) row[0]).trim().toLowerCase(Locale.ROOT);
+            byMerchant.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+        }
+
+        List<RecurringBill> bills = new ArrayList<>();
+        for (List<Object[]> charges : byMerchant.values()) {
+            if (charges.size() < 2) {
+                continue;
+            }
+            List<Long> gaps = new ArrayList<>();
+            List<Long> amounts = new ArrayList<>();
+            for (int i = 0; i < charges.size(); i++) {
+                amounts.add(((Number) charges.get(i)[3]).longValue());
+                if (i > 0) {
+                    gaps.add(ChronoUnit.DAYS.between((LocalDate) charges.get(i - 1)[2], (LocalDate) charges.get(i)[2]));
+                }
+            }
+            long interval = median(gaps);
+            long amount = median(amounts);
+            boolean monthly = interval >= 26 && interval <= 35;
+            boolean weekly = interval >= 6 && interval <= 8;
+            boolean fortnightly = interval >= 13 && interval <= 16;
+            // Two charges a month apart are a pattern; shorter cycles need a third
+            if (!(monthly || ((weekly || fortnightly) && charges.size() >= 3)) || amount <= 0) {
+                continue;
+            }
+            if (!gaps.stream().allMatch(gap -> Math.abs(gap - interval) <= Math.max(2, interval * INTERVAL_TOLERANCE))
+                    || !amounts.stream().allMatch(value -> Math.abs(value - amount) <= amount * amountTolerance)) {
+                continue;
+            }
+            Object[] last = charges.get(charges.size() - 1);
+            LocalDate lastCharged = (LocalDate) last[2];
+            if (ChronoUnit.DAYS.between(lastCharged, asOf) > interval * 3 / 2) {
+                continue; // missed a cycle: probably cancelled
+            }
+            bills.add(new RecurringBill(((String) last[0]).trim(), (String) last[1], amount, (int) interval,
+                lastCharged, lastCharged.plusDays(interval)));
+        }
+
+        bills.sort(Comparator.comparingLong(RecurringBill::monthlyCents).reversed()
+            .thenComparing(RecurringBill::merchant));
+        return bills;
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private UserSpendingFeatures toEntity(SpendingFeatures features) {
+        UserSpendingFeatures entity = new UserSpendingFeatures(features.userId());
+        entity.setAsOf(features.asOf());
+        entity.setHistoryDays(features.historyDays());
+        entity.setMonthlyIncomeCents(features.monthlyIncomeCents());
+        entity.setSpendVolatility(features.spendVolatility());
+        try {
+            entity.setCategoryAveragesJson(objectMapper.writeValueAsString(features.categories()));
+            entity.setRecurringBillsJson(objectMapper.writeValueAsString(features.recurringBills()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unserializable spending features", e);
+        }
+        entity.setComputedAt(Instant.now());
+        return entity;
+    }
+
+    private Optional<SpendingFeatures> fromEntity(UserSpendingFeatures entity) {
+        try {
+            return Optional.of(new SpendingFeatures(
+                entity.getUserId(),
+                entity.getAsOf(),
+                entity.getHistoryDays(),
+                entity.getMonthlyIncomeCents(),
+                entity.getSpendVolatility(),
+                objectMapper.readValue(entity.getCategoryAveragesJson(), CATEGORY_AVERAGES),
+                objectMapper.readValue(entity.getRecurringBillsJson(), RECURRING_BILLS)));
+        } catch (JsonProcessingException e) {
+            logger.warn("Unreadable spending features for user {}: {}", entity.getUserId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Spending features as of a day. Amounts are in cents; monthly figures are
+     * normalised to 30 days over however much of the window has history.
+     */
+    public record SpendingFeatures(
+        Long userId,
+        LocalDate asOf,
+        int historyDays,
+        long monthlyIncomeCents,
+        double spendVolatility,
+        SortedMap<String, CategoryAverage> categories,
+        List<RecurringBill> recurringBills
+    ) { }
+
+    public record CategoryAverage(long monthly30dCents, long monthly90dCents) { }
+
+    public record RecurringBill(String merchant, String category, long amountCents, int intervalDays,
+                                LocalDate lastCharged, LocalDate nextExpected) {
+        public long monthlyCents() {
+            return Math.round(amountCents * (double) SHORT_WINDOW_DAYS / intervalDays);
+        }
+    }
+}
@@ -2,17 +2,37 @@ package com.sanddollar.service;
 
 import com.sanddollar.dto.CategorySpendResponse;
 import com.sanddollar.dto.DailySpendResponse;
+import com.sanddollar.dto.SpendingAnalyticsResponse;
+import com.sanddollar.dto.SpendingSummaryResponse;
+import com.sanddollar.dto.TransactionPageResponse;
+import com.sanddollar.entity.Account;
+import com.sanddollar.entity.AccountLatestBalance;
 import com.sanddollar.entity.User;
-import com.sanddollar.repository.BalanceSnapshotRepository;
+import com.sanddollar.repository.AccountLatestBalanceRepository;
+import com.sanddollar.repository.BalanceSnapshotDailyRepository;
+import com.sanddollar.repository.DailyCategorySpendRepository;
 import com.sanddollar.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,14 +40,29 @@ import java.util.Map;
 @Transactional(readOnly = true)
 public class SpendingService {
 
+    private static final int TOP_MERCHANT_LIMIT = 10;
+    private static final int MAX_TRANSACTION_PAGE_SIZE = 200;
+    private static final int MAX_TREND_DAYS = 730;
+    // Longer trend ranges are returned as one point per week instead of per day
+    private static final int DAILY_TREND_MAX_DAYS = 92;
+
+    @Autowired
+    private DailyCategorySpendRepository dailyCategorySpendRepository;
+
     @Autowired
     private TransactionRepository transactionRepository;
 
     @Autowired
-    private BalanceSnapshotRepository balanceSnapshotRepository;
+    private AccountLatestBalanceRepository latestBalanceRepository;
+
+    @Autowired
+    private BalanceSnapshotDailyRepository balanceSnapshotDailyRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     public Map<String, Object> getTotalBalance(User user) {
-        Long totalAvailable = balanceSnapshotRepository.getTotalAvailableBalanceForUser(user.getId());
+        Long totalAvailable = latestBalanceRepository.sumAvailableCentsByUserId(user.getId());
         if (totalAvailable == null) {
             totalAvailable = 0L;
         }
@@ -39,11 +74,60 @@ public class SpendingService {
         return result;
     }
 
+    public List<Map<String, Object>> getAccounts(User user) {
+        List<Object[]> rows = latestBalanceRepository.findAccountsWithLatestBalance(user.getId());
+
+        List<Map<String, Object>> accounts = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Account account = (Account) row[0];
+            AccountLatestBalance latest = (AccountLatestBalance) row[1];
+
+            Map<String, Object> accountData = new HashMap<>();
+            accountData.put("id", account.getId());
+            accountData.put("name", account.getName());
+            accountData.put("type", account.getType());
+            accountData.put("subtype", account.getSubtype());
+            accountData.put("mask", account.getMask());
+            accountData.put("institutionName", account.getInstitutionName());
+            // Convert cents to dollars for frontend
+            accountData.put("balance", latest != null ? latest.getCurrentCents() / 100.0 : 0.0);
+            accounts.add(accountData);
+        }
+        return accounts;
+    }
+
+    /**
+     * Total balance over time from the daily balance rollup, which holds at most one
+     * row per account per day. Weekly ranges use the last day with data in each week.
+     */
+    public List<Map<String, Object>> getBalanceTrend(User user, int days) {
+        int range = Math.max(1, Math.min(days, MAX_TREND_DAYS));
+        LocalDate startDate = LocalDate.now(ZoneOffset.UTC).minusDays(range);
+        boolean weekly = range > DAILY_TREND_MAX_DAYS;
+
+        // Rows are ordered by day, so the last row of a week replaces earlier ones
+        Map<LocalDate, Object[]> points = new LinkedHashMap<>();
+        for (Object[] row : balanceSnapshotDailyRepository.getDailyTotals(user.getId(), startDate)) {
+            LocalDate day = (LocalDate) row[0];
+            LocalDate bucket = weekly ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : day;
+            points.put(bucket, row);
+        }
+
+        List<Map<String, Object>> trendData = new ArrayList<>(points.size());
+        for (Object[] row : points.values()) {
+            Map<String, Object> dataPoint = new HashMap<>();
+            dataPoint.put("date", row[0].toString()); // YYYY-MM-DD
+            dataPoint.put("balance", ((Number) row[1]).longValue() / 100.0); // Convert cents to dollars
+            trendData.add(dataPoint);
+        }
+        return trendData;
+    }
+
     public DailySpendResponse getDailySpending(User user, int days) {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(days - 1);
 
-        List<Object[]> dailySpendData = transactionRepository.getDailySpending(user, startDate, endDate);
+        List<Object[]> dailySpendData = dailyCategorySpendRepository.getDailySpending(user.getId(), startDate, endDate);
         
         Map<LocalDate, Long> spendByDate = new HashMap<>();
         for (Object[] row : dailySpendData) {
@@ -69,8 +153,8 @@ public class SpendingService {
         LocalDate startDate = getStartDateForPeriod(endDate, period);
         LocalDate previousStartDate = getStartDateForPeriod(startDate.minusDays(1), period);
 
-        List<Object[]> currentPeriodData = transactionRepository.getSpendingByCategory(user, startDate, endDate);
-        List<Object[]> previousPeriodData = transactionRepository.getSpendingByCategory(user, previousStartDate, startDate.minusDays(1));
+        List<Object[]> currentPeriodData = dailyCategorySpendRepository.getSpendingByCategory(user.getId(), startDate, endDate);
+        List<Object[]> previousPeriodData = dailyCategorySpendRepository.getSpendingByCategory(user.getId(), previousStartDate, startDate.minusDays(1));
 
         Map<String, Long> previousSpending = new HashMap<>();
         for (Object[] row : previousPeriodData) {
@@ -117,6 +201,208 @@ public class SpendingService {
         return new CategorySpendResponse(categories, totalSpent, period);
     }
 
+    /**
+     * Income, expenses and per-category spend over the last {@code period} days,
+     * aggregated from the daily rollup. Amounts are in cents.
+     */
+    public SpendingSummaryResponse getSpendingSummary(User user, int period) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(period);
+
+        List<Object[]> rows = dailyCategorySpendRepository.getCategoryTotals(user.getId(), startDate, endDate);
+
+        long totalIncome = 0;
+        long totalExpenses = 0;
+        long transactionCount = 0;
+        for (Object[] row : rows) {
+            totalExpenses += ((Number) row[1]).longValue();
+            totalIncome += ((Number) row[2]).longValue();
+            transactionCount += ((Number) row[3]).longValue();
+        }
+
+        List<SpendingSummaryResponse.CategoryShare> categories = new ArrayList<>();
+        for (Object[] row : rows) {
+            long spent = ((Number) row[1]).longValue();
+            if (spent <= 0) {
+                continue;
+            }
+            long percentage = totalExpenses > 0 ? Math.round((double) spent / totalExpenses * 100) : 0;
+            categories.add(new SpendingSummaryResponse.CategoryShare((String) row[0], spent, percentage));
+        }
+
+        return new SpendingSummaryResponse(totalIncome, totalExpenses, totalIncome - totalExpenses,
+            categories, period, transactionCount);
+    }
+
+    /**
+     * Spending breakdown over the last {@code period} days. Category and daily totals
+     * come from the rollup; top merchants are grouped and limited in the database.
+     */
+    public SpendingAnalyticsResponse getSpendingAnalytics(User user, int period) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(period);
+
+        List<Object[]> categoryRows = dailyCategorySpendRepository.getSpendingByCategory(user.getId(), startDate, endDate);
+        long totalSpent = 0;
+        long transactionCount = 0;
+        for (Object[] row : categoryRows) {
+            totalSpent += ((Number) row[1]).longValue();
+            transactionCount += ((Number) row[2]).longValue();
+        }
+
+        List<SpendingAnalyticsResponse.CategoryBreakdown> categories = new ArrayList<>(categoryRows.size());
+        for (Object[] row : categoryRows) {
+            long spent = ((Number) row[1]).longValue();
+            categories.add(new SpendingAnalyticsResponse.CategoryBreakdown(
+                (String) row[0],
+                spent / 100.0,
+                ((Number) row[2]).longValue(),
+                totalSpent > 0 ? (double) spent / totalSpent * 100 : 0
+            ));
+        }
+
+        // Rollup days come back newest first; the chart wants oldest first
+        List<Object[]> dayRows = dailyCategorySpendRepository.getDailySpending(user.getId(), startDate, endDate);
+        List<SpendingAnalyticsResponse.DailyTrend> trends = new ArrayList<>(dayRows.size());
+        for (int i = dayRows.size() - 1; i >= 0; i--) {
+            long spent = ((Number) dayRows.get(i)[1]).longValue();
+            if (spent > 0) {
+                trends.add(new SpendingAnalyticsResponse.DailyTrend(dayRows.get(i)[0].toString(), spent / 100.0));
+            }
+        }
+
+        List<Object[]> merchantRows = transactionRepository.getTopMerchants(
+            user.getId(), startDate, endDate, PageRequest.of(0, TOP_MERCHANT_LIMIT));
+        List<SpendingAnalyticsResponse.MerchantSpend> topMerchants = new ArrayList<>(merchantRows.size());
+        for (Object[] row : merchantRows) {
+            topMerchants.add(new SpendingAnalyticsResponse.MerchantSpend(
+                row[0] != null ? (String) row[0] : "Unknown Merchant",
+                ((Number) row[1]).longValue() / 100.0,
+                ((Number) row[2]).longValue()
+            ));
+        }
+
+        double averageDaily = totalSpent == 0 ? 0.0 : (double) totalSpent / period / 100.0;
+        return new SpendingAnalyticsResponse(totalSpent / 100.0, averageDaily, categories, trends,
+            topMerchants, period, transactionCount);
+    }
+
+    /**
+     * One page of a user's transactions, newest first, using keyset pagination on
+     * (date, id) so each page costs the same no matter how deep the client has paged.
+     * Filters on the denormalized {@code t.userId} so the seek and the order both come
+     * from the (user_id, date DESC, id DESC) index.
+     *
+     * @param cursor opaque cursor from a previous page's {@code nextCursor}, or null for the first page
+     */
+    public TransactionPageResponse getTransactionPage(User user, TransactionFilter filter, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_TRANSACTION_PAGE_SIZE));
+
+        StringBuilder jpql = new StringBuilder(
+            "SELECT t.id, t.name, t.merchantName, t.categoryTop, t.amountCents, t.date, t.pending, t.account.id " +
+            "FROM Transaction t WHERE t.userId = :userId");
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", user.getId());
+
+        if (filter.category() != null && !filter.category().isBlank()) {
+            jpql.append(" AND t.categoryTop = :category");
+            params.put("category", filter.category());
+        }
+        if (filter.accountId() != null) {
+            jpql.append(" AND t.account.id = :accountId");
+            params.put("accountId", filter.accountId());
+        }
+        if (filter.pending() != null) {
+            jpql.append(" AND t.pending = :pending");
+            params.put("pending", filter.pending());
+        }
+        if (filter.minAmount() != null) {
+            jpql.append(" AND t.amountCents >= :minAmountCents");
+            params.put("minAmountCents", toCents(filter.minAmount()));
+        }
+        if (filter.maxAmount() != null) {
+            jpql.append(" AND t.amountCents <= :maxAmountCents");
+            params.put("maxAmountCents", toCents(filter.maxAmount()));
+        }
+        if (filter.merchant() != null && !filter.merchant().isBlank()) {
+            jpql.append(" AND (LOWER(t.merchantName) LIKE :merchant ESCAPE '!' OR LOWER(t.name) LIKE :merchant ESCAPE '!')");
+            params.put("merchant", "%" + escapeLike(filter.merchant().trim().toLowerCase()) + "%");
+        }
+        if (filter.periodDays() != null && filter.periodDays() > 0) {
+            jpql.append(" AND t.date >= :since");
+            params.put("since", LocalDate.now().minusDays(filter.periodDays()));
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            TransactionCursor position = TransactionCursor.decode(cursor);
+            jpql.append(" AND (t.date < :cursorDate OR (t.date = :cursorDate AND t.id < :cursorId))");
+            params.put("cursorDate", position.date());
+            params.put("cursorId", position.id());
+        }
+        jpql.append(" ORDER BY t.date DESC, t.id DESC");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        params.forEach(query::setParameter);
+        // One extra row tells us whether another page exists without a count query
+        List<Object[]> rows = query.setMaxResults(pageSize + 1).getResultList();
+
+        boolean hasMore = rows.size() > pageSize;
+        List<TransactionPageResponse.TransactionItem> items = new ArrayList<>(Math.min(rows.size(), pageSize));
+        for (int i = 0; i < rows.size() && i < pageSize; i++) {
+            Object[] row = rows.get(i);
+            items.add(new TransactionPageResponse.TransactionItem(
+                (Long) row[0],
+                (String) row[1],
+                (String) row[2],
+                row[3] != null ? (String) row[3] : "Other",
+                ((Long) row[4]) / 100.0,
+                row[5].toString(),
+                Boolean.TRUE.equals(row[6]),
+                (Long) row[7]
+            ));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Object[] last = rows.get(pageSize - 1);
+            nextCursor = new TransactionCursor((LocalDate) last[5], (Long) last[0]).encode();
+        }
+        return new TransactionPageResponse(items, nextCursor);
+    }
+
+    private long toCents(BigDecimal dollars) {
+        return dollars.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    /**
+     * Optional /transactions filters; null means "don't filter". Amounts are signed dollars
+     * as shown in the response (spending is negative).
+     */
+    public record TransactionFilter(String category, Long accountId, Boolean pending,
+                                    BigDecimal minAmount, BigDecimal maxAmount,
+                                    String merchant, Integer periodDays) { }
+
+    private record TransactionCursor(LocalDate date, long id) {
+        String encode() {
+            String raw = date + "," + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static TransactionCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int comma = raw.indexOf(',');
+                return new TransactionCursor(LocalDate.parse(raw.substring(0, comma)),
+                    Long.parseLong(raw.substring(comma + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid transactions cursor");
+            }
+        }
+    }
+
     private LocalDate getStartDateForPeriod(LocalDate endDate, String period) {
         return switch (period) {
             case "30d" -> endDate.minusDays(30);
@@ -4,13 +4,14 @@ import com.sanddollar.dto.aibudget.*;
 import com.sanddollar.entity.BudgetTarget;
 import com.sanddollar.entity.User;
 import com.sanddollar.repository.BudgetTargetRepository;
-import com.sanddollar.repository.TransactionRepository;
-import com.sanddollar.repository.BalanceSnapshotRepository;
 import com.sanddollar.security.UserPrincipal;
 import com.sanddollar.service.AiBudgetRateLimiter;
+import com.sanddollar.service.AiBudgetResponseCache;
 import com.sanddollar.service.AiBudgetService;
+import com.sanddollar.service.AiBudgetSingleFlight;
 import com.sanddollar.service.OpenAiClient;
 import com.sanddollar.service.SpendingDataProvider;
+import com.sanddollar.service.SpendingFeatureStore;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -32,6 +33,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,12 +43,6 @@ public class AiBudgetServiceImpl implements AiBudgetService {
     private static final Logger logger = LoggerFactory.getLogger(AiBudgetServiceImpl.class);
     private final ObjectMapper objectMapper = new ObjectMapper();
     
-    @Autowired
-    private TransactionRepository transactionRepository;
-
-    @Autowired
-    private BalanceSnapshotRepository balanceSnapshotRepository;
-    
     @Autowired
     private BudgetTargetRepository budgetTargetRepository;
     
@@ -59,6 +55,15 @@ public class AiBudgetServiceImpl implements AiBudgetService {
     @Autowired
     private SpendingDataProvider spendingDataProvider;
 
+    @Autowired
+    private AiBudgetResponseCache responseCache;
+
+    @Autowired
+    private AiBudgetSingleFlight singleFlight;
+
+    @Autowired
+    private SpendingFeatureStore spendingFeatureStore;
+
     @Value("${feature.ai-budget-enabled:true}")
     private boolean aiBudgetEnabled;
     
@@ -130,7 +135,44 @@ public class AiBudgetServiceImpl implements AiBudgetService {
     
     @Override
     public GenerateBudgetResponse generateBudget(GenerateBudgetRequest request) {
+        return generateBudget(request, stage -> { });
+    }
+
+    @Override
+    public GenerateBudgetResponse generateBudget(GenerateBudgetRequest request, Consumer<GenerationStage> progress) {
         User user = getCurrentUser();
+        progress.accept(GenerationStage.GATHERING_HISTORY);
+        HistoricalData historicalData = getHistoricalData(user);
+
+        String systemPrompt = buildSystemPrompt();
+        String userPrompt = buildUserPrompt(request, historicalData);
+        String fingerprint = aiBudgetEnabled ? responseCache.fingerprint(systemPrompt, userPrompt) : null;
+        if (fingerprint == null) {
+            return generateUncached(request, user, historicalData, systemPrompt, userPrompt, null, progress);
+        }
+
+        // Identical prompts get the plan generated a moment ago without spending a request
+        Optional<GenerateBudgetResponse> cached = responseCache.get(user.getId(), fingerprint);
+        if (cached.isPresent()) {
+            logger.info("ai_budget.generate.cache_hit user={}", user.getId());
+            return cached.get();
+        }
+
+        // Concurrent identical requests share one generation and one rate-limit token;
+        // callers that join one only see the wait, as its stages go to the caller running it
+        return singleFlight.execute(user.getId(), fingerprint,
+            () -> generateUncached(request, user, historicalData, systemPrompt, userPrompt, fingerprint, progress),
+            () -> progress.accept(GenerationStage.WAITING));
+    }
+
+    private GenerateBudgetResponse generateUncached(GenerateBudgetRequest request, User user, HistoricalData historicalData,
+                                                    String systemPrompt, String userPrompt, String fingerprint,
+                                                    Consumer<GenerationStage> progress) {
+        // OpenAI is failing: answer from the heuristic right away, without spending a token
+        if (aiBudgetEnabled && openAiClient.isCircuitOpen()) {
+            logger.info("ai_budget.generate.fallback user={} reason=circuit_open", user.getId());
+            return generateFallbackBudget(request, user, historicalData);
+        }
 
         if (!rateLimiter.tryConsume(user.getId())) {
             throw new org.springframework.web.server.ResponseStatusException(
@@ -139,27 +181,25 @@ public class AiBudgetServiceImpl implements AiBudgetService {
             );
         }
 
-        try {
-            HistoricalData historicalData = getHistoricalData(user);
-
-            if (!aiBudgetEnabled) {
-                logger.info("ai_budget.generate.fallback user={} reason=disabled", user.getId());
-                return generateFallbackBudget(request, user, historicalData);
-            }
-
-            String systemPrompt = buildSystemPrompt();
-            String userPrompt = buildUserPrompt(request, historicalData);
+        if (!aiBudgetEnabled) {
+            logger.info("ai_budget.generate.fallback user={} reason=disabled", user.getId());
+            return generateFallbackBudget(request, user, historicalData);
+        }
 
+        try {
+            progress.accept(GenerationStage.PROMPTING);
             long start = System.nanoTime();
             OpenAiClient.OpenAiResponse aiResponse = openAiClient.generateBudgetRecommendations(systemPrompt, userPrompt);
             long latencyMs = java.time.Duration.ofNanos(System.nanoTime() - start).toMillis();
 
+            progress.accept(GenerationStage.VALIDATING);
             Optional<GenerateBudgetResponse> parsed = parseAiResponse(request.getMonth(), aiResponse);
             if (parsed.isPresent()) {
                 int promptTokens = aiResponse.usage != null ? aiResponse.usage.promptTokens : 0;
                 int completionTokens = aiResponse.usage != null ? aiResponse.usage.completionTokens : 0;
                 logger.info("ai_budget.generate.success user={} latencyMs={} promptTokens={} completionTokens={}",
                     user.getId(), latencyMs, promptTokens, completionTokens);
+                responseCache.put(user.getId(), fingerprint, parsed.get());
                 return parsed.get();
             }
 
@@ -170,7 +210,6 @@ public class AiBudgetServiceImpl implements AiBudgetService {
             throw e;
         } catch (Exception e) {
             logger.warn("ai_budget.generate.error user={} message={}", user.getId(), e.getMessage());
-            HistoricalData historicalData = getHistoricalData(user);
             return generateFallbackBudget(request, user, historicalData);
         }
     }
@@ -214,45 +253,16 @@ public class AiBudgetServiceImpl implements AiBudgetService {
         return userPrincipal.getUser();
     }
     
-    private BigDecimal calculateMonthlyIncome(User user, LocalDate startDate, LocalDate endDate) {
-        // Get positive transactions (income) - simplified estimation
-        List<Object[]> incomeData = transactionRepository.getSpendingByCategory(user, startDate, endDate);
-        
-        // For now, estimate based on typical income patterns or use a default
-        // In production, you'd want a more sophisticated income detection
-        return new BigDecimal("6200.00"); // Default estimate
-    }
-    
-    private List<FinancialSnapshotResponse.CategoryActual> getSpendingByCategory(User user, LocalDate startDate, LocalDate endDate) {
-        List<Object[]> spendingData = transactionRepository.getSpendingByCategory(user, startDate, endDate);
-        
-        return spendingData.stream()
-            .map(row -> {
-                String category = (String) row[0];
-                Long amountCents = (Long) row[1];
-                BigDecimal amount = new BigDecimal(amountCents).divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-                return new FinancialSnapshotResponse.CategoryActual(category, amount);
-            })
-            .collect(Collectors.toList());
-    }
-    
     private HistoricalData getHistoricalData(User user) {
-        // Get last 90 days of spending
-        LocalDate endDate = LocalDate.now();
-        LocalDate startDate = endDate.minusDays(90);
-        
-        List<Object[]> spendingData = transactionRepository.getSpendingByCategory(user, startDate, endDate);
-        
-        Map<String, BigDecimal> avgSpending = spendingData.stream()
-            .collect(Collectors.toMap(
-                row -> (String) row[0],
-                row -> new BigDecimal((Long) row[1]).divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP)
-                    .divide(new BigDecimal("3"), 2, RoundingMode.HALF_UP) // 3 months avg
-            ));
+        // Precomputed on sync; averages are keyed in sorted order, so the same history
+        // always renders the same prompt (and cache key)
+        SpendingFeatureStore.SpendingFeatures features = spendingFeatureStore.get(user.getId());
 
-        BigDecimal estimatedIncome = calculateMonthlyIncome(user, startDate, endDate);
-        
-        return new HistoricalData(avgSpending, estimatedIncome);
+        Map<String, BigDecimal> avgSpending = new TreeMap<>();
+        features.categories().forEach((category, average) ->
+            avgSpending.put(category, fromCents(average.monthly90dCents())));
+
+        return new HistoricalData(avgSpending, fromCents(features.monthlyIncomeCents()), features);
     }
     
     private String buildSystemPrompt() {
@@ -288,12 +298,36 @@ public class AiBudgetServiceImpl implements AiBudgetService {
         StringBuilder prompt = new StringBuilder();
         prompt.append("Month: ").append(request.getMonth()).append("\n");
 
-        BigDecimal monthlyIncome = historicalData.estimatedIncome;
-        prompt.append("Net monthly income: $").append(monthlyIncome).append("\n\n");
+        SpendingFeatureStore.SpendingFeatures features = historicalData.features;
+        if (features.monthlyIncomeCents() > 0) {
+            prompt.append("Net monthly income: $").append(historicalData.estimatedIncome)
+                .append(" (detected from regular deposits)\n\n");
+        } else {
+            prompt.append("Net monthly income: unknown (no regular deposits found in the last 90 days)\n\n");
+        }
 
-        prompt.append("Average spend by category over last 90 days (monthly):\n");
-        historicalData.avgSpending.forEach((category, amount) ->
-            prompt.append("- ").append(category).append(": $").append(amount).append("\n"));
+        prompt.append("Average monthly spend by category (last 30 days / last 90 days):\n");
+        features.categories().forEach((category, average) ->
+            prompt.append("- ").append(category)
+                .append(": $").append(fromCents(average.monthly30dCents()))
+                .append(" / $").append(fromCents(average.monthly90dCents())).append("\n"));
+        if (features.historyDays() < 90) {
+            prompt.append("(Only ").append(features.historyDays()).append(" days of history available)\n");
+        }
+        prompt.append("Week-to-week spending volatility (coefficient of variation): ")
+            .append(features.spendVolatility()).append("\n");
+
+        if (!features.recurringBills().isEmpty()) {
+            prompt.append("\nRecurring bills:\n");
+            for (SpendingFeatureStore.RecurringBill bill : features.recurringBills()) {
+                prompt.append("- ").append(bill.merchant());
+                if (bill.category() != null) {
+                    prompt.append(" (").append(bill.category()).append(")");
+                }
+                prompt.append(": $").append(fromCents(bill.amountCents()))
+                    .append(" every ").append(bill.intervalDays()).append(" days\n");
+            }
+        }
 
         prompt.append("\nGoals:\n");
         for (String goal : request.getGoals()) {
@@ -505,13 +539,20 @@ public class AiBudgetServiceImpl implements AiBudgetService {
         return new BigDecimal(cents).divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
     }
 
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
     private static class HistoricalData {
         final Map<String, BigDecimal> avgSpending;
         final BigDecimal estimatedIncome;
+        final SpendingFeatureStore.SpendingFeatures features;
 
-        HistoricalData(Map<String, BigDecimal> avgSpending, BigDecimal estimatedIncome) {
+        HistoricalData(Map<String, BigDecimal> avgSpending, BigDecimal estimatedIncome,
+                       SpendingFeatureStore.SpendingFeatures features) {
             this.avgSpending = avgSpending;
             this.estimatedIncome = estimatedIncome;
+            this.features = features;
         }
     }
 
@@ -29,8 +29,9 @@ WITH categories(category, amount_cents) AS (
 ), months AS (
     SELECT generate_series(0, 2) AS m
 )
-INSERT INTO transactions (account_id, external_id, date, name, merchant_name, amount_cents, currency, category_top, category_sub, is_transfer, created_at, updated_at)
+INSERT INTO transactions (account_id, user_id, external_id, date, name, merchant_name, amount_cents, currency, category_top, category_sub, is_transfer, created_at, updated_at)
 SELECT 
+    9001,
     9001,
     CONCAT('local-txn-', category, '-', m.m),
     (date_trunc('month', CURRENT_DATE) - (m.m || ' months')::interval) + INTERVAL '5 days',
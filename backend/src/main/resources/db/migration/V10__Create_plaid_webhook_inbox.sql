@@ -0,0 +1,20 @@
+-- Durable inbox for Plaid webhooks. One row per item and webhook code, so a burst
+-- of identical webhooks collapses into a single pending entry.
+CREATE TABLE plaid_webhook_inbox (
+    id BIGSERIAL PRIMARY KEY,
+    item_id VARCHAR(255) NOT NULL,
+    webhook_type VARCHAR(100),
+    webhook_code VARCHAR(100) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    redeliver BOOLEAN NOT NULL DEFAULT FALSE,
+    received_count INTEGER NOT NULL DEFAULT 1,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    first_received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_at TIMESTAMP,
+    last_error TEXT,
+    CONSTRAINT uq_plaid_webhook_inbox_item_code UNIQUE (item_id, webhook_code)
+);
+
+CREATE INDEX idx_plaid_webhook_inbox_status ON plaid_webhook_inbox(status, available_at);
@@ -0,0 +1,5 @@
+-- Time of the last sync that reached the end of the item's transaction stream,
+-- used by the background scheduler to sync the stalest items first
+ALTER TABLE plaid_items ADD COLUMN last_synced_at TIMESTAMP;
+
+CREATE INDEX idx_plaid_items_status_last_synced ON plaid_items(status, last_synced_at);
@@ -0,0 +1,25 @@
+-- Per-user, per-day, per-category rollup of non-transfer transactions, maintained
+-- incrementally by the sync paths so dashboards do not rescan raw transactions
+CREATE TABLE daily_category_spend (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    "day" DATE NOT NULL,
+    category_top VARCHAR(100) NOT NULL,
+    spend_cents BIGINT NOT NULL DEFAULT 0,
+    income_cents BIGINT NOT NULL DEFAULT 0,
+    txn_count INTEGER NOT NULL DEFAULT 0,    -- every non-transfer row; 0 means the row is empty
+    spend_count INTEGER NOT NULL DEFAULT 0,  -- outflows only, as reported per category
+    CONSTRAINT uq_daily_category_spend UNIQUE (user_id, "day", category_top)
+);
+
+-- Backfill from existing transactions
+INSERT INTO daily_category_spend (user_id, "day", category_top, spend_cents, income_cents, txn_count, spend_count)
+SELECT a.user_id, t.date, COALESCE(t.category_top, 'Other'),
+       SUM(CASE WHEN t.amount_cents < 0 THEN -t.amount_cents ELSE 0 END),
+       SUM(CASE WHEN t.amount_cents > 0 THEN t.amount_cents ELSE 0 END),
+       COUNT(*),
+       COUNT(*) FILTER (WHERE t.amount_cents < 0)
+FROM transactions t
+JOIN accounts a ON a.id = t.account_id
+WHERE COALESCE(t.is_transfer, FALSE) = FALSE
+GROUP BY a.user_id, t.date, COALESCE(t.category_top, 'Other');
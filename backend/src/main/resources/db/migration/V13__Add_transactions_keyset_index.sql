@@ -0,0 +1,24 @@
+-- Supports keyset pagination of /transactions (WHERE user_id = ? ORDER BY date DESC, id DESC).
+-- The page query filters on the owning user, not an account, so the owner is copied onto
+-- each row; an index on (account_id, date, id) would need one range scan per account
+-- plus a sort to merge them.
+ALTER TABLE transactions ADD COLUMN user_id BIGINT REFERENCES users(id) ON DELETE CASCADE;
+
+UPDATE transactions t SET user_id = a.user_id FROM accounts a WHERE a.id = t.account_id;
+
+ALTER TABLE transactions ALTER COLUMN user_id SET NOT NULL;
+
+-- The application sets user_id on insert; this keeps raw SQL writers and account
+-- reassignments consistent with accounts.user_id
+CREATE OR REPLACE FUNCTION set_transaction_user_id()
+RETURNS TRIGGER AS $$
+BEGIN
+    SELECT a.user_id INTO NEW.user_id FROM accounts a WHERE a.id = NEW.account_id;
+    RETURN NEW;
+END;
+$$ language 'plpgsql';
+
+CREATE TRIGGER set_transactions_user_id BEFORE INSERT OR UPDATE OF account_id ON transactions
+    FOR EACH ROW EXECUTE FUNCTION set_transaction_user_id();
+
+CREATE INDEX idx_transactions_user_date_id ON transactions(user_id, date DESC, id DESC);
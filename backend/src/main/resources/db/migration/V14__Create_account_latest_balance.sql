@@ -0,0 +1,19 @@
+-- Most recent balance snapshot per account, so totals and the accounts list do not
+-- need MAX(id) subqueries over balance_snapshots
+CREATE TABLE account_latest_balance (
+    account_id BIGINT PRIMARY KEY REFERENCES accounts(id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    snapshot_id BIGINT NOT NULL,
+    available_cents BIGINT,
+    current_cents BIGINT NOT NULL,
+    currency VARCHAR(3),
+    as_of TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_account_latest_balance_user_id ON account_latest_balance(user_id);
+
+INSERT INTO account_latest_balance (account_id, user_id, snapshot_id, available_cents, current_cents, currency, as_of)
+SELECT bs.account_id, a.user_id, bs.id, bs.available_cents, bs.current_cents, bs.currency, bs.as_of
+FROM balance_snapshots bs
+JOIN accounts a ON a.id = bs.account_id
+WHERE bs.id IN (SELECT MAX(id) FROM balance_snapshots GROUP BY account_id);
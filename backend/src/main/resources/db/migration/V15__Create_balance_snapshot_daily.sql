@@ -0,0 +1,31 @@
+-- One row per account per day summarising that day's balance snapshots. Written
+-- alongside every snapshot; raw snapshots older than the retention window are pruned
+CREATE TABLE balance_snapshot_daily (
+    id BIGSERIAL PRIMARY KEY,
+    account_id BIGINT NOT NULL REFERENCES accounts(id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    "day" DATE NOT NULL,
+    last_snapshot_id BIGINT NOT NULL,
+    last_current_cents BIGINT NOT NULL,
+    last_available_cents BIGINT,
+    min_current_cents BIGINT NOT NULL,
+    max_current_cents BIGINT NOT NULL,
+    currency VARCHAR(3),
+    CONSTRAINT uq_balance_snapshot_daily UNIQUE (account_id, "day")
+);
+
+CREATE INDEX idx_balance_snapshot_daily_user_day ON balance_snapshot_daily(user_id, "day");
+
+-- Backfill from existing snapshots (as_of is stored in UTC)
+INSERT INTO balance_snapshot_daily (account_id, user_id, "day", last_snapshot_id, last_current_cents,
+                                    last_available_cents, min_current_cents, max_current_cents, currency)
+SELECT p.account_id, a.user_id, p.snapshot_day, p.last_id, s.current_cents,
+       s.available_cents, p.min_current, p.max_current, s.currency
+FROM (
+    SELECT account_id, CAST(as_of AS DATE) AS snapshot_day, MAX(id) AS last_id,
+           MIN(current_cents) AS min_current, MAX(current_cents) AS max_current
+    FROM balance_snapshots
+    GROUP BY account_id, CAST(as_of AS DATE)
+) p
+JOIN balance_snapshots s ON s.id = p.last_id
+JOIN accounts a ON a.id = p.account_id;
@@ -0,0 +1,13 @@
+-- Shared token buckets for AI endpoint rate limits when running several replicas
+-- (feature.ai-rate-limits.distributed.enabled)
+CREATE TABLE ai_rate_limit_buckets (
+    id BIGSERIAL PRIMARY KEY,
+    endpoint VARCHAR(32) NOT NULL,
+    user_key BIGINT NOT NULL,
+    tokens DOUBLE PRECISION NOT NULL,
+    last_granted INTEGER NOT NULL DEFAULT 0,
+    refilled_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uq_ai_rate_limit_buckets UNIQUE (endpoint, user_key)
+);
+
+CREATE INDEX idx_ai_rate_limit_buckets_refilled_at ON ai_rate_limit_buckets(refilled_at);
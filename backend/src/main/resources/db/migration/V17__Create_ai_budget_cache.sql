@@ -0,0 +1,13 @@
+-- Second-level cache of successful AI budget generations, keyed by a hash of the
+-- prompts and model (feature.ai-budget.cache.persistent)
+CREATE TABLE ai_budget_cache (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    fingerprint VARCHAR(64) NOT NULL,
+    response_json TEXT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uq_ai_budget_cache_user_fingerprint UNIQUE (user_id, fingerprint)
+);
+
+CREATE INDEX idx_ai_budget_cache_expires_at ON ai_budget_cache(expires_at);
@@ -0,0 +1,15 @@
+-- Asynchronous AI budget generations (feature.ai-budget.jobs.persistent)
+CREATE TABLE ai_budget_jobs (
+    id VARCHAR(36) PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL,
+    stage VARCHAR(30),
+    request_json TEXT NOT NULL,
+    result_json TEXT,
+    error VARCHAR(500),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_ai_budget_jobs_user_id ON ai_budget_jobs(user_id);
+CREATE INDEX idx_ai_budget_jobs_updated_at ON ai_budget_jobs(updated_at);
@@ -0,0 +1,12 @@
+-- Per-user spending features for AI budget prompts, refreshed from the daily rollup
+-- whenever a sync changes the user's spending
+CREATE TABLE user_spending_features (
+    user_id BIGINT PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    as_of DATE NOT NULL,
+    history_days INTEGER NOT NULL,
+    monthly_income_cents BIGINT NOT NULL,
+    spend_volatility DOUBLE PRECISION NOT NULL,
+    category_averages_json TEXT NOT NULL,
+    recurring_bills_json TEXT NOT NULL,
+    computed_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
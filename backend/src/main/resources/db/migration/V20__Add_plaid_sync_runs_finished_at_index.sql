@@ -0,0 +1,2 @@
+-- Finished runs are purged once past their retention period
+CREATE INDEX idx_plaid_sync_runs_finished_at ON plaid_sync_runs(finished_at);
@@ -0,0 +1,19 @@
+-- Per-item sync progress so interrupted backfills resume from the last committed page
+CREATE TABLE plaid_sync_runs (
+    id BIGSERIAL PRIMARY KEY,
+    plaid_item_id BIGINT NOT NULL REFERENCES plaid_items(id) ON DELETE CASCADE,
+    mode VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    start_cursor TEXT,
+    pages_committed INTEGER NOT NULL DEFAULT 0,
+    transactions_upserted INTEGER NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_page_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    error TEXT
+);
+
+CREATE INDEX idx_plaid_sync_runs_item_status ON plaid_sync_runs(plaid_item_id, mode, status);
+
+-- Page cursors can exceed 255 characters
+ALTER TABLE plaid_items ALTER COLUMN cursor TYPE TEXT;
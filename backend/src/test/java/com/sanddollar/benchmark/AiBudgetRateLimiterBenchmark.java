@@ -0,0 +1,62 @@
+package com.sanddollar.benchmark;
+
+import com.sanddollar.service.AiBudgetRateLimiter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rate limiter decisions per second with 64 threads: all threads on one hot user,
+ * and spread over many users. The previous deque-per-user limiter is included,
+ * synchronized per user so that it is at least correct under contention.
+ */
+public class AiBudgetRateLimiterBenchmark {
+
+    private static final int THREADS = 64;
+    private static final int USERS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        // A high limit over a short window keeps both allow and deny paths busy
+        AiBudgetRateLimiter limiter = new AiBudgetRateLimiter(5_000, Duration.ofSeconds(1));
+        LegacyLimiter legacy = new LegacyLimiter(5_000, Duration.ofSeconds(1));
+
+        Throughput.measure("legacy deque, hot user", THREADS, () -> legacy.tryConsume(1L));
+        Throughput.measure("token bucket, hot user", THREADS, () -> limiter.tryConsume(1L));
+        Throughput.measure("legacy deque, " + USERS + " users", THREADS,
+            () -> legacy.tryConsume(ThreadLocalRandom.current().nextInt(USERS)));
+        Throughput.measure("token bucket, " + USERS + " users", THREADS,
+            () -> limiter.tryConsume(ThreadLocalRandom.current().nextInt(USERS)));
+    }
+
+    private static final class LegacyLimiter {
+        private final int maxRequests;
+        private final Duration window;
+        private final Map<Long, Deque<Instant>> requests = new ConcurrentHashMap<>();
+
+        LegacyLimiter(int maxRequests, Duration window) {
+            this.maxRequests = maxRequests;
+            this.window = window;
+        }
+
+        boolean tryConsume(long userId) {
+            Instant now = Instant.now();
+            Deque<Instant> deque = requests.computeIfAbsent(userId, key -> new ArrayDeque<>());
+            synchronized (deque) {
+                Instant expiration = now.minus(window);
+                while (!deque.isEmpty() && deque.peekFirst().isBefore(expiration)) {
+                    deque.pollFirst();
+                }
+                if (deque.size() >= maxRequests) {
+                    return false;
+                }
+                deque.addLast(now);
+                return true;
+            }
+        }
+    }
+}
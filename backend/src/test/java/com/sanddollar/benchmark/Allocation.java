@@ -0,0 +1,39 @@
+package com.sanddollar.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Heap allocated per operation on the calling thread, read from
+ * {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes}. Counts every
+ * byte the operation allocates, including garbage that never survives a young
+ * collection, so it tracks GC pressure rather than retained size. Run the same way
+ * as {@link Throughput}.
+ */
+final class Allocation {
+
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURE_ITERATIONS = 50;
+
+    // Keeps results observable so the JIT cannot drop the measured work
+    private static Object sink;
+
+    private Allocation() {}
+
+    static void measure(String name, Throughput.Operation operation) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            throw new IllegalStateException("Per-thread allocation accounting is not available on this JVM");
+        }
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink = operation.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            sink = operation.run();
+        }
+        long perOp = (threads.getCurrentThreadAllocatedBytes() - before) / MEASURE_ITERATIONS;
+        System.out.printf("%-50s %,14d bytes/op%n", name, perOp);
+    }
+}
@@ -0,0 +1,63 @@
+package com.sanddollar.benchmark;
+
+import com.sanddollar.service.CryptoService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Encrypt/decrypt throughput under concurrency: the previous implementation (key
+ * decoded and strong SecureRandom obtained per call) against {@link CryptoService}.
+ */
+public class CryptoServiceBenchmark {
+
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String ACCESS_TOKEN = "access-sandbox-7f3c2a9e-1b4d-4c8e-9f21-5d6a7b8c9d0e";
+
+    public static void main(String[] args) throws Exception {
+        CryptoService cryptoService = new CryptoService();
+        ReflectionTestUtils.setField(cryptoService, "encryptionKey", KEY);
+        ReflectionTestUtils.setField(cryptoService, "activeKeyId", "k1");
+        ReflectionTestUtils.setField(cryptoService, "tokenCacheTtlSeconds", 300L);
+        ReflectionTestUtils.setField(cryptoService, "tokenCacheMaxSize", 1000L);
+        ReflectionTestUtils.invokeMethod(cryptoService, "init");
+        String ciphertext = cryptoService.encrypt(ACCESS_TOKEN);
+        String unversionedCiphertext = legacyEncrypt(ACCESS_TOKEN);
+
+        int[] threadCounts = {1, 4, Runtime.getRuntime().availableProcessors() * 2};
+        for (int threads : threadCounts) {
+            Throughput.measure("encrypt (per-call key, strong RNG)", threads, () -> legacyEncrypt(ACCESS_TOKEN));
+            Throughput.measure("encrypt", threads, () -> cryptoService.encrypt(ACCESS_TOKEN));
+            Throughput.measure("decrypt (per-call key)", threads, () -> legacyDecrypt(unversionedCiphertext));
+            Throughput.measure("decrypt", threads, () -> cryptoService.decrypt(ciphertext));
+            Throughput.measure("decryptCached", threads, () -> cryptoService.decryptCached(ciphertext));
+        }
+    }
+
+    private static String legacyEncrypt(String plaintext) throws Exception {
+        SecretKeySpec secretKey = new SecretKeySpec(Base64.getDecoder().decode(KEY), "AES");
+        byte[] iv = new byte[12];
+        SecureRandom.getInstanceStrong().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(128, iv));
+        byte[] encryptedData = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+        byte[] encryptedWithIv = new byte[iv.length + encryptedData.length];
+        System.arraycopy(iv, 0, encryptedWithIv, 0, iv.length);
+        System.arraycopy(encryptedData, 0, encryptedWithIv, iv.length, encryptedData.length);
+        return Base64.getEncoder().encodeToString(encryptedWithIv);
+    }
+
+    private static String legacyDecrypt(String encryptedText) throws Exception {
+        SecretKeySpec secretKey = new SecretKeySpec(Base64.getDecoder().decode(KEY), "AES");
+        byte[] encryptedWithIv = Base64.getDecoder().decode(encryptedText);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(128, encryptedWithIv, 0, 12));
+        byte[] decrypted = cipher.doFinal(encryptedWithIv, 12, encryptedWithIv.length - 12);
+        return new String(decrypted, StandardCharsets.UTF_8);
+    }
+}
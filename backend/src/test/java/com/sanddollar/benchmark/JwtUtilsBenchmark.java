@@ -0,0 +1,42 @@
+package com.sanddollar.benchmark;
+
+import com.sanddollar.security.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Token verification throughput: the previous per-call key and parser construction
+ * against {@link JwtUtils#parseAndVerify}, which reuses both.
+ */
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hs256";
+
+    public static void main(String[] args) throws Exception {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 900_000L);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpirationMs", 900_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+        String token = jwtUtils.generateJwtToken("bench@sanddollar.app", 42L);
+
+        int[] threadCounts = {1, Runtime.getRuntime().availableProcessors()};
+        for (int threads : threadCounts) {
+            Throughput.measure("rebuild key and parser per call", threads, () -> parsePerCall(token));
+            Throughput.measure("parseAndVerify (shared parser)", threads, () -> jwtUtils.parseAndVerify(token));
+        }
+    }
+
+    // What every JwtUtils call used to do
+    private static Claims parsePerCall(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
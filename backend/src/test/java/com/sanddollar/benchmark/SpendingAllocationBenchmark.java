@@ -0,0 +1,122 @@
+package com.sanddollar.benchmark;
+
+import com.sanddollar.SandDollarApplication;
+import com.sanddollar.entity.Account;
+import com.sanddollar.entity.PlaidItem;
+import com.sanddollar.entity.Transaction;
+import com.sanddollar.entity.User;
+import com.sanddollar.repository.AccountRepository;
+import com.sanddollar.repository.PlaidItemRepository;
+import com.sanddollar.repository.TransactionRepository;
+import com.sanddollar.repository.UserRepository;
+import com.sanddollar.service.DailyCategorySpendRollup;
+import com.sanddollar.service.SpendingService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heap allocated per /spending/summary request: the previous controller code, which
+ * loaded every transaction in the window as an entity and totalled it in HashMaps,
+ * against {@link SpendingService#getSpendingSummary}, which reads the daily rollup.
+ *
+ * Starts the application on the in-memory H2 database of the mock profile, so the
+ * numbers include JDBC and Hibernate work but not a network round trip.
+ */
+public class SpendingAllocationBenchmark {
+
+    private static final int PERIOD_DAYS = 90;
+    private static final int[] TRANSACTION_COUNTS = {1_000, 10_000, 50_000};
+    private static final String[] CATEGORIES = {"Groceries", "Dining", "Transport", "Utilities", "Shopping", "Income"};
+
+    public static void main(String[] args) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SandDollarApplication.class)
+                .profiles("mock")
+                .properties("server.port=0", "spring.jpa.show-sql=false", "logging.level.root=WARN")
+                .run(args)) {
+            TransactionRepository transactionRepository = context.getBean(TransactionRepository.class);
+            SpendingService spendingService = context.getBean(SpendingService.class);
+
+            for (int count : TRANSACTION_COUNTS) {
+                User user = seed(context, count);
+                Allocation.measure("per-row entity aggregation, " + count + " txns",
+                    () -> legacySummary(transactionRepository, user, PERIOD_DAYS));
+                Allocation.measure("getSpendingSummary (rollup), " + count + " txns",
+                    () -> spendingService.getSpendingSummary(user, PERIOD_DAYS));
+            }
+        }
+    }
+
+    private static User seed(ConfigurableApplicationContext context, int count) {
+        User user = context.getBean(UserRepository.class).save(
+            new User("alloc-" + count + "@sanddollar.app", "x", "Alloc", "Bench"));
+        PlaidItem item = context.getBean(PlaidItemRepository.class).save(
+            new PlaidItem(user, "alloc-item-" + count, "ins_bench", "Bench Bank", "unused"));
+        Account account = context.getBean(AccountRepository.class).save(
+            new Account(user, item, "alloc-account-" + count, "0000", "Checking", "Bench Bank", "depository", "checking"));
+
+        TransactionRepository transactionRepository = context.getBean(TransactionRepository.class);
+        DailyCategorySpendRollup spendRollup = context.getBean(DailyCategorySpendRollup.class);
+        LocalDate today = LocalDate.now();
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String category = CATEGORIES[i % CATEGORIES.length];
+            long amount = category.equals("Income") ? 250_000 : -(500 + (i * 37L) % 20_000);
+            Transaction transaction = new Transaction(account, "alloc-" + count + "-" + i,
+                today.minusDays(i % PERIOD_DAYS), category + " purchase " + i, category + " " + (i % 40),
+                amount, category, category);
+            batch.add(transaction);
+            if (batch.size() == 1_000 || i == count - 1) {
+                spendRollup.addAll(transactionRepository.saveAll(batch));
+                batch.clear();
+            }
+        }
+        return user;
+    }
+
+    // What GET /spending/summary did before it moved to SpendingService
+    private static Map<String, Object> legacySummary(TransactionRepository transactionRepository, User user, int period) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(period);
+
+        List<Transaction> transactions = transactionRepository.findByUserAndDateRange(user, startDate, endDate);
+
+        long totalIncome = 0;
+        long totalExpenses = 0;
+        Map<String, Long> categorySpending = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            long amount = transaction.getAmountCents();
+            if (amount > 0) {
+                totalIncome += amount;
+            } else {
+                totalExpenses += Math.abs(amount);
+                String category = transaction.getCategoryTop() != null ? transaction.getCategoryTop() : "Other";
+                categorySpending.put(category, categorySpending.getOrDefault(category, 0L) + Math.abs(amount));
+            }
+        }
+
+        List<Map<String, Object>> categories = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : categorySpending.entrySet()) {
+            Map<String, Object> category = new HashMap<>();
+            category.put("category", entry.getKey());
+            category.put("amount", entry.getValue());
+            category.put("percentage", totalExpenses > 0
+                ? Math.round((double) entry.getValue() / totalExpenses * 100) : 0);
+            categories.add(category);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("totalIncome", totalIncome);
+        response.put("totalExpenses", totalExpenses);
+        response.put("netCashFlow", totalIncome - totalExpenses);
+        response.put("categories", categories);
+        response.put("period", period);
+        response.put("transactionCount", transactions.size());
+        return response;
+    }
+}
@@ -0,0 +1,74 @@
+package com.sanddollar.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Minimal multi-threaded throughput harness for the benchmarks in this package.
+ *
+ * The benchmarks are plain main classes rather than tests so that surefire never
+ * runs them; start one from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ * Numbers are only comparable between variants measured in the same run.
+ */
+final class Throughput {
+
+    private static final long WARMUP_MS = 2_000;
+    private static final long MEASURE_MS = 5_000;
+
+    private Throughput() {}
+
+    @FunctionalInterface
+    interface Operation {
+        Object run() throws Exception;
+    }
+
+    static void measure(String name, int threads, Operation operation) throws InterruptedException {
+        run(operation, threads, WARMUP_MS);
+        long ops = run(operation, threads, MEASURE_MS);
+        double perSecond = ops * 1000.0 / MEASURE_MS;
+        System.out.printf("%-40s threads=%-3d %,14.0f ops/s %,12.0f ops/s/thread%n",
+            name, threads, perSecond, perSecond / threads);
+    }
+
+    private static long run(Operation operation, int threads, long durationMs) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+        // One slot per thread, padded apart, so publishing results does not contend
+        Object[] sinks = new Object[threads * 16];
+
+        for (int i = 0; i < threads; i++) {
+            int slot = i * 16;
+            Thread thread = new Thread(() -> {
+                try {
+                    ready.countDown();
+                    start.await();
+                    long end = deadline[0];
+                    long count = 0;
+                    Object last = null;
+                    while (System.nanoTime() < end) {
+                        last = operation.run();
+                        count++;
+                    }
+                    sinks[slot] = last;
+                    ops.add(count);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        // Start the clock only once every thread is parked on the start latch
+        ready.await();
+        deadline[0] = System.nanoTime() + durationMs * 1_000_000;
+        start.countDown();
+        done.await();
+        return ops.sum();
+    }
+}
@@ -0,0 +1,194 @@
+package com.sanddollar.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanddollar.dto.aibudget.AiBudgetJobResponse;
+import com.sanddollar.dto.aibudget.GenerateBudgetRequest;
+import com.sanddollar.dto.aibudget.GenerateBudgetResponse;
+import com.sanddollar.entity.AiBudgetJob;
+import com.sanddollar.repository.AiBudgetJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AiBudgetJobServiceTest {
+
+    private static final long USER_ID = 1L;
+
+    private final AiBudgetService aiBudgetService = mock(AiBudgetService.class);
+    private final AiBudgetJobRepository repository = mock(AiBudgetJobRepository.class);
+    private final GenerateBudgetRequest request =
+        new GenerateBudgetRequest("2025-09", List.of("Save more"), "balanced", null, null);
+    private final GenerateBudgetResponse plan = new GenerateBudgetResponse("2025-09", List.of(), null, 10, 20);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AiBudgetJobService jobService;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (jobService != null) {
+            jobService.shutdown();
+        }
+    }
+
+    @Test
+    void submittedJobRunsToSuccess() throws Exception {
+        jobService = jobService(2, 2, 5_000, false);
+        when(aiBudgetService.generateBudget(eq(request), any())).thenAnswer(invocation -> {
+            Consumer<AiBudgetService.GenerationStage> progress = invocation.getArgument(1);
+            progress.accept(AiBudgetService.GenerationStage.GATHERING_HISTORY);
+            progress.accept(AiBudgetService.GenerationStage.PROMPTING);
+            return plan;
+        });
+
+        AiBudgetJobResponse submitted = jobService.submit(USER_ID, request);
+
+        AiBudgetJobResponse done = pollUntilFinished(submitted.getJobId());
+        assertEquals(AiBudgetJobService.SUCCEEDED, done.getStatus());
+        assertEquals("PROMPTING", done.getStage());
+        assertSame(plan, done.getResult());
+        assertTrue(jobService.get(submitted.getJobId(), 2L).isEmpty(), "other users cannot see the job");
+    }
+
+    @Test
+    void failedGenerationIsReportedWithItsReason() throws Exception {
+        jobService = jobService(2, 2, 5_000, false);
+        when(aiBudgetService.generateBudget(eq(request), any())).thenThrow(new ResponseStatusException(
+            HttpStatus.TOO_MANY_REQUESTS, "You can request a new AI plan in about a minute."));
+
+        AiBudgetJobResponse done = pollUntilFinished(jobService.submit(USER_ID, request).getJobId());
+
+        assertEquals(AiBudgetJobService.FAILED, done.getStatus());
+        assertEquals("You can request a new AI plan in about a minute.", done.getError());
+    }
+
+    @Test
+    void subscriberSeesEachStageAndTheTerminalState() throws Exception {
+        jobService = jobService(1, 2, 5_000, false);
+        CountDownLatch running = new CountDownLatch(1);
+        when(aiBudgetService.generateBudget(eq(request), any())).thenAnswer(invocation -> {
+            Consumer<AiBudgetService.GenerationStage> progress = invocation.getArgument(1);
+            running.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            progress.accept(AiBudgetService.GenerationStage.PROMPTING);
+            return plan;
+        });
+        String jobId = jobService.submit(USER_ID, request).getJobId();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        List<AiBudgetJobResponse> events = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(1);
+        assertTrue(jobService.subscribe(jobId, USER_ID, snapshot -> {
+            events.add(snapshot);
+            if (AiBudgetJobService.isFinished(snapshot)) {
+                finished.countDown();
+            }
+        }).isPresent());
+        assertTrue(jobService.isLive(jobId));
+        release.countDown();
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(AiBudgetJobService.RUNNING, events.get(0).getStatus());
+        assertTrue(events.stream().anyMatch(event -> "PROMPTING".equals(event.getStage())));
+        assertEquals(AiBudgetJobService.SUCCEEDED, events.get(events.size() - 1).getStatus());
+    }
+
+    @Test
+    void jobThatWaitsOutTheQueueFails() throws Exception {
+        jobService = jobService(1, 1, 50, false);
+        CountDownLatch running = new CountDownLatch(1);
+        when(aiBudgetService.generateBudget(eq(request), any())).thenAnswer(invocation -> {
+            running.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return plan;
+        });
+        jobService.submit(USER_ID, request);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        String queuedId = jobService.submit(USER_ID, request).getJobId();
+        CountDownLatch finished = new CountDownLatch(1);
+        jobService.subscribe(queuedId, USER_ID, snapshot -> {
+            if (AiBudgetJobService.isFinished(snapshot)) {
+                finished.countDown();
+            }
+        });
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS), "subscribers see the queued job end");
+        AiBudgetJobResponse expired = jobService.get(queuedId, USER_ID).orElseThrow();
+        assertEquals(AiBudgetJobService.FAILED, expired.getStatus());
+        assertNotNull(expired.getError());
+        verify(aiBudgetService, times(1)).generateBudget(eq(request), any());
+    }
+
+    @Test
+    void submitIsRefusedWhenTheQueueIsFull() throws Exception {
+        jobService = jobService(1, 0, 5_000, false);
+        CountDownLatch running = new CountDownLatch(1);
+        when(aiBudgetService.generateBudget(eq(request), any())).thenAnswer(invocation -> {
+            running.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return plan;
+        });
+        jobService.submit(USER_ID, request);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        ResponseStatusException refused =
+            assertThrows(ResponseStatusException.class, () -> jobService.submit(USER_ID, request));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, refused.getStatusCode());
+    }
+
+    @Test
+    void storedJobsAreStaleOnlyAfterTheirAllowedWait() {
+        jobService = jobService(1, 1, Duration.ofMinutes(5).toMillis(), true);
+        Instant threeMinutesAgo = Instant.now().minus(Duration.ofMinutes(3));
+        when(repository.findById("queued")).thenReturn(Optional.of(stored("queued", AiBudgetJobService.QUEUED, threeMinutesAgo)));
+        when(repository.findById("running")).thenReturn(Optional.of(stored("running", AiBudgetJobService.RUNNING, threeMinutesAgo)));
+        when(repository.findById("abandoned")).thenReturn(Optional.of(stored("abandoned", AiBudgetJobService.QUEUED,
+            Instant.now().minus(Duration.ofMinutes(8)))));
+
+        assertEquals(AiBudgetJobService.QUEUED, jobService.get("queued", USER_ID).orElseThrow().getStatus(),
+            "still within the queue timeout");
+        assertEquals(AiBudgetJobService.FAILED, jobService.get("running", USER_ID).orElseThrow().getStatus());
+        assertEquals(AiBudgetJobService.FAILED, jobService.get("abandoned", USER_ID).orElseThrow().getStatus());
+    }
+
+    private AiBudgetJobService jobService(int maxConcurrent, int maxQueued, long queueTimeoutMs, boolean persistent) {
+        return new AiBudgetJobService(aiBudgetService, repository, new ObjectMapper(), new SimpleMeterRegistry(),
+            maxConcurrent, maxQueued, queueTimeoutMs, 100, 30, persistent, 120, 24);
+    }
+
+    private AiBudgetJobResponse pollUntilFinished(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            AiBudgetJobResponse snapshot = jobService.get(jobId, USER_ID).orElseThrow();
+            if (AiBudgetJobService.isFinished(snapshot) || System.nanoTime() > deadline) {
+                return snapshot;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static AiBudgetJob stored(String id, String status, Instant updatedAt) {
+        AiBudgetJob job = new AiBudgetJob();
+        job.setId(id);
+        job.setUserId(USER_ID);
+        job.setStatus(status);
+        job.setCreatedAt(updatedAt);
+        job.setUpdatedAt(updatedAt);
+        return job;
+    }
+}
@@ -0,0 +1,137 @@
+package com.sanddollar.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiBudgetRateLimiterTest {
+
+    private static final long TIME_MASK = (1L << 40) - 1;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AiBudgetRateLimiter limiter = new AiBudgetRateLimiter(3, Duration.ofMinutes(1), clock::get);
+    private final AiBudgetRateLimiter[] limiterRef = new AiBudgetRateLimiter[1];
+
+    @Test
+    void burstIsLimitedToCapacity() {
+        assertTrue(limiter.tryConsume(1L));
+        assertTrue(limiter.tryConsume(1L));
+        assertTrue(limiter.tryConsume(1L));
+        assertFalse(limiter.tryConsume(1L));
+
+        assertTrue(limiter.tryConsume(2L), "buckets are per user");
+    }
+
+    @Test
+    void refillsContinuouslyOverTheWindow() {
+        exhaust(1L);
+
+        // 3 per minute is one token every 20 seconds
+        clock.addAndGet(19_999);
+        assertFalse(limiter.tryConsume(1L));
+        clock.addAndGet(1);
+        assertTrue(limiter.tryConsume(1L));
+        assertFalse(limiter.tryConsume(1L));
+    }
+
+    @Test
+    void frequentCallsKeepFractionalRefill() {
+        exhaust(1L);
+
+        for (int i = 0; i < 19; i++) {
+            clock.addAndGet(1_000);
+            assertFalse(limiter.tryConsume(1L));
+        }
+        clock.addAndGet(1_000);
+        assertTrue(limiter.tryConsume(1L));
+    }
+
+    @Test
+    void refillStopsAtCapacity() {
+        exhaust(1L);
+        clock.addAndGet(Duration.ofMinutes(10).toMillis());
+
+        exhaust(1L);
+    }
+
+    @Test
+    void refillsAcrossTimeFieldWraparound() {
+        clock.set(TIME_MASK - 5_000);
+        exhaust(1L);
+
+        // Crosses 2^40 ms, where the packed time field wraps to zero
+        clock.addAndGet(20_000);
+        assertTrue(limiter.tryConsume(1L));
+        assertFalse(limiter.tryConsume(1L));
+
+        clock.addAndGet(Duration.ofMinutes(1).toMillis());
+        exhaust(1L);
+    }
+
+    @Test
+    void clockSteppingBackDoesNotRefill() {
+        clock.set(100_000);
+        exhaust(1L);
+
+        clock.addAndGet(-30_000);
+        assertFalse(limiter.tryConsume(1L));
+    }
+
+    @Test
+    void evictIdleDropsOnlyRefilledBuckets() {
+        assertTrue(limiter.tryConsume(1L));
+        clock.addAndGet(20_000);
+        assertTrue(limiter.tryConsume(2L));
+
+        limiter.evictIdle();
+
+        assertEquals(1, limiter.trackedKeys(), "user 1 has refilled, user 2 has not");
+        assertTrue(limiter.tryConsume(2L));
+        assertTrue(limiter.tryConsume(2L));
+        assertFalse(limiter.tryConsume(2L));
+    }
+
+    @Test
+    void consumeRetriesWhenItsBucketIsEvictedMidway() {
+        AtomicBoolean evictNext = new AtomicBoolean();
+        AiBudgetRateLimiter racing = new AiBudgetRateLimiter(2, Duration.ofMinutes(1), () -> {
+            // Runs the sweep between tryConsume reading the bucket and its CAS
+            if (evictNext.compareAndSet(true, false)) {
+                limiterRef[0].evictIdle();
+            }
+            return clock.get();
+        });
+        limiterRef[0] = racing;
+
+        assertTrue(racing.tryConsume(1L));
+        clock.addAndGet(Duration.ofMinutes(1).toMillis());
+        evictNext.set(true);
+
+        assertTrue(racing.tryConsume(1L), "a swept bucket is replaced, not lost");
+        assertFalse(evictNext.get(), "the sweep ran during the consume");
+        assertEquals(1, racing.trackedKeys());
+        assertTrue(racing.tryConsume(1L));
+        assertFalse(racing.tryConsume(1L), "the swept bucket gave no extra tokens");
+    }
+
+    @Test
+    void clearResetsTheUser() {
+        exhaust(1L);
+
+        limiter.clear(1L);
+
+        assertEquals(0, limiter.trackedKeys());
+        exhaust(1L);
+    }
+
+    private void exhaust(long userId) {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryConsume(userId), "token " + (i + 1));
+        }
+        assertFalse(limiter.tryConsume(userId));
+    }
+}
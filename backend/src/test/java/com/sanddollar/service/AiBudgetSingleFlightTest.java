@@ -0,0 +1,75 @@
+package com.sanddollar.service;
+
+import com.sanddollar.dto.aibudget.GenerateBudgetResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiBudgetSingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AiBudgetSingleFlight singleFlight = new AiBudgetSingleFlight(meterRegistry);
+
+    @Test
+    void concurrentIdenticalCallsShareOneGeneration() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger generations = new AtomicInteger();
+        GenerateBudgetResponse plan = new GenerateBudgetResponse("2025-09", List.of(), null, 0, 0);
+
+        CompletableFuture<GenerateBudgetResponse> leader = CompletableFuture.supplyAsync(() ->
+            singleFlight.execute(1L, "fp", () -> {
+                generations.incrementAndGet();
+                started.countDown();
+                await(release);
+                return plan;
+            }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<GenerateBudgetResponse> follower = CompletableFuture.supplyAsync(() ->
+            singleFlight.execute(1L, "fp", () -> {
+                generations.incrementAndGet();
+                return null;
+            }));
+        // Only let the leader finish once the follower has joined it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertSame(plan, leader.get(5, TimeUnit.SECONDS));
+        assertSame(plan, follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, generations.get());
+        assertEquals(1.0, coalesced());
+    }
+
+    @Test
+    void differentFingerprintsRunSeparately() {
+        AtomicInteger generations = new AtomicInteger();
+
+        singleFlight.execute(1L, "a", () -> { generations.incrementAndGet(); return null; });
+        singleFlight.execute(1L, "b", () -> { generations.incrementAndGet(); return null; });
+
+        assertEquals(2, generations.get());
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("ai_budget.generate.single_flight").tag("result", "coalesced").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.sanddollar.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoServiceTest {
+
+    private static final String TOKEN = "access-sandbox-7f3c2a9e-1b4d-4c8e-9f21-5d6a7b8c9d0e";
+    private static final String KEY_1 = randomKey();
+    private static final String KEY_2 = randomKey();
+
+    @Test
+    void encryptsAsEnvelopeUnderActiveKey() {
+        CryptoService crypto = cryptoService("k1", KEY_1, "");
+
+        String encrypted = crypto.encrypt(TOKEN);
+
+        assertTrue(encrypted.startsWith("k1:"));
+        assertTrue(encrypted.substring(3).contains("."), "wrapped data key and ciphertext");
+        assertEquals("k1", crypto.keyIdOf(encrypted));
+        assertEquals(TOKEN, crypto.decrypt(encrypted));
+        assertNotEquals(encrypted, crypto.encrypt(TOKEN), "fresh data key and IV per value");
+    }
+
+    @Test
+    void decryptsLegacyUnversionedValues() throws Exception {
+        CryptoService crypto = cryptoService("k1", KEY_1, "k0:" + KEY_2);
+        String legacy = directEncrypt(KEY_2, TOKEN);
+
+        assertEquals(CryptoService.UNVERSIONED_KEY_ID, crypto.keyIdOf(legacy));
+        assertEquals(TOKEN, crypto.decrypt(legacy));
+        assertEquals(TOKEN, crypto.decrypt("k0:" + legacy), "direct values with a key id prefix");
+    }
+
+    @Test
+    void rewrapMovesLegacyValuesOntoEnvelope() throws Exception {
+        CryptoService crypto = cryptoService("k1", KEY_1, "k0:" + KEY_2);
+
+        String rewrapped = crypto.rewrap(directEncrypt(KEY_2, TOKEN));
+
+        assertTrue(crypto.isEncryptedWithActiveKey(rewrapped));
+        assertTrue(rewrapped.contains("."));
+        assertEquals(TOKEN, cryptoService("k1", KEY_1, "").decrypt(rewrapped));
+    }
+
+    @Test
+    void roundTripsAcrossKeyRotation() {
+        String encrypted = cryptoService("k1", KEY_1, "").encrypt(TOKEN);
+        CryptoService rotated = cryptoService("k2", KEY_2, "k1:" + KEY_1);
+
+        assertEquals(TOKEN, rotated.decrypt(encrypted));
+        assertFalse(rotated.isEncryptedWithActiveKey(encrypted));
+
+        String rewrapped = rotated.rewrap(encrypted);
+
+        assertTrue(rotated.isEncryptedWithActiveKey(rewrapped));
+        assertEquals(ciphertextOf(encrypted), ciphertextOf(rewrapped), "only the data key is rewrapped");
+        assertEquals(TOKEN, rotated.decrypt(rewrapped));
+        // The old key can be dropped once everything is rewrapped
+        assertEquals(TOKEN, cryptoService("k2", KEY_2, "").decrypt(rewrapped));
+    }
+
+    @Test
+    void wrappedKeyIsBoundToItsKeyId() {
+        CryptoService crypto = cryptoService("k2", KEY_1, "k1:" + KEY_1);
+        String encrypted = crypto.encrypt(TOKEN);
+
+        assertThrows(RuntimeException.class, () -> crypto.decrypt("k1" + encrypted.substring(2)));
+    }
+
+    @Test
+    void decryptCachedReturnsPlaintext() {
+        CryptoService crypto = cryptoService("k1", KEY_1, "");
+        String encrypted = crypto.encrypt(TOKEN);
+
+        assertEquals(TOKEN, crypto.decryptCached(encrypted));
+        assertEquals(TOKEN, crypto.decryptCached(encrypted));
+        crypto.evictCached(encrypted);
+        assertEquals(TOKEN, crypto.decryptCached(encrypted));
+    }
+
+    static CryptoService cryptoService(String keyId, String key, String previousKeys) {
+        CryptoService crypto = new CryptoService();
+        ReflectionTestUtils.setField(crypto, "encryptionKey", key);
+        ReflectionTestUtils.setField(crypto, "activeKeyId", keyId);
+        ReflectionTestUtils.setField(crypto, "previousKeys", previousKeys);
+        ReflectionTestUtils.setField(crypto, "tokenCacheTtlSeconds", 300L);
+        ReflectionTestUtils.setField(crypto, "tokenCacheMaxSize", 100L);
+        ReflectionTestUtils.invokeMethod(crypto, "init");
+        return crypto;
+    }
+
+    static String randomKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return Base64.getEncoder().encodeToString(key);
+    }
+
+    // How values were written before data keys: IV + ciphertext under the ring key itself
+    static String directEncrypt(String base64Key, String plaintext) throws Exception {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES"),
+            new GCMParameterSpec(128, iv));
+        byte[] encrypted = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+        byte[] withIv = new byte[iv.length + encrypted.length];
+        System.arraycopy(iv, 0, withIv, 0, iv.length);
+        System.arraycopy(encrypted, 0, withIv, iv.length, encrypted.length);
+        return Base64.getEncoder().encodeToString(withIv);
+    }
+
+    private static String ciphertextOf(String envelope) {
+        return envelope.substring(envelope.indexOf('.') + 1);
+    }
+}
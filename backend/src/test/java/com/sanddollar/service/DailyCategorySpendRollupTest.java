@@ -0,0 +1,73 @@
+package com.sanddollar.service;
+
+import com.sanddollar.repository.DailyCategorySpendRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DailyCategorySpendRollupTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 9, 1);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final DailyCategorySpendRollup rollup = new DailyCategorySpendRollup(
+        jdbcTemplate, mock(DailyCategorySpendRepository.class), mock(ApplicationEventPublisher.class));
+
+    @Test
+    void refundsCountTowardsTheRowButNotTheSpendCount() {
+        when(jdbcTemplate.getJdbcTemplate()).thenReturn(mock(JdbcTemplate.class));
+
+        rollup.applyChanges(List.of(), List.of(
+            new DailyCategorySpendRollup.Contribution(1L, DAY, "Shopping", -5000, false),
+            new DailyCategorySpendRollup.Contribution(1L, DAY, "Shopping", 1500, false),
+            new DailyCategorySpendRollup.Contribution(1L, DAY, "Shopping", -999, true)
+        ));
+
+        ArgumentCaptor<SqlParameterSource[]> batch = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        SqlParameterSource row = batch.getValue()[0];
+        assertEquals(5000L, row.getValue("spendCents"));
+        assertEquals(1500L, row.getValue("incomeCents"));
+        assertEquals(2, row.getValue("txnCount"));
+        assertEquals(1, row.getValue("spendCount"));
+    }
+
+    @Test
+    void writesRowsInKeyOrder() {
+        when(jdbcTemplate.getJdbcTemplate()).thenReturn(mock(JdbcTemplate.class));
+
+        rollup.applyChanges(List.of(
+            new DailyCategorySpendRollup.Contribution(2L, DAY, "Dining", -700, false),
+            new DailyCategorySpendRollup.Contribution(1L, DAY.plusDays(1), "Dining", -300, false)
+        ), List.of(
+            new DailyCategorySpendRollup.Contribution(1L, DAY.plusDays(1), "Shopping", -300, false),
+            new DailyCategorySpendRollup.Contribution(1L, DAY, "Shopping", -400, false),
+            new DailyCategorySpendRollup.Contribution(2L, DAY, "Groceries", -700, false)
+        ));
+
+        // Upserts, then deletes of the rows that shrank, each sorted by user, day and category
+        ArgumentCaptor<SqlParameterSource[]> batches = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+        assertEquals(List.of("1 " + DAY + " Shopping", "1 " + DAY.plusDays(1) + " Dining",
+                "1 " + DAY.plusDays(1) + " Shopping", "2 " + DAY + " Dining", "2 " + DAY + " Groceries"),
+            keys(batches.getAllValues().get(0)));
+        assertEquals(List.of("1 " + DAY.plusDays(1) + " Dining", "2 " + DAY + " Dining"),
+            keys(batches.getAllValues().get(1)));
+    }
+
+    private static List<String> keys(SqlParameterSource[] batch) {
+        return java.util.Arrays.stream(batch)
+            .map(row -> row.getValue("userId") + " " + row.getValue("day") + " " + row.getValue("categoryTop"))
+            .toList();
+    }
+}
@@ -0,0 +1,130 @@
+package com.sanddollar.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OpenAiBulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private OpenAiBulkhead bulkhead;
+    private OpenAIService service;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (bulkhead != null) {
+            bulkhead.shutdown();
+        }
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void queuedStreamThatTimesOutStillTerminates() throws Exception {
+        // Mock mode, one running stream and one waiting
+        service = new OpenAIService("mock-key", "gpt-4o-mini", 1, 1, 1, 1, 50, 12_000,
+            mock(OpenAiClient.class), meterRegistry);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        service.chatStream("hold the slot", delta -> {
+            firstStarted.countDown();
+            awaitUninterruptibly(release);
+        }, () -> { });
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+        List<String> deltas = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        service.chatStream("queued", deltas::add, completed::countDown);
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS), "the queued stream completes instead of hanging");
+        assertEquals(1, deltas.size());
+        assertTrue(deltas.get(0).contains("handling a lot of questions"));
+        assertEquals(1.0, meterRegistry.get("openai.bulkhead.rejected")
+            .tag("bulkhead", "openai-stream").tag("reason", "queue_timeout").counter().count());
+    }
+
+    @Test
+    void cancelledTaskKeepsItsSlotUntilItReturns() throws Exception {
+        bulkhead = new OpenAiBulkhead("test", 1, 0, Duration.ofMillis(50), meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        Future<?> running = bulkhead.submit(() -> {
+            started.countDown();
+            // Ignores the interrupt, like a call stuck in a blocking read
+            awaitUninterruptibly(release);
+            finished.countDown();
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        running.cancel(true);
+
+        assertThrows(RejectedExecutionException.class, () -> bulkhead.submit(() -> null),
+            "the cancelled body still holds the only slot");
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertNull(submitWhenFree().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void taskCancelledBeforeStartingFreesItsAdmission() throws Exception {
+        bulkhead = new OpenAiBulkhead("test", 1, 1, Duration.ofSeconds(5), meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        bulkhead.submit(() -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<?> waiting = bulkhead.submit(() -> null);
+
+        waiting.cancel(true);
+
+        release.countDown();
+        assertNull(submitWhenFree().get(5, TimeUnit.SECONDS));
+    }
+
+    private Future<Object> submitWhenFree() throws InterruptedException {
+        // The admission is released just after the body returns, so allow for the handover
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                return bulkhead.submit(() -> null);
+            } catch (RejectedExecutionException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
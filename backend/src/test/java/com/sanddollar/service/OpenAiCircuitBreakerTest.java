@@ -0,0 +1,103 @@
+package com.sanddollar.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAiCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final OpenAiCircuitBreaker breaker =
+        new OpenAiCircuitBreaker(new SimpleMeterRegistry(), true, 10, 4, 50, 1000, 30000, 2, now::get);
+
+    @Test
+    void opensOnceFailureRateReachesThreshold() {
+        succeed();
+        fail();
+        succeed();
+        assertEquals(OpenAiCircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail();
+
+        assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void slowCallsCountAsFailures() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(Duration.ofSeconds(2).toNanos());
+        }
+
+        assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void callsAbandonedAfterTheSlowThresholdCountAsFailures() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onCancelled(Duration.ofMillis(100).toNanos());
+        }
+        assertEquals(OpenAiCircuitBreaker.State.CLOSED, breaker.getState(), "early cancels are not recorded");
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onCancelled(Duration.ofSeconds(2).toNanos());
+        }
+
+        assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void closesAfterSuccessfulProbes() {
+        tripOpen();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertFalse(breaker.isOpen());
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only the configured number of probes run at once");
+        assertEquals(OpenAiCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+
+        assertEquals(OpenAiCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(3, breaker.snapshot().transitions().size());
+    }
+
+    @Test
+    void failedProbeReopens() {
+        tripOpen();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure("503");
+
+        assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void succeed() {
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(0);
+    }
+
+    private void fail() {
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure("503");
+    }
+}
@@ -0,0 +1,188 @@
+package com.sanddollar.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAiClientTest {
+
+    private HttpServer server;
+    private OpenAiClient client;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Concurrent handlers, so a slow response does not hold up a hedge
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        client = new OpenAiClient();
+        ReflectionTestUtils.setField(client, "apiKey", "test-key");
+        ReflectionTestUtils.setField(client, "model", "gpt-4o-mini");
+        ReflectionTestUtils.setField(client, "maxTokens", 100);
+        ReflectionTestUtils.setField(client, "temperature", 0.3);
+        ReflectionTestUtils.setField(client, "baseUrl", "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/");
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 1000);
+        ReflectionTestUtils.setField(client, "readTimeoutMs", 2000);
+        ReflectionTestUtils.setField(client, "maxRetries", 2);
+        ReflectionTestUtils.setField(client, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(client, "maxBackoffMs", 5L);
+        ReflectionTestUtils.setField(client, "maxRetryAfterMs", 1000L);
+        ReflectionTestUtils.setField(client, "circuitBreaker",
+            new OpenAiCircuitBreaker(meterRegistry, true, 20, 10, 50, 15000, 30000, 3));
+        ReflectionTestUtils.setField(client, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.invokeMethod(client, "init");
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void retriesThrottledRequestAfterServerHint() {
+        server.createContext("/v1/chat/completions", exchange -> {
+            if (calls.incrementAndGet() == 1) {
+                exchange.getResponseHeaders().add("retry-after-ms", "20");
+                respond(exchange, 429, "application/json", "{}");
+            } else {
+                respond(exchange, 200, "application/json",
+                    "{\"id\":\"x\",\"system_fingerprint\":\"fp\",\"choices\":[{\"index\":0," +
+                    "\"message\":{\"role\":\"assistant\",\"content\":\"hello\"},\"finish_reason\":\"stop\"}]}");
+            }
+        });
+
+        OpenAiClient.OpenAiResponse response = client.generateBudgetRecommendations("system", "user");
+
+        assertEquals("hello", response.getContent());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        server.createContext("/v1/chat/completions", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, 400, "application/json", "{\"error\":{}}");
+        });
+
+        OpenAiClient.OpenAiException error = assertThrows(OpenAiClient.OpenAiException.class,
+            () -> client.generateBudgetRecommendations("system", "user"));
+
+        assertEquals(400, error.getStatus());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void streamsDeltasAsTheyArrive() {
+        server.createContext("/v1/chat/completions", exchange -> respond(exchange, 200, "text/event-stream",
+            "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n\n" +
+            "data: {\"choices\":[{\"delta\":{\"content\":\"Hel\"}}]}\n\n" +
+            ": keep-alive\n\n" +
+            "data: {\"choices\":[{\"delta\":{\"content\":\"lo\"}}]}\n\n" +
+            "data: [DONE]\n\n"));
+
+        List<String> deltas = new ArrayList<>();
+        try (OpenAiClient.ChatStream stream = client.openChatStream(
+                List.of(new OpenAiClient.OpenAiMessage("user", "hi")), 0.7)) {
+            String delta;
+            while ((delta = stream.nextDelta()) != null) {
+                deltas.add(delta);
+            }
+        }
+
+        assertEquals(List.of("Hel", "lo"), deltas);
+    }
+
+    @Test
+    void hedgesSlowRequestAndTakesTheFasterAnswer() {
+        ReflectionTestUtils.setField(client, "hedgingEnabled", true);
+        ReflectionTestUtils.setField(client, "hedgePercentile", 0.9);
+        ReflectionTestUtils.setField(client, "hedgeInitialDelayMs", 50L);
+        ReflectionTestUtils.setField(client, "hedgeMinDelayMs", 10L);
+        ReflectionTestUtils.setField(client, "hedgeMaxRatio", 1.0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            respond(exchange, 200, "application/json",
+                "{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"call " + call + "\"}}]}");
+        });
+
+        long start = System.nanoTime();
+        OpenAiClient.OpenAiResponse response = client.complete(
+            List.of(new OpenAiClient.OpenAiMessage("user", "hi")), null, true);
+
+        assertEquals("call 2", response.getContent());
+        assertTrue(System.nanoTime() - start < 1_500_000_000L, "answered by the hedge, not the slow request");
+        assertEquals(1.0, meterRegistry.get("openai.hedge.requests").tag("outcome", "hedge_won").counter().count());
+    }
+
+    @Test
+    void callerTimeoutsOnAHungServerOpenTheCircuit() throws Exception {
+        CountDownLatch hung = new CountDownLatch(1);
+        server.createContext("/v1/chat/completions", exchange -> {
+            calls.incrementAndGet();
+            try {
+                hung.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        OpenAiCircuitBreaker breaker = new OpenAiCircuitBreaker(meterRegistry, true, 4, 2, 50, 100, 30000, 1);
+        ReflectionTestUtils.setField(client, "circuitBreaker", breaker);
+        // Callers give up long before the client's own read timeout
+        OpenAIService service = new OpenAIService("test-key", "gpt-4o-mini", 4, 4, 4, 4, 1000, 300,
+            client, meterRegistry);
+        try {
+            for (int i = 0; i < 2; i++) {
+                assertTrue(service.chatOnce("hi").contains("taking longer than usual"));
+            }
+            // The abandoned calls are recorded once their workers see the cancel
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!breaker.isOpen() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.getState());
+            int reachedServer = calls.get();
+            assertTrue(service.chatOnce("hi").contains("can't reach my assistant"));
+            assertEquals(reachedServer, calls.get(), "an open circuit answers without calling OpenAI");
+        } finally {
+            hung.countDown();
+            service.shutdown();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
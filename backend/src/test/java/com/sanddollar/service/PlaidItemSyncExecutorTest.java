@@ -0,0 +1,61 @@
+package com.sanddollar.service;
+
+import com.sanddollar.entity.PlaidItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaidItemSyncExecutorTest {
+
+    private final PlaidItemSyncExecutor executor = new PlaidItemSyncExecutor(16, 2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void concurrentSyncsForOneUserShareTheUserCap() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        PlaidItemSyncExecutor.ItemSyncTask task = plaidItemId -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return new PlaidSyncService.SyncResult(0, 0);
+        };
+
+        // A webhook and a manual refresh for the same user at the same time
+        CompletableFuture<List<PlaidSyncService.ItemSyncResult>> webhook =
+            CompletableFuture.supplyAsync(() -> executor.syncAll(1L, items(0, 3), task));
+        CompletableFuture<List<PlaidSyncService.ItemSyncResult>> refresh =
+            CompletableFuture.supplyAsync(() -> executor.syncAll(1L, items(3, 3), task));
+
+        assertEquals(3, webhook.get(5, TimeUnit.SECONDS).size());
+        assertEquals(3, refresh.get(5, TimeUnit.SECONDS).size());
+        assertTrue(peak.get() <= 2, "at most 2 items of one user sync at once, got " + peak.get());
+    }
+
+    private static List<PlaidItem> items(int from, int count) {
+        List<PlaidItem> items = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            PlaidItem item = new PlaidItem();
+            item.setId((long) i);
+            item.setItemId("item-" + i);
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,69 @@
+package com.sanddollar.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PlaidItemSyncLockTest {
+
+    private final HikariDataSource dataSource = mock(HikariDataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement lock = mock(PreparedStatement.class);
+    private final PreparedStatement unlock = mock(PreparedStatement.class);
+    private final PlaidItemSyncLock syncLock = new PlaidItemSyncLock(dataSource);
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation ->
+            invocation.getArgument(0, String.class).contains("unlock") ? unlock : lock);
+        ResultSet acquired = mock(ResultSet.class);
+        when(acquired.next()).thenReturn(true);
+        when(acquired.getBoolean(1)).thenReturn(true);
+        when(lock.executeQuery()).thenReturn(acquired);
+    }
+
+    @Test
+    void releasedLockReturnsConnectionToPool() throws SQLException {
+        ResultSet released = mock(ResultSet.class);
+        when(released.next()).thenReturn(true);
+        when(released.getBoolean(1)).thenReturn(true);
+        when(unlock.executeQuery()).thenReturn(released);
+
+        syncLock.tryAcquire(42L).orElseThrow().close();
+
+        verify(connection).close();
+        verify(dataSource, never()).evictConnection(any());
+    }
+
+    @Test
+    void failedUnlockEvictsTheConnectionInsteadOfPoolingIt() throws SQLException {
+        when(unlock.executeQuery()).thenThrow(new SQLException("connection reset"));
+
+        Optional<PlaidItemSyncLock.Lease> lease = syncLock.tryAcquire(42L);
+        lease.orElseThrow().close();
+
+        verify(dataSource).evictConnection(connection);
+        verify(connection, never()).close();
+    }
+
+    @Test
+    void largeIdsGetDistinctKeysAndOutOfRangeIdsAreRefused() throws SQLException {
+        syncLock.tryAcquire(0xFFFFFFFFL);
+        verify(lock).setInt(2, -1);
+
+        assertThrows(IllegalArgumentException.class, () -> syncLock.tryAcquire(1L << 32));
+        verify(lock, times(1)).setInt(eq(2), anyInt());
+    }
+}
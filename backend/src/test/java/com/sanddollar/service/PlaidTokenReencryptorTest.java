@@ -0,0 +1,72 @@
+package com.sanddollar.service;
+
+import com.sanddollar.entity.PlaidItem;
+import com.sanddollar.repository.PlaidItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PlaidTokenReencryptorTest {
+
+    private static final String TOKEN = "access-sandbox-relink-race";
+
+    private final PlaidItemRepository plaidItemRepository = mock(PlaidItemRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final String oldKey = CryptoServiceTest.randomKey();
+    private final CryptoService cryptoService =
+        CryptoServiceTest.cryptoService("k2", CryptoServiceTest.randomKey(), "k1:" + oldKey);
+    private PlaidTokenReencryptor reencryptor;
+    private String stored;
+
+    @BeforeEach
+    void setUp() {
+        reencryptor = new PlaidTokenReencryptor(plaidItemRepository, new PlaidAccessTokenCipher(cryptoService),
+            cryptoService, mock(PlatformTransactionManager.class), meterRegistry, true, 100, 0);
+
+        stored = CryptoServiceTest.cryptoService("k1", oldKey, "").encrypt(TOKEN);
+        PlaidItem item = new PlaidItem(null, "item-7", "ins_1", "Bank", stored);
+        item.setId(7L);
+        when(plaidItemRepository.countWithTokenNotUnderKey("k2:")).thenReturn(1L);
+        when(plaidItemRepository.findIdsWithTokenNotUnderKey(eq("k2:"), eq(0L), any(Pageable.class)))
+            .thenReturn(List.of(7L));
+        when(plaidItemRepository.findById(7L)).thenReturn(Optional.of(item));
+    }
+
+    @Test
+    void rewrapsTokenUnderActiveKey() {
+        when(plaidItemRepository.replaceAccessToken(eq(7L), eq(stored), anyString())).thenReturn(1);
+
+        reencryptor.run();
+
+        verify(plaidItemRepository).replaceAccessToken(eq(7L), eq(stored), argThat(replacement ->
+            replacement.startsWith("k2:") && TOKEN.equals(cryptoService.decrypt(replacement))));
+        assertEquals(1.0, outcome("reencrypted"));
+        assertEquals(0.0, outcome("failed"));
+    }
+
+    @Test
+    void concurrentRelinkWinsTheCompareAndSet() {
+        // The item was relinked between the read and the update, so the expected value no longer matches
+        when(plaidItemRepository.replaceAccessToken(eq(7L), eq(stored), anyString())).thenReturn(0);
+
+        reencryptor.run();
+
+        verify(plaidItemRepository, never()).save(any());
+        assertEquals(0.0, outcome("reencrypted"));
+        assertEquals(1.0, outcome("skipped"));
+        assertEquals(0.0, outcome("failed"));
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("encryption.reencrypt.items").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,150 @@
+package com.sanddollar.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.*;
+
+class PostgresRateLimitStoreTest {
+
+    private static final long MINUTE = 60_000;
+
+    private static PostgreSQLContainer<?> postgres;
+    private static HikariDataSource database;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterAll
+    static void stopDatabase() {
+        if (database != null) {
+            database.close();
+        }
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @Test
+    void fallsBackForTheCooldownWhenTheDatabaseFails() throws SQLException {
+        DataSource unavailable = mock(DataSource.class);
+        when(unavailable.getConnection()).thenThrow(new SQLException("connection refused"));
+        PostgresRateLimitStore store = store(unavailable, 1);
+
+        assertNull(store.tryConsume("CHAT", 1L, 5, MINUTE));
+        assertNull(store.tryConsume("CHAT", 1L, 5, MINUTE), "still cooling down");
+        verify(unavailable, times(1)).getConnection();
+
+        clock.addAndGet(30_001);
+        assertNull(store.tryConsume("CHAT", 1L, 5, MINUTE));
+        verify(unavailable, times(2)).getConnection();
+        assertEquals(3.0, decisions("fallback"));
+    }
+
+    @Test
+    void createsTheBucketAndTakesUntilEmpty() {
+        DataSource dataSource = database();
+        PostgresRateLimitStore store = store(dataSource, 1);
+
+        assertTrue(store.tryConsume("CHAT", 7L, 3, MINUTE));
+        assertTrue(store.tryConsume("CHAT", 7L, 3, MINUTE));
+        assertTrue(store.tryConsume("CHAT", 7L, 3, MINUTE));
+        assertFalse(store.tryConsume("CHAT", 7L, 3, MINUTE));
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertEquals(1, jdbc.queryForObject(
+            "SELECT COUNT(*) FROM ai_rate_limit_buckets WHERE endpoint = 'CHAT' AND user_key = 7", Integer.class));
+        assertTrue(jdbc.queryForObject(
+            "SELECT tokens FROM ai_rate_limit_buckets WHERE endpoint = 'CHAT' AND user_key = 7", Double.class) < 1);
+        assertEquals(3.0, decisions("db_grant"));
+        assertEquals(1.0, decisions("db_deny"));
+    }
+
+    @Test
+    void concurrentFirstUseCreatesOneSharedBucket() throws Exception {
+        DataSource dataSource = database();
+        int replicas = 8;
+        List<Callable<Boolean>> calls = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            // A store per replica, so no lease is shared between the calls
+            PostgresRateLimitStore replica = store(dataSource, 1);
+            calls.add(() -> replica.tryConsume("BUDGET_PLAN", 9L, 4, MINUTE));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(replicas);
+        int granted = 0;
+        try {
+            for (Future<Boolean> result : executor.invokeAll(calls)) {
+                if (Boolean.TRUE.equals(result.get())) {
+                    granted++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(4, granted);
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject(
+            "SELECT COUNT(*) FROM ai_rate_limit_buckets WHERE endpoint = 'BUDGET_PLAN' AND user_key = 9", Integer.class));
+    }
+
+    @Test
+    void leasedTokensAreSpentWithoutRoundTrips() {
+        DataSource dataSource = database();
+        PostgresRateLimitStore store = store(dataSource, 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(store.tryConsume("BUDGET_ADJUST", 11L, 10, MINUTE));
+        }
+
+        assertEquals(1.0, decisions("db_grant"));
+        assertEquals(4.0, decisions("lease"));
+        double tokens = new JdbcTemplate(dataSource).queryForObject(
+            "SELECT tokens FROM ai_rate_limit_buckets WHERE endpoint = 'BUDGET_ADJUST' AND user_key = 11", Double.class);
+        assertEquals(5.0, tokens, 0.5);
+    }
+
+    private PostgresRateLimitStore store(DataSource dataSource, int leaseSize) {
+        return new PostgresRateLimitStore(dataSource, meterRegistry, true, leaseSize, 5_000, 1,
+            Long.MAX_VALUE, 30_000, clock::get);
+    }
+
+    private double decisions(String source) {
+        return meterRegistry.get("ai.ratelimit.distributed.decisions").tag("source", source).counter().count();
+    }
+
+    private static synchronized DataSource database() {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "the SQL tests need Docker");
+        if (database == null) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+            database = new HikariDataSource();
+            database.setJdbcUrl(postgres.getJdbcUrl());
+            database.setUsername(postgres.getUsername());
+            database.setPassword(postgres.getPassword());
+            new ResourceDatabasePopulator(new ClassPathResource("db/migration/V16__Create_ai_rate_limit_buckets.sql"))
+                .execute(database);
+        }
+        new JdbcTemplate(database).execute("TRUNCATE ai_rate_limit_buckets");
+        return database;
+    }
+}
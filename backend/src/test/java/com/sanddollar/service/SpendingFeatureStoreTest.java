@@ -0,0 +1,122 @@
+package com.sanddollar.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanddollar.repository.DailyCategorySpendRepository;
+import com.sanddollar.repository.TransactionRepository;
+import com.sanddollar.repository.UserSpendingFeaturesRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SpendingFeatureStoreTest {
+
+    private static final LocalDate AS_OF = LocalDate.of(2025, 9, 20);
+
+    @Test
+    void detectsMonthlyBillsWithSteadyAmounts() {
+        List<Object[]> outflows = List.of(
+            outflow("Netflix", "Entertainment", "2025-07-05", 1549),
+            outflow("Grocer", "Groceries", "2025-07-06", 8210),
+            outflow("Netflix", "Entertainment", "2025-08-05", 1549),
+            outflow("Grocer", "Groceries", "2025-08-06", 3105),
+            outflow("NETFLIX ", "Entertainment", "2025-09-05", 1599)
+        );
+
+        List<SpendingFeatureStore.RecurringBill> bills = SpendingFeatureStore.detectRecurringBills(outflows, AS_OF);
+
+        assertEquals(1, bills.size());
+        SpendingFeatureStore.RecurringBill netflix = bills.get(0);
+        assertEquals(1549, netflix.amountCents());
+        assertEquals(31, netflix.intervalDays());
+        assertEquals(LocalDate.of(2025, 10, 6), netflix.nextExpected());
+    }
+
+    @Test
+    void ignoresBillsThatStopped() {
+        List<Object[]> outflows = List.of(
+            outflow("Gym", "Fitness", "2025-06-01", 4000),
+            outflow("Gym", "Fitness", "2025-07-01", 4000)
+        );
+
+        assertTrue(SpendingFeatureStore.detectRecurringBills(outflows, AS_OF).isEmpty());
+    }
+
+    @Test
+    void weeklyVolatilityIsZeroForEvenSpending() {
+        List<Object[]> daily = new ArrayList<>();
+        for (int day = 0; day < 56; day++) {
+            daily.add(new Object[]{AS_OF.minusDays(day), 1000L});
+        }
+
+        assertEquals(0.0, SpendingFeatureStore.weeklyVolatility(daily, AS_OF, 56));
+    }
+
+    @Test
+    void incomeCountsRecurringDepositsButNotRefunds() {
+        LocalDate today = LocalDate.now();
+        DailyCategorySpendRepository spendRepository = mock(DailyCategorySpendRepository.class);
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(spendRepository.getDailySpending(eq(1L), any(), eq(today)))
+            .thenReturn(List.<Object[]>of(new Object[]{today.minusDays(59), 4000L}));
+        // The refund shows up as income in the rollup, next to the category's spending
+        when(spendRepository.getCategoryTotals(eq(1L), any(), eq(today)))
+            .thenReturn(List.<Object[]>of(new Object[]{"Shopping", 12000L, 4500L, 3L}));
+        when(transactionRepository.getOutflows(eq(1L), any(), eq(today))).thenReturn(List.of());
+        when(transactionRepository.getInflows(eq(1L), any(), eq(today))).thenReturn(List.of(
+            inflow("Acme Payroll", "Income", today.minusDays(30).toString(), 250000),
+            inflow("Acme Payroll", "Income", today.minusDays(16).toString(), 262000),
+            inflow("Online Store", "Shopping", today.minusDays(10).toString(), 4500),
+            inflow("Acme Payroll", "Income", today.minusDays(2).toString(), 250000)
+        ));
+        SpendingFeatureStore store = new SpendingFeatureStore(mock(UserSpendingFeaturesRepository.class),
+            spendRepository, transactionRepository, new ObjectMapper(), mock(PlatformTransactionManager.class));
+
+        SpendingFeatureStore.SpendingFeatures features = store.refresh(1L);
+
+        // A fortnightly paycheck of $2,500, normalised to 30 days
+        assertEquals(Math.round(250000 * 30.0 / 14), features.monthlyIncomeCents());
+        assertEquals(60, features.historyDays());
+        assertEquals(6000, features.categories().get("Shopping").monthly90dCents());
+    }
+
+    @Test
+    void spendingChangeDropsStoredFeaturesWithoutRecomputing() {
+        UserSpendingFeaturesRepository repository = mock(UserSpendingFeaturesRepository.class);
+        DailyCategorySpendRepository spendRepository = mock(DailyCategorySpendRepository.class);
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        SpendingFeatureStore store = new SpendingFeatureStore(repository, spendRepository, transactionRepository,
+            new ObjectMapper(), mock(PlatformTransactionManager.class));
+
+        store.onSpendingChanged(new SpendingChangedEvent(Set.of(1L, 2L)));
+
+        verify(repository).deleteByUserIdIn(Set.of(1L, 2L));
+        verifyNoInteractions(spendRepository, transactionRepository);
+    }
+
+    @Test
+    void irregularDepositsAreNotIncome() {
+        List<Object[]> inflows = List.of(
+            inflow("Online Store", "Shopping", "2025-08-02", 4500),
+            inflow("Venmo", "Transfer", "2025-08-20", 12000),
+            inflow("Online Store", "Shopping", "2025-09-15", 900)
+        );
+
+        assertEquals(0, SpendingFeatureStore.detectRecurringIncome(inflows, AS_OF));
+    }
+
+    private static Object[] outflow(String merchant, String category, String date, long cents) {
+        return new Object[]{merchant, category, LocalDate.parse(date), cents};
+    }
+
+    private static Object[] inflow(String payer, String category, String date, long cents) {
+        return new Object[]{payer, category, LocalDate.parse(date), cents};
+    }
+}
@@ -1,22 +1,29 @@
 package com.sanddollar.service.impl;
 
 import com.sanddollar.dto.aibudget.AcceptBudgetRequest;
+import com.sanddollar.dto.aibudget.AcceptBudgetResponse;
 import com.sanddollar.dto.aibudget.GenerateBudgetRequest;
 import com.sanddollar.dto.aibudget.GenerateBudgetResponse;
 import com.sanddollar.dto.aibudget.FinancialSnapshotResponse;
 import com.sanddollar.entity.BudgetTarget;
 import com.sanddollar.entity.User;
-import com.sanddollar.repository.BalanceSnapshotRepository;
 import com.sanddollar.repository.BudgetTargetRepository;
-import com.sanddollar.repository.TransactionRepository;
 import com.sanddollar.security.UserPrincipal;
 import com.sanddollar.service.AiBudgetRateLimiter;
+import com.sanddollar.service.AiBudgetResponseCache;
+import com.sanddollar.service.AiBudgetService.GenerationStage;
+import com.sanddollar.service.AiBudgetSingleFlight;
 import com.sanddollar.service.OpenAiClient;
+import com.sanddollar.service.SpendingDataProvider;
+import com.sanddollar.service.SpendingFeatureStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -25,6 +32,13 @@ import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -33,14 +47,17 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class AiBudgetServiceImplTest {
 
-    @Mock private TransactionRepository transactionRepository;
-    @Mock private BalanceSnapshotRepository balanceSnapshotRepository;
     @Mock private BudgetTargetRepository budgetTargetRepository;
     @Mock private OpenAiClient openAiClient;
+    @Mock private AiBudgetResponseCache responseCache;
+    @Spy private AiBudgetSingleFlight singleFlight = new AiBudgetSingleFlight(new SimpleMeterRegistry());
+    @Mock private SpendingFeatureStore spendingFeatureStore;
+    @Mock private SpendingDataProvider spendingDataProvider;
 
     @InjectMocks
     private AiBudgetServiceImpl aiBudgetService;
 
+    private final ExecutorService requests = Executors.newFixedThreadPool(2);
     private User currentUser;
 
     @BeforeEach
@@ -57,15 +74,30 @@ class AiBudgetServiceImplTest {
 
         ReflectionTestUtils.setField(aiBudgetService, "aiBudgetEnabled", true);
         ReflectionTestUtils.setField(aiBudgetService, "rateLimiter", new AiBudgetRateLimiter(10));
+        lenient().when(spendingFeatureStore.get(currentUser.getId())).thenReturn(features(12000L, 620000L));
+        lenient().when(responseCache.fingerprint(anyString(), anyString())).thenReturn("fp");
+    }
+
+    @AfterEach
+    void tearDown() {
+        requests.shutdownNow();
+        SecurityContextHolder.clearContext();
+    }
+
+    private SpendingFeatureStore.SpendingFeatures features(long diningCents, long incomeCents) {
+        return new SpendingFeatureStore.SpendingFeatures(currentUser.getId(), LocalDate.now(), 90, incomeCents, 0.2,
+            new java.util.TreeMap<>(java.util.Map.of("Dining",
+                new SpendingFeatureStore.CategoryAverage(diningCents, diningCents))),
+            List.of());
     }
 
     @Test
     void getFinancialSnapshot_includesTargets() {
-        when(transactionRepository.getSpendingByCategory(eq(currentUser), any(LocalDate.class), any(LocalDate.class)))
-            .thenReturn(List.of(
-                new Object[]{"Dining", 28000L},
-                new Object[]{"Rent", 150000L}
-            ));
+        when(spendingDataProvider.getCurrentMonthSnapshot(eq(currentUser.getId()), any()))
+            .thenReturn(new SpendingDataProvider.SnapshotDto("2025-09", null, List.of(
+                new FinancialSnapshotResponse.CategoryActual("Dining", new BigDecimal("280.00")),
+                new FinancialSnapshotResponse.CategoryActual("Rent", new BigDecimal("1500.00"))
+            ), null));
 
         when(budgetTargetRepository.findByUserIdAndMonthOrderByCategory(eq(currentUser.getId()), anyString()))
             .thenReturn(List.of(
@@ -88,8 +120,6 @@ class AiBudgetServiceImplTest {
     @Test
     void generateBudget_enforcesRateLimit() {
         ReflectionTestUtils.setField(aiBudgetService, "rateLimiter", new AiBudgetRateLimiter(1));
-        when(transactionRepository.getSpendingByCategory(eq(currentUser), any(LocalDate.class), any(LocalDate.class)))
-            .thenReturn(List.of(new Object[]{"Dining", 36000L}));
         when(openAiClient.generateBudgetRecommendations(anyString(), anyString()))
             .thenThrow(new RuntimeException("OpenAI unavailable"));
 
@@ -105,6 +135,96 @@ class AiBudgetServiceImplTest {
         assertThrows(org.springframework.web.server.ResponseStatusException.class, () -> aiBudgetService.generateBudget(request));
     }
 
+    @Test
+    void generateBudget_servesCachedPlanWithoutCallingOpenAi() {
+        GenerateBudgetResponse cachedPlan = new GenerateBudgetResponse("2025-09", List.of(), null, 10, 20);
+        when(responseCache.get(currentUser.getId(), "fp")).thenReturn(java.util.Optional.of(cachedPlan));
+
+        GenerateBudgetRequest request = new GenerateBudgetRequest(
+            "2025-09",
+            List.of("Save more"),
+            "balanced",
+            null,
+            null
+        );
+
+        assertSame(cachedPlan, aiBudgetService.generateBudget(request));
+        verifyNoInteractions(openAiClient);
+    }
+
+    @Test
+    void generateBudget_buildsPromptFromPrecomputedFeatures() {
+        GenerateBudgetRequest request = new GenerateBudgetRequest(
+            "2025-09",
+            List.of("Save more"),
+            "balanced",
+            null,
+            null
+        );
+
+        aiBudgetService.generateBudget(request);
+
+        org.mockito.ArgumentCaptor<String> userPrompt = org.mockito.ArgumentCaptor.forClass(String.class);
+        verify(openAiClient).generateBudgetRecommendations(anyString(), userPrompt.capture());
+        assertTrue(userPrompt.getValue().contains("Net monthly income: $6200.00 (detected from regular deposits)"));
+        assertTrue(userPrompt.getValue().contains("- Dining: $120.00 / $120.00"));
+    }
+
+    @Test
+    void generateBudget_concurrentIdenticalRequestsShareOneGeneration() throws Exception {
+        CountDownLatch prompting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OpenAiClient.OpenAiResponse aiResponse = new OpenAiClient.OpenAiResponse();
+        aiResponse.choices = List.of(createOpenAiChoice());
+        aiResponse.usage = createOpenAiUsage();
+        when(openAiClient.generateBudgetRecommendations(anyString(), anyString())).thenAnswer(invocation -> {
+            prompting.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return aiResponse;
+        });
+        GenerateBudgetRequest request = new GenerateBudgetRequest(
+            "2025-09",
+            List.of("Save more"),
+            "balanced",
+            null,
+            null
+        );
+
+        List<GenerationStage> leaderStages = new CopyOnWriteArrayList<>();
+        CompletableFuture<GenerateBudgetResponse> leader = generateAsCurrentUser(request, leaderStages::add);
+        assertTrue(prompting.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch waiting = new CountDownLatch(1);
+        List<GenerationStage> followerStages = new CopyOnWriteArrayList<>();
+        CompletableFuture<GenerateBudgetResponse> follower = generateAsCurrentUser(request, stage -> {
+            followerStages.add(stage);
+            if (stage == GenerationStage.WAITING) {
+                waiting.countDown();
+            }
+        });
+        assertTrue(waiting.await(5, TimeUnit.SECONDS), "the follower joins the running generation");
+        release.countDown();
+
+        GenerateBudgetResponse plan = leader.get(5, TimeUnit.SECONDS);
+        assertSame(plan, follower.get(5, TimeUnit.SECONDS));
+        verify(openAiClient, times(1)).generateBudgetRecommendations(anyString(), anyString());
+        assertTrue(leaderStages.contains(GenerationStage.PROMPTING));
+        assertEquals(List.of(GenerationStage.GATHERING_HISTORY, GenerationStage.WAITING), followerStages);
+    }
+
+    private CompletableFuture<GenerateBudgetResponse> generateAsCurrentUser(GenerateBudgetRequest request,
+                                                                          Consumer<GenerationStage> progress) {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        return CompletableFuture.supplyAsync(() -> {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            try {
+                return aiBudgetService.generateBudget(request, progress);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }, requests);
+    }
+
     @Test
     void acceptBudget_persistsTargetsInCents() {
         AcceptBudgetRequest request = new AcceptBudgetRequest(
@@ -124,7 +124,7 @@ export default function Dashboard() {
     queryKey: ['transactions', 'recent'],
     queryFn: async () => {
       const response = await api.get('/transactions?limit=5')
-      return response.data
+      return response.data.transactions
     }
   })
 
@@ -104,7 +104,7 @@ export default function Spending() {
       params.set('limit', '50')
       
       const response = await api.get(`/transactions?${params.toString()}`)
-      return response.data
+      return response.data.transactions
     }
   })
 